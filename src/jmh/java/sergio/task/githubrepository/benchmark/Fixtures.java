@@ -0,0 +1,23 @@
+package sergio.task.githubrepository.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+// Benchmarks run offline against payloads bundled in src/jmh/resources
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static byte[] read(String path) {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing benchmark fixture: " + path);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
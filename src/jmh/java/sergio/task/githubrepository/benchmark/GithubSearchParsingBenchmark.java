@@ -0,0 +1,64 @@
+package sergio.task.githubrepository.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sergio.task.githubrepository.external.GithubSearchResponseParser;
+import sergio.task.githubrepository.external.model.GithubSearchResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Data binding (what RestClient did before) vs the streaming parser, on a recorded-shape 100 item page.
+// Run with -prof gc to compare gc.alloc.rate.norm (bytes allocated per page)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GithubSearchParsingBenchmark {
+
+    private byte[] page;
+    private ObjectMapper objectMapper;
+    private GithubSearchResponseParser streamingParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        page = Fixtures.read("fixtures/github-search-page.json");
+        // Same settings Spring Boot applies to the mapper behind RestClient
+        objectMapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        streamingParser = new GithubSearchResponseParser();
+    }
+
+    @Benchmark
+    public GithubSearchResponse dataBinding() throws IOException {
+        return objectMapper.readValue(new ByteArrayInputStream(page), GithubSearchResponse.class);
+    }
+
+    @Benchmark
+    public GithubSearchResponse streamingParser() throws IOException {
+        return streamingParser.parse(new ByteArrayInputStream(page));
+    }
+
+    @Benchmark
+    public long streamingParserWithoutList(Blackhole blackhole) throws IOException {
+        return streamingParser.parse(new ByteArrayInputStream(page), blackhole::consume);
+    }
+}
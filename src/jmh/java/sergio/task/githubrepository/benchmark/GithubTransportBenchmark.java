@@ -0,0 +1,111 @@
+package sergio.task.githubrepository.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.web.client.RestClient;
+import sergio.task.githubrepository.external.GithubSearchResponseParser;
+import sergio.task.githubrepository.external.GithubTransportInterceptor;
+import sergio.task.githubrepository.external.model.GithubSearchResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// One popularity fan-out (page requests in parallel, each streamed into the parser) against a local stub server:
+// the previous default request factory (HttpURLConnection) vs the pooled JDK HttpClient, with and without gzip.
+// Loopback hides most of the handshake cost, run it against a remote stub to see the full difference
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GithubTransportBenchmark {
+
+    @Param({"simple", "jdk"})
+    public String transport;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    @Param({"5"})
+    public int pages;
+
+    private StubGithubServer server;
+    private RestClient restClient;
+    private GithubSearchResponseParser parser;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        server = new StubGithubServer(Fixtures.read("fixtures/github-search-page.json"));
+        parser = new GithubSearchResponseParser();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        var requestFactory = switch (transport) {
+            case "simple" -> ClientHttpRequestFactoryBuilder.simple().build();
+            case "jdk" -> ClientHttpRequestFactoryBuilder.jdk()
+                    .withHttpClientCustomizer(client -> client
+                            .version(HttpClient.Version.HTTP_2)
+                            .executor(Executors.newVirtualThreadPerTaskExecutor()))
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown transport: " + transport);
+        };
+
+        var builder = RestClient.builder()
+                .requestFactory(requestFactory)
+                .baseUrl(server.baseUrl());
+        if (gzip) {
+            builder.requestInterceptor(new GithubTransportInterceptor());
+        } else {
+            builder.defaultHeader("Accept-Encoding", "identity");
+        }
+        restClient = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.close();
+        server.close();
+    }
+
+    @Benchmark
+    public List<GithubSearchResponse> fanOut() {
+        List<CompletableFuture<GithubSearchResponse>> futures = new ArrayList<>(pages);
+        for (int page = 1; page <= pages; page++) {
+            int current = page;
+            futures.add(CompletableFuture.supplyAsync(() -> fetch(current), executor));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private GithubSearchResponse fetch(int page) {
+        return restClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/search/repositories").queryParam("page", page).build())
+                .exchange((request, response) -> {
+                    try {
+                        return parser.parse(response.getBody());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,115 @@
+package sergio.task.githubrepository.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+import sergio.task.githubrepository.service.PopularityCalculator;
+import sergio.task.githubrepository.service.PopularityService;
+import sergio.task.githubrepository.service.RankingAccumulator;
+import sergio.task.githubrepository.service.TopKCollector;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Scoring and aggregation hot path of PopularityService for result sets from one page to a deep crawl
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopularityScoringBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_RESULTS = 500;
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int size;
+
+    private List<GithubRepositoryDto> repos;
+    private PopularityCalculator calculator;
+    private int[] stars;
+    private int[] forks;
+    private long[] updatedEpochDays;
+    private double[] scores;
+
+    @Setup
+    public void setUp() {
+        repos = SyntheticRepositories.generate(size, 42);
+        calculator = new PopularityCalculator(SyntheticRepositories.SCORING, Clock.systemUTC());
+
+        stars = new int[size];
+        forks = new int[size];
+        updatedEpochDays = new long[size];
+        scores = new double[size];
+        for (int i = 0; i < size; i++) {
+            stars[i] = repos.get(i).stars();
+            forks[i] = repos.get(i).forks();
+            updatedEpochDays[i] = repos.get(i).updatedAt().toLocalDate().toEpochDay();
+        }
+    }
+
+    @Benchmark
+    public void scoreOnly(Blackhole blackhole) {
+        for (var repo : repos) {
+            blackhole.consume(calculator.calculateScore(repo));
+        }
+    }
+
+    @Benchmark
+    public double[] scoreBatchColumns() {
+        calculator.calculateScores(stars, forks, updatedEpochDays, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public double[] scoreBatchFromDtos() {
+        return calculator.calculateScores(repos);
+    }
+
+    // Original pipeline: map everything, then sort the whole list
+    @Benchmark
+    public List<RepositoryScoreResponse> mapAndFullSort() {
+        return repos.stream()
+                .map(this::toResponse)
+                .sorted(PopularityService.RANKING_ORDER.reversed())
+                .toList();
+    }
+
+    @Benchmark
+    public List<RepositoryScoreResponse> mapAndTopK() {
+        var collector = new TopKCollector<>(MAX_RESULTS, PopularityService.RANKING_ORDER);
+        for (var repo : repos) {
+            collector.offer(toResponse(repo));
+        }
+        return collector.toSortedList();
+    }
+
+    // Current pipeline: page by page merges into the lock-free accumulator
+    @Benchmark
+    public List<RepositoryScoreResponse> pagedAccumulator() {
+        var accumulator = new RankingAccumulator<>(MAX_RESULTS, PopularityService.RANKING_ORDER);
+        for (int from = 0; from < repos.size(); from += PAGE_SIZE) {
+            var page = repos.subList(from, Math.min(from + PAGE_SIZE, repos.size()));
+            accumulator.merge(page.stream().map(this::toResponse).toList());
+        }
+        return accumulator.snapshot().items();
+    }
+
+    private RepositoryScoreResponse toResponse(GithubRepositoryDto repo) {
+        return new RepositoryScoreResponse(repo.fullName(), repo.stars(), repo.forks(), repo.language(),
+                calculator.calculateScore(repo), repo.url());
+    }
+}
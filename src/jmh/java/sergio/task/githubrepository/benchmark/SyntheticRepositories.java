@@ -0,0 +1,34 @@
+package sergio.task.githubrepository.benchmark;
+
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+import sergio.task.githubrepository.service.ScoringProperties;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Deterministic data sets shaped like GitHub search results (long-tailed stars, forks a fraction of stars)
+final class SyntheticRepositories {
+
+    static final ScoringProperties SCORING = new ScoringProperties(1.0, 1.5,
+            new ScoringProperties.Freshness(3, 14, 365, 1.5, 1.2, 0.5, 1.0));
+
+    private SyntheticRepositories() {
+    }
+
+    static List<GithubRepositoryDto> generate(int size, long seed) {
+        var random = new SplittableRandom(seed);
+        var now = LocalDateTime.now();
+        List<GithubRepositoryDto> repos = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            int stars = (int) Math.min(Integer.MAX_VALUE, Math.round(Math.pow(10, random.nextDouble(0, 5.5))));
+            int forks = (int) (stars * random.nextDouble(0.01, 0.4));
+            var updatedAt = now.minusDays(random.nextInt(0, 800)).minusMinutes(random.nextInt(0, 1440));
+            repos.add(new GithubRepositoryDto("repo-" + i, "owner-" + (i % 997) + "/repo-" + i,
+                    stars, forks, updatedAt, "Java", "https://github.com/owner-" + (i % 997) + "/repo-" + i));
+        }
+        return repos;
+    }
+}
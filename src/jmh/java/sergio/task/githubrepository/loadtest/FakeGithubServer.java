@@ -0,0 +1,361 @@
+package sergio.task.githubrepository.loadtest;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+// Embedded stand-in for GitHub's /search/repositories, for load tests:
+// - every query has its own deterministic data set (long-tailed stars, created after the queried date or within the
+//   queried created:from..to range), sorted by stars and paginated like GitHub, with only the first 1000 results
+//   reachable
+// - items carry the bulk of the real ones (owner, ~30 url fields), so the client parses realistic payloads
+// - latency follows a log-normal distribution given by its median and p99, some responses fail on purpose
+// - a per-window budget is reported in X-RateLimit-* headers and enforced with 403s, 304s are free as on GitHub
+// - ETag / If-None-Match and gzip are honoured
+public final class FakeGithubServer implements AutoCloseable {
+
+    static {
+        // Without it a small body written after the headers waits on Nagle + delayed ACK, ~40 ms per call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static final int MAX_REACHABLE_RESULTS = 1000;
+    private static final Pattern CREATED = Pattern.compile("created:>(\\S+)");
+    private static final Pattern CREATED_RANGE = Pattern.compile("created:(\\S+Z)\\.\\.(\\S+Z)");
+    private static final Pattern LANGUAGE = Pattern.compile("language:(\\S+)");
+    private static final String[] URL_FIELDS = {
+            "forks_url", "keys_url", "collaborators_url", "teams_url", "hooks_url", "issue_events_url", "events_url",
+            "assignees_url", "branches_url", "tags_url", "blobs_url", "git_tags_url", "git_refs_url", "trees_url",
+            "statuses_url", "languages_url", "stargazers_url", "contributors_url", "subscribers_url",
+            "subscription_url", "commits_url", "git_commits_url", "comments_url", "issue_comment_url",
+            "contents_url", "compare_url", "merges_url", "archive_url", "downloads_url", "issues_url", "pulls_url",
+            "milestones_url", "notifications_url", "labels_url", "releases_url", "deployments_url"
+    };
+
+    public record Options(
+            Duration medianLatency,
+            Duration p99Latency,
+            double errorRate,
+            int rateLimit,
+            Duration rateWindow,
+            int datasetSize,
+            long seed
+    ) {
+        public static Options defaults() {
+            return new Options(Duration.ofMillis(80), Duration.ofMillis(400), 0.0, 5_000, Duration.ofMinutes(1),
+                    20_000, 42);
+        }
+
+        public Options withLatency(Duration median, Duration p99) {
+            return new Options(median, p99, errorRate, rateLimit, rateWindow, datasetSize, seed);
+        }
+
+        public Options withErrorRate(double errorRate) {
+            return new Options(medianLatency, p99Latency, errorRate, rateLimit, rateWindow, datasetSize, seed);
+        }
+
+        public Options withRateLimit(int rateLimit, Duration rateWindow) {
+            return new Options(medianLatency, p99Latency, errorRate, rateLimit, rateWindow, datasetSize, seed);
+        }
+
+        public Options withDatasetSize(int datasetSize) {
+            return new Options(medianLatency, p99Latency, errorRate, rateLimit, rateWindow, datasetSize, seed);
+        }
+    }
+
+    public record Stats(long requests, long notModified, long rateLimited, long failed) {
+    }
+
+    private final Options options;
+    private final HttpServer server;
+    private final Cache<String, Page> pages = Caffeine.newBuilder().maximumSize(5_000).build();
+    // log-normal: median = e^mu, p99 = e^(mu + 2.326 sigma)
+    private final double latencyMu;
+    private final double latencySigma;
+
+    private final Object rateLock = new Object();
+    private long windowResetMillis;
+    private int windowRemaining;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public FakeGithubServer(Options options) {
+        this.options = options;
+        this.latencyMu = Math.log(Math.max(1, options.medianLatency().toNanos()));
+        this.latencySigma = options.p99Latency().compareTo(options.medianLatency()) > 0
+                ? Math.log((double) options.p99Latency().toNanos() / options.medianLatency().toNanos()) / 2.326
+                : 0;
+        this.windowResetMillis = System.currentTimeMillis() + options.rateWindow().toMillis();
+        this.windowRemaining = options.rateLimit();
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext("/search/repositories", this::handle);
+        // Platform threads: on the application's virtual thread carriers, pinned calls there would stall the stand-in
+        // too and its latency would no longer be the configured one
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public Stats stats() {
+        return new Stats(requests.get(), notModified.get(), rateLimited.get(), failed.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            sleepLatency();
+
+            var params = queryParams(exchange.getRequestURI().getRawQuery());
+            var query = params.getOrDefault("q", "");
+            int page = Integer.parseInt(params.getOrDefault("page", "1"));
+            int perPage = Math.min(100, Integer.parseInt(params.getOrDefault("per_page", "30")));
+
+            if (options.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < options.errorRate()) {
+                failed.incrementAndGet();
+                send(exchange, 502, json("{\"message\":\"Server Error\"}"), false);
+                return;
+            }
+            if ((long) page * perPage > MAX_REACHABLE_RESULTS + perPage - 1) {
+                send(exchange, 422, json("{\"message\":\"Only the first 1000 search results are available\"}"), false);
+                return;
+            }
+
+            var body = pages.get(query + "|" + page + "|" + perPage, key -> renderPage(query, page, perPage));
+            exchange.getResponseHeaders().add("ETag", body.etag());
+
+            // Conditional requests answered with 304 don't count against the budget
+            if (body.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                addRateLimitHeaders(exchange, peekRemaining());
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            int remaining = consumeBudget();
+            if (remaining < 0) {
+                rateLimited.incrementAndGet();
+                addRateLimitHeaders(exchange, 0);
+                send(exchange, 403, json("{\"message\":\"API rate limit exceeded\"}"), false);
+                return;
+            }
+            addRateLimitHeaders(exchange, remaining);
+
+            var acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            send(exchange, 200, gzip ? body.gzipped() : body.plain(), gzip);
+        }
+    }
+
+    private void sleepLatency() {
+        double nanos = Math.exp(latencyMu + latencySigma * ThreadLocalRandom.current().nextGaussian());
+        try {
+            Thread.sleep(Duration.ofNanos((long) nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns what is left after this call, or -1 when the window's budget is exhausted
+    private int consumeBudget() {
+        synchronized (rateLock) {
+            rollWindow();
+            if (windowRemaining == 0) {
+                return -1;
+            }
+            return --windowRemaining;
+        }
+    }
+
+    private int peekRemaining() {
+        synchronized (rateLock) {
+            rollWindow();
+            return windowRemaining;
+        }
+    }
+
+    private void rollWindow() {
+        long now = System.currentTimeMillis();
+        if (now >= windowResetMillis) {
+            windowResetMillis = now + options.rateWindow().toMillis();
+            windowRemaining = options.rateLimit();
+        }
+    }
+
+    private void addRateLimitHeaders(HttpExchange exchange, int remaining) {
+        long resetEpochSeconds;
+        synchronized (rateLock) {
+            resetEpochSeconds = (windowResetMillis + 999) / 1000;
+        }
+        var headers = exchange.getResponseHeaders();
+        headers.add("X-RateLimit-Limit", String.valueOf(options.rateLimit()));
+        headers.add("X-RateLimit-Remaining", String.valueOf(Math.max(0, remaining)));
+        headers.add("X-RateLimit-Reset", String.valueOf(resetEpochSeconds));
+        headers.add("X-RateLimit-Resource", "search");
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body, boolean gzip) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        if (gzip) {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private Page renderPage(String query, int page, int perPage) {
+        var language = matchOrDefault(LANGUAGE, query, "Java");
+        LocalDateTime since;
+        long spanSeconds;
+        int total;
+        var range = CREATED_RANGE.matcher(query);
+        if (range.find()) {
+            // Deep crawl shards: data set-size repositories per year, spread over the range
+            since = LocalDateTime.ofInstant(Instant.parse(range.group(1)), ZoneOffset.UTC);
+            spanSeconds = Math.max(1, Duration.between(since,
+                    LocalDateTime.ofInstant(Instant.parse(range.group(2)), ZoneOffset.UTC)).toSeconds() + 1);
+            total = (int) Math.min(Integer.MAX_VALUE,
+                    (long) options.datasetSize() * spanSeconds / Duration.ofDays(365).toSeconds());
+        } else {
+            var createdAfter = matchOrDefault(CREATED, query, "2020-01-01");
+            since = LocalDate.parse(createdAfter).atStartOfDay().plusDays(1);
+            spanSeconds = Math.max(1, Duration.between(since, LocalDateTime.now(ZoneOffset.UTC)).toDays()) * 86_400;
+            total = options.datasetSize();
+        }
+
+        var out = new StringBuilder(perPage * 2_500);
+        out.append("{\"total_count\":").append(total).append(",\"incomplete_results\":false,\"items\":[");
+        int first = (page - 1) * perPage;
+        int last = Math.min(Math.min(total, MAX_REACHABLE_RESULTS), first + perPage);
+        for (int rank = first; rank < last; rank++) {
+            if (rank > first) {
+                out.append(',');
+            }
+            appendItem(out, query, language, rank, since, spanSeconds);
+        }
+        out.append("]}");
+
+        byte[] plain = out.toString().getBytes(StandardCharsets.UTF_8);
+        var crc = new CRC32();
+        crc.update(plain);
+        return new Page(plain, gzip(plain), "\"" + Long.toHexString(crc.getValue()) + "\"");
+    }
+
+    // Deterministic per (query, rank): the same page is identical across calls, so ETags stay valid
+    private void appendItem(StringBuilder out, String query, String language, int rank, LocalDateTime since,
+                            long spanSeconds) {
+        var random = new SplittableRandom(options.seed() ^ query.hashCode() * 31L ^ rank);
+        // Sorted by stars, with a Zipf-like long tail
+        int stars = (int) (250_000 * Math.pow(rank + 1, -0.9));
+        int forks = (int) (stars * random.nextDouble(0.01, 0.4));
+        var now = LocalDateTime.now(ZoneOffset.UTC);
+        var createdAt = since.plusSeconds(random.nextLong(0, spanSeconds));
+        var updatedAt = createdAt.plusDays(random.nextLong(0, spanSeconds / 86_400 + 1));
+        if (updatedAt.isAfter(now)) {
+            updatedAt = now.minusHours(random.nextInt(1, 72));
+        }
+        var owner = "owner-" + (rank % 997);
+        var name = "repo-" + Integer.toHexString(query.hashCode()) + "-" + rank;
+        var fullName = owner + "/" + name;
+        var apiUrl = "https://api.github.com/repos/" + fullName;
+
+        out.append("{\"id\":").append(rank + 1)
+                .append(",\"name\":\"").append(name)
+                .append("\",\"full_name\":\"").append(fullName)
+                .append("\",\"private\":false,\"owner\":{\"login\":\"").append(owner)
+                .append("\",\"id\":").append(rank % 997)
+                .append(",\"type\":\"User\",\"site_admin\":false,\"avatar_url\":\"https://avatars.githubusercontent.com/u/")
+                .append(rank % 997).append("\"},\"html_url\":\"https://github.com/").append(fullName)
+                .append("\",\"description\":\"Synthetic repository ").append(rank)
+                .append(" for load tests\",\"fork\":false,\"url\":\"").append(apiUrl).append('"');
+        for (var field : URL_FIELDS) {
+            out.append(",\"").append(field).append("\":\"").append(apiUrl).append('/').append(field, 0, field.length() - 4)
+                    .append('"');
+        }
+        out.append(",\"created_at\":\"").append(createdAt.toInstant(ZoneOffset.UTC))
+                .append("\",\"updated_at\":\"").append(updatedAt.toInstant(ZoneOffset.UTC))
+                .append("\",\"pushed_at\":\"").append(updatedAt.toInstant(ZoneOffset.UTC))
+                .append("\",\"size\":").append(random.nextInt(10, 500_000))
+                .append(",\"stargazers_count\":").append(stars)
+                .append(",\"watchers_count\":").append(stars)
+                .append(",\"language\":\"").append(language)
+                .append("\",\"forks_count\":").append(forks)
+                .append(",\"open_issues_count\":").append(random.nextInt(0, 300))
+                .append(",\"topics\":[\"load-test\",\"").append(language.toLowerCase())
+                .append("\"],\"license\":{\"key\":\"mit\",\"name\":\"MIT License\",\"spdx_id\":\"MIT\"}")
+                .append(",\"default_branch\":\"main\",\"score\":1.0}");
+    }
+
+    private static String matchOrDefault(Pattern pattern, String query, String defaultValue) {
+        var matcher = pattern.matcher(query);
+        return matcher.find() ? matcher.group(1) : defaultValue;
+    }
+
+    private static Map<String, String> queryParams(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (var pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static byte[] json(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] value) {
+        var out = new ByteArrayOutputStream(value.length / 4);
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private record Page(byte[] plain, byte[] gzipped, String etag) {
+    }
+}
@@ -0,0 +1,293 @@
+package sergio.task.githubrepository.loadtest;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import sergio.task.githubrepository.GithubRepositoryApplication;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives /v1/repositories/popular of the real application, wired to FakeGithubServer, at a fixed request rate and
+// reports latency percentiles, throughput and allocation. Open loop: requests start on schedule whether or not the
+// previous ones finished, and latency is measured from the scheduled start, so a stall shows up in the percentiles
+// instead of silently lowering the rate. Exits with 1 when a --max-* / --min-* threshold is not met.
+//
+//   ./mvnw -Pbenchmark test-compile exec:exec@load-test "-Dloadtest.args=--rps=200 --duration=30s --max-p99=250ms"
+public final class LoadTestRunner {
+
+    private static final DateTimeFormatter SINCE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = parse(args);
+        int rps = Integer.parseInt(options.getOrDefault("rps", "100"));
+        var duration = duration(options.getOrDefault("duration", "30s"));
+        var warmup = duration(options.getOrDefault("warmup", "10s"));
+
+        var github = FakeGithubServer.Options.defaults()
+                .withLatency(duration(options.getOrDefault("github-latency-p50", "80ms")),
+                        duration(options.getOrDefault("github-latency-p99", "400ms")))
+                .withErrorRate(Double.parseDouble(options.getOrDefault("github-error-rate", "0")))
+                .withRateLimit(Integer.parseInt(options.getOrDefault("github-rate-limit", "5000")), Duration.ofMinutes(1))
+                .withDatasetSize(Integer.parseInt(options.getOrDefault("dataset-size", "20000")));
+
+        try (var fakeGithub = new FakeGithubServer(github);
+             var application = startApplication(options, fakeGithub)) {
+            var port = application.getEnvironment().getProperty("local.server.port");
+            var targets = targets("http://127.0.0.1:" + port + "/v1/repositories/popular", options);
+            var client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            System.out.printf("Warming up for %s at %d req/s...%n", warmup, rps);
+            drive(client, targets, rps, warmup);
+
+            var githubBefore = fakeGithub.stats();
+            System.out.printf("Measuring for %s at %d req/s over %d distinct queries...%n", duration, rps, targets.size());
+            var result = drive(client, targets, rps, duration);
+            var githubAfter = fakeGithub.stats();
+
+            report(result, rps, githubBefore, githubAfter);
+            System.exit(checkThresholds(result, rps, options) ? 0 : 1);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(Map<String, String> options,
+                                                                   FakeGithubServer fakeGithub) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("app.github.api-url", fakeGithub.baseUrl());
+        properties.put("app.github.token", "");
+        properties.put("app.github.rate-limit.initial-limit", options.getOrDefault("github-rate-limit", "5000"));
+        properties.put("app.precompute.enabled", "false");
+        properties.put("app.cache.disk.enabled", "false");
+        if (!Boolean.parseBoolean(options.getOrDefault("cache", "true"))) {
+            // Every request goes through the GitHub fan-out
+            properties.put("spring.cache.type", "none");
+        }
+        // Anything else is passed to the application as is, e.g. --app.popularity.latency-budget=2s
+        options.forEach((key, value) -> {
+            if (key.startsWith("app.") || key.startsWith("spring.") || key.startsWith("server.")) {
+                properties.put(key, value);
+            }
+        });
+
+        // As command line arguments, default properties would lose against application.yml
+        var args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(GithubRepositoryApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .run(args);
+    }
+
+    // Every language for every date of the spread: the number of distinct queries drives the cache hit ratio
+    private static List<URI> targets(String endpoint, Map<String, String> options) {
+        var languages = options.getOrDefault("languages", "java,python,javascript,go,rust").split(",");
+        int dateSpread = Integer.parseInt(options.getOrDefault("date-spread", "30"));
+        var limit = options.get("limit");
+        var today = LocalDate.now();
+
+        List<URI> targets = new ArrayList<>();
+        for (int day = 0; day < dateSpread; day++) {
+            var since = today.minusDays(365 + day).format(SINCE_FORMAT);
+            for (var language : languages) {
+                targets.add(URI.create(endpoint + "?since=" + since + "&language=" + language.trim()
+                        + (limit != null ? "&limit=" + limit : "")));
+            }
+        }
+        return targets;
+    }
+
+    private static Result drive(HttpClient client, List<URI> targets, int rps, Duration duration) {
+        int total = (int) (rps * duration.toMillis() / 1000);
+        long intervalNanos = 1_000_000_000L / rps;
+        var latencies = new long[total];
+        Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        var random = new SplittableRandom(7);
+
+        long allocatedBefore = allocatedBytes();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMillis();
+        long start = System.nanoTime();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total; i++) {
+                long scheduledAt = start + i * intervalNanos;
+                long wait;
+                while ((wait = scheduledAt - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                int index = i;
+                var request = HttpRequest.newBuilder(targets.get(random.nextInt(targets.size())))
+                        .timeout(Duration.ofSeconds(30))
+                        .GET()
+                        .build();
+                executor.execute(() -> {
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception ex) {
+                        status = -1;
+                    }
+                    latencies[index] = System.nanoTime() - scheduledAt;
+                    statuses.computeIfAbsent(status, key -> new AtomicLong()).incrementAndGet();
+                });
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        Map<Integer, Long> statusCounts = new HashMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status, count.get()));
+        return new Result(latencies, statusCounts, elapsedNanos, allocatedBytes() - allocatedBefore,
+                gcCount() - gcCountBefore, gcTimeMillis() - gcTimeBefore);
+    }
+
+    private static void report(Result result, int targetRps, FakeGithubServer.Stats githubBefore,
+                               FakeGithubServer.Stats githubAfter) {
+        var sorted = result.latencies().clone();
+        Arrays.sort(sorted);
+        long githubCalls = githubAfter.requests() - githubBefore.requests();
+
+        System.out.println();
+        System.out.printf("Requests      %d in %.1f s, statuses %s%n", sorted.length, result.elapsedNanos() / 1e9,
+                result.statuses());
+        System.out.printf("Throughput    %.1f req/s (target %d)%n", result.throughput(), targetRps);
+        System.out.printf("Latency       p50 %.1f ms | p90 %.1f ms | p99 %.1f ms | p99.9 %.1f ms | max %.1f ms%n",
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.90)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(sorted[sorted.length - 1]));
+        // Load generator included, it runs in the same JVM
+        System.out.printf("Allocation    %.1f MB total, %.1f KB/request | GC %d collections, %d ms%n",
+                result.allocatedBytes() / 1e6, result.allocatedBytes() / 1e3 / sorted.length, result.gcCount(),
+                result.gcTimeMillis());
+        System.out.printf("GitHub calls  %d (%.2f per request), 304 %d, rate limited %d, failed %d%n",
+                githubCalls, (double) githubCalls / sorted.length,
+                githubAfter.notModified() - githubBefore.notModified(),
+                githubAfter.rateLimited() - githubBefore.rateLimited(),
+                githubAfter.failed() - githubBefore.failed());
+    }
+
+    private static boolean checkThresholds(Result result, int targetRps, Map<String, String> options) {
+        var sorted = result.latencies().clone();
+        Arrays.sort(sorted);
+        boolean passed = true;
+
+        if (options.containsKey("max-p99")) {
+            long maxP99 = duration(options.get("max-p99")).toNanos();
+            long p99 = percentile(sorted, 0.99);
+            if (p99 > maxP99) {
+                System.out.printf("FAILED: p99 %.1f ms is above %s%n", millis(p99), options.get("max-p99"));
+                passed = false;
+            }
+        }
+        if (options.containsKey("max-error-rate")) {
+            double maxErrorRate = Double.parseDouble(options.get("max-error-rate"));
+            if (result.errorRate() > maxErrorRate) {
+                System.out.printf("FAILED: error rate %.4f is above %s%n", result.errorRate(), maxErrorRate);
+                passed = false;
+            }
+        }
+        if (options.containsKey("min-throughput-ratio")) {
+            double minRatio = Double.parseDouble(options.get("min-throughput-ratio"));
+            if (result.throughput() < targetRps * minRatio) {
+                System.out.printf("FAILED: throughput %.1f req/s is below %.0f%% of the target%n",
+                        result.throughput(), minRatio * 100);
+                passed = false;
+            }
+        }
+        return passed;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.clamp(index, 0, sorted.length - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            return threads.getTotalThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTimeMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    // --rps=200 --duration=30s --app.popularity.latency-budget=2s
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (var arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    // 30s, 250ms, 2m
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Unsupported duration: " + value);
+        };
+    }
+
+    private record Result(long[] latencies, Map<Integer, Long> statuses, long elapsedNanos, long allocatedBytes,
+                          long gcCount, long gcTimeMillis) {
+
+        double throughput() {
+            return latencies.length / (elapsedNanos / 1e9);
+        }
+
+        double errorRate() {
+            long errors = statuses.entrySet().stream()
+                    .filter(entry -> entry.getKey() < 200 || entry.getKey() >= 400)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            return (double) errors / latencies.length;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package sergio.task.githubrepository.api;
 
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.method.ParameterValidationResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
@@ -17,6 +19,7 @@ import org.springframework.web.servlet.resource.NoResourceFoundException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RestControllerAdvice
@@ -26,7 +29,9 @@ public class GlobalExceptionHandler {
             MethodArgumentTypeMismatchException.class,
             MissingServletRequestParameterException.class,
             HandlerMethodValidationException.class,
+            ConstraintViolationException.class,
             MethodArgumentNotValidException.class,
+            HttpMessageNotReadableException.class,
             IllegalArgumentException.class
     })
     public ProblemDetail handleValidationErrors(Exception ex) {
@@ -62,6 +67,21 @@ public class GlobalExceptionHandler {
                 detail = String.join(", ", errorMessages);
             }
 
+            // Raised instead of HandlerMethodValidationException by the @Validated controller proxy
+            case ConstraintViolationException violationEx -> detail = violationEx.getConstraintViolations().stream()
+                    .map(violation -> {
+                        var path = violation.getPropertyPath().toString();
+                        return "%s: %s".formatted(path.substring(path.lastIndexOf('.') + 1), violation.getMessage());
+                    })
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+
+            case MethodArgumentNotValidException bodyEx -> detail = bodyEx.getBindingResult().getFieldErrors().stream()
+                    .map(error -> "%s: %s".formatted(error.getField(), error.getDefaultMessage()))
+                    .collect(Collectors.joining(", "));
+
+            case HttpMessageNotReadableException unreadableEx -> detail = "Malformed request body.";
+
             case IllegalArgumentException iae -> detail = iae.getMessage();
 
             default -> {
@@ -92,6 +112,14 @@ public class GlobalExceptionHandler {
                 "Failed to connect to GitHub. Please check your internet connection.");
     }
 
+    @ExceptionHandler(SnapshotExpiredException.class)
+    public ProblemDetail handleSnapshotExpired(SnapshotExpiredException ex) {
+        log.debug("Cursor on an expired snapshot: {}", ex.getMessage());
+
+        return buildProblemDetail(HttpStatus.GONE, "Snapshot Expired",
+                "The ranking this cursor belongs to has changed. Please start again from the first page.");
+    }
+
     @ExceptionHandler(Exception.class)
     public ProblemDetail handleUnexpectedErrors(Exception ex) {
         log.error("UNEXPECTED INTERNAL ERROR: ", ex);
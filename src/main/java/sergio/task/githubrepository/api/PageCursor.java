@@ -0,0 +1,47 @@
+package sergio.task.githubrepository.api;
+
+import sergio.task.githubrepository.service.RankingQuery;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+// Position in a paginated ranking: the snapshot version, the request it pages through (filters, sort and limit, as a
+// hash), where the next page starts and its size. Handed out as 20 bytes in url-safe base64, clients are not meant
+// to read or build it
+record PageCursor(long version, int scope, int offset, int size) {
+
+    private static final int BYTES = Long.BYTES + 3 * Integer.BYTES;
+
+    String encode() {
+        var buffer = ByteBuffer.allocate(BYTES).putLong(version).putInt(scope).putInt(offset).putInt(size);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    static PageCursor decode(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            bytes = null;
+        }
+        if (bytes == null || bytes.length != BYTES) {
+            throw new IllegalArgumentException("Invalid cursor: '%s'.".formatted(cursor));
+        }
+        var buffer = ByteBuffer.wrap(bytes);
+        var decoded = new PageCursor(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        if (decoded.offset < 0 || decoded.size <= 0) {
+            throw new IllegalArgumentException("Invalid cursor: '%s'.".formatted(cursor));
+        }
+        return decoded;
+    }
+
+    // Same on every instance (unlike the record's hashCode, which goes through the enum's identity hash)
+    static int scope(RankingQuery query, Integer limit) {
+        return "%d|%d|%s|%s|%s".formatted(query.minStars(), query.minForks(), query.namePrefix(), query.sort().name(),
+                limit).hashCode();
+    }
+
+    static String version(long version) {
+        return Long.toHexString(version);
+    }
+}
@@ -2,21 +2,47 @@ package sergio.task.githubrepository.api;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import sergio.task.githubrepository.model.PopularRepositoriesBatchRequest;
+import sergio.task.githubrepository.model.PopularRepositoriesBatchResponse;
 import sergio.task.githubrepository.model.PopularRepositoriesResponse;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+import sergio.task.githubrepository.service.PopularityBatchService;
+import sergio.task.githubrepository.service.PopularityCacheKey;
+import sergio.task.githubrepository.service.PopularityRanking;
 import sergio.task.githubrepository.service.PopularityService;
+import sergio.task.githubrepository.service.RankingQueries;
+import sergio.task.githubrepository.service.RankingQuery;
+import sergio.task.githubrepository.service.RankingRescorer;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
 
+@Slf4j
 @RestController
 @RequestMapping("/v1/repositories")
 @RequiredArgsConstructor
@@ -24,13 +50,22 @@ import java.time.LocalDate;
 @Tag(name = "GitHub Scorer", description = "Calculates the popularity of the github repositories")
 public class PopularityController {
 
+    private static final long STREAM_TIMEOUT_MILLIS = 60_000;
+    private static final int DEFAULT_PAGE_SIZE = 20;
     private final PopularityService popularityService;
+    private final PopularityBatchService popularityBatchService;
+    private final PopularityResponseCache responseCache;
+    private final RankingRescorer rescorer;
+    private final RankingSnapshots snapshots;
+    private final RankingQueries queries;
 
     @GetMapping("/popular")
     @Operation(summary = "Search and score popular GitHub repositories",
             description = "Searches for GitHub repositories created after a specific date and in a given language," +
                     "calculating their popularity based on stars and forks.")
-    public ResponseEntity<PopularRepositoriesResponse> getPopularRepositories(
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = PopularRepositoriesResponse.class)))
+    public ResponseEntity<byte[]> getPopularRepositories(
             @Parameter(description = "Earliest created date dd-MM-yyy)", example = "01-01-2023", required = true)
             @RequestParam("since")
             @DateTimeFormat(pattern = "dd-MM-yyyy")
@@ -39,15 +74,239 @@ public class PopularityController {
             @Parameter(description = "Programming language", example = "java", required = true)
             @RequestParam("language")
             @NotBlank
-            String language
+            String language,
+
+            @Parameter(description = "Maximum number of repositories to return, best first", example = "20")
+            @RequestParam(value = "limit", required = false)
+            @Positive
+            Integer limit,
+
+            @Parameter(description = "Only repositories with at least this many stars", example = "100")
+            @RequestParam(value = "minStars", required = false)
+            @PositiveOrZero
+            Integer minStars,
+
+            @Parameter(description = "Only repositories with at least this many forks", example = "10")
+            @RequestParam(value = "minForks", required = false)
+            @PositiveOrZero
+            Integer minForks,
+
+            @Parameter(description = "Only repositories whose full name (owner/repo) starts with this, ignoring case",
+                    example = "spring-projects/")
+            @RequestParam(value = "namePrefix", required = false)
+            String namePrefix,
+
+            @Parameter(description = "Order of the results: score (default), stars or forks, highest first",
+                    example = "stars")
+            @RequestParam(value = "sort", required = false)
+            String sort,
+
+            @Parameter(description = "Page to return, zero-based. Paginates the ranking (up to 'limit')", example = "0")
+            @RequestParam(value = "page", required = false)
+            @PositiveOrZero
+            Integer page,
+
+            @Parameter(description = "Repositories per page, paginates the ranking (up to 'limit')", example = "20")
+            @RequestParam(value = "size", required = false)
+            @Positive
+            Integer size,
+
+            @Parameter(description = "Opaque cursor of the next page, from a previous page. Pages stay on the " +
+                    "ranking snapshot the first page was cut from")
+            @RequestParam(value = "cursor", required = false)
+            String cursor,
+
+            @Parameter(hidden = true)
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding
     ) {
-        var results = popularityService.getPopularRepositories(since.toString(), language);
+        var query = RankingQuery.of(minStars, minForks, namePrefix, sort);
+        if (cursor != null) {
+            return getPage(since, language, query, limit, PageCursor.decode(cursor), acceptEncoding);
+        }
 
-        if (results.isEmpty()) {
+        var ranking = currentRanking(since, language, query);
+        if (ranking.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
+        if (page != null || size != null) {
+            var version = snapshots.retain(PopularityCacheKey.of(since.toString(), language), ranking);
+            int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+            long offset = (long) (page != null ? page : 0) * pageSize;
+            return pageResponse(ranking, version, PageCursor.scope(query, limit), offset, pageSize, limit,
+                    acceptEncoding);
+        }
+
+        // The cached ranking is shared by every limit, each limit has its own encoded body
+        return bodyResponse(responseCache.get(ranking, limit != null ? Math.min(limit, ranking.size()) : ranking.size()),
+                acceptEncoding);
+    }
+
+    // Next page of a snapshot: the ranking it was cut from if still retained, or the current one while unchanged.
+    // The snapshot is a view of the filters, sort and limit of the first page, the cursor only goes with those
+    private ResponseEntity<byte[]> getPage(LocalDate since, String language, RankingQuery query, Integer limit,
+                                           PageCursor cursor, String acceptEncoding) {
+        if (cursor.scope() != PageCursor.scope(query, limit)) {
+            throw new IllegalArgumentException("The cursor belongs to other filters, sort or limit. "
+                    + "Send the same ones as for the first page.");
+        }
+        var key = PopularityCacheKey.of(since.toString(), language);
+        var ranking = snapshots.find(key, cursor.version()).orElseGet(() -> {
+            var current = currentRanking(since, language, query);
+            return snapshots.retain(key, current) == cursor.version() ? current : null;
+        });
+        if (ranking == null) {
+            throw new SnapshotExpiredException(PageCursor.version(cursor.version()));
+        }
+        return pageResponse(ranking, cursor.version(), cursor.scope(), cursor.offset(), cursor.size(), limit,
+                acceptEncoding);
+    }
+
+    // Scored as of today with the current weights, whenever the cached ranking was computed. Filters and other
+    // orders are views of that same cached ranking
+    private PopularityRanking currentRanking(LocalDate since, String language, RankingQuery query) {
+        var ranking = rescorer.current(popularityService.getPopularRepositories(since.toString(), language));
+        return queries.apply(ranking, query);
+    }
+
+    // A view of the ranking from offset, the items are not copied
+    private ResponseEntity<byte[]> pageResponse(PopularityRanking ranking, long version, int scope, long offset,
+                                                int pageSize, Integer limit, String acceptEncoding) {
+        int total = limit != null ? Math.min(limit, ranking.size()) : ranking.size();
+        int from = (int) Math.min(offset, total);
+        int count = Math.min(pageSize, total - from);
+        var nextCursor = from + count < total ? new PageCursor(version, scope, from + count, pageSize).encode() : null;
+        var page = new PopularRepositoriesResponse.Page((int) (offset / pageSize), pageSize,
+                PageCursor.version(version), nextCursor);
+        return bodyResponse(responseCache.get(ranking, from, count, total, page), acceptEncoding);
+    }
+
+    private static ResponseEntity<byte[]> bodyResponse(PopularityResponseCache.EncodedResponse body,
+                                                       String acceptEncoding) {
+        var response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(body.etag())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+        // Spring answers 304 by itself when If-None-Match matches the ETag
+        if (body.hasGzip() && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzipped());
+        }
+        return response.body(body.json());
+    }
+
+    // gzip, or "*", with a q-value above zero. An explicit gzip entry wins over "*", so "gzip;q=0, *" is a refusal
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (var entry : acceptEncoding.split(",")) {
+            var parts = entry.split(";");
+            var coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return quality(parts) > 0;
+            }
+            if (coding.equals("*")) {
+                wildcard = quality(parts) > 0;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            var param = parts[i].trim();
+            if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    // A malformed weight is not a preference for that coding
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    @GetMapping(value = "/popular/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream the popularity ranking while GitHub pages are being fetched",
+            description = "Emits a 'partial' event with the ranking so far every time a page is scored, " +
+                    "followed by a 'complete' event with the final ranking.")
+    public SseEmitter streamPopularRepositories(
+            @Parameter(description = "Earliest created date dd-MM-yyy)", example = "01-01-2023", required = true)
+            @RequestParam("since")
+            @DateTimeFormat(pattern = "dd-MM-yyyy")
+            LocalDate since,
+
+            @Parameter(description = "Programming language", example = "java", required = true)
+            @RequestParam("language")
+            @NotBlank
+            String language,
+
+            @Parameter(description = "Maximum number of repositories per event, best first", example = "20")
+            @RequestParam(value = "limit", required = false)
+            @Positive
+            Integer limit
+    ) {
+        var emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+
+        Thread.ofVirtual().name("popular-stream").start(() -> {
+            try {
+                var ranking = rescorer.current(popularityService.streamPopularRepositories(since.toString(), language,
+                        partial -> sendEvent(emitter, "partial", partial, true, limit)));
+                sendEvent(emitter, "complete", ranking.items(), ranking.partial(), limit);
+                emitter.complete();
+            } catch (Exception ex) {
+                emitter.completeWithError(ex);
+            }
+        });
+
+        return emitter;
+    }
 
-        var response = new PopularRepositoriesResponse(results.size(), results);
-        return ResponseEntity.ok(response);
+    @PostMapping("/popular/batch")
+    @Operation(summary = "Search and score popular GitHub repositories for several languages and dates at once",
+            description = "Rankings already in the cache are returned right away, the rest are loaded concurrently. " +
+                    "Results follow the order of the queries, a failed query doesn't fail the others.")
+    public ResponseEntity<PopularRepositoriesBatchResponse> getPopularRepositoriesBatch(
+            @RequestBody @Valid PopularRepositoriesBatchRequest request
+    ) {
+        var keys = request.queries().stream()
+                .map(query -> PopularityCacheKey.of(query.since().toString(), query.language()))
+                .toList();
+        var limit = request.limit();
+
+        var results = popularityBatchService.getPopularRepositories(keys).stream()
+                .map(result -> {
+                    var since = LocalDate.parse(result.key().createdAfter());
+                    if (result.ranking() == null) {
+                        return new PopularRepositoriesBatchResponse.Result(since, result.key().language(), 0, List.of(),
+                                false, false, result.error());
+                    }
+                    var ranking = rescorer.current(result.ranking());
+                    var items = ranking.items();
+                    if (limit != null && limit < items.size()) {
+                        items = items.subList(0, limit);
+                    }
+                    return new PopularRepositoriesBatchResponse.Result(since, result.key().language(), items.size(),
+                            items, ranking.partial(), result.cached(), null);
+                })
+                .toList();
+
+        return ResponseEntity.ok(new PopularRepositoriesBatchResponse(results.size(), results));
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, List<RepositoryScoreResponse> ranking, boolean partial,
+                           Integer limit) {
+        var items = (limit != null && limit < ranking.size()) ? ranking.subList(0, limit) : ranking;
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(name)
+                    .data(new PopularRepositoriesResponse(items.size(), items, partial), MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException ex) {
+            // Client went away: keep going so the fan-out still finishes and warms the cache
+            log.debug("Dropping '{}' event, stream is closed: {}", name, ex.getMessage());
+        }
     }
 }
\ No newline at end of file
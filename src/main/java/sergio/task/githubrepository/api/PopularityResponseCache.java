@@ -0,0 +1,120 @@
+package sergio.task.githubrepository.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import sergio.task.githubrepository.model.PopularRepositoriesResponse;
+import sergio.task.githubrepository.service.PopularityRanking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+// Encoded /popular bodies, as JSON and gzipped JSON, so a cache hit writes ready-made bytes instead of serializing
+// up to max-results records again. Entries are keyed by the version of the ranking (a fingerprint of its content) and
+// the slice (limit, or page). Keys don't reference the ranking: a replaced ranking is not kept alive by its bodies,
+// which age out within max-size, and a refresh that changes nothing reuses the bodies already encoded
+@Component
+public class PopularityResponseCache implements MeterBinder {
+
+    // Below this a gzipped body is hardly smaller and not worth the Content-Encoding
+    private static final int MIN_GZIP_SIZE = 1024;
+    // The ETag only has to tell bodies apart, 128 bits of the digest are plenty
+    private static final int ETAG_BYTES = 16;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Key, EncodedResponse> entries;
+
+    public PopularityResponseCache(ObjectMapper objectMapper,
+                                   @Value("${app.popularity.response-cache.max-size:32MB}") DataSize maxSize,
+                                   @Value("${app.popularity.response-cache.expire-after-access:30m}") Duration expireAfterAccess) {
+        this.objectMapper = objectMapper;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, EncodedResponse response) -> response.weight())
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+    }
+
+    // limit is the number of items actually returned, at most the size of the ranking
+    public EncodedResponse get(PopularityRanking ranking, int limit) {
+        return get(ranking, 0, limit, limit, null);
+    }
+
+    // count items from offset, out of the total the request can page through. The items are a view of the ranking
+    public EncodedResponse get(PopularityRanking ranking, int offset, int count, int total,
+                               PopularRepositoriesResponse.Page page) {
+        return entries.get(new Key(ranking.version(), offset, count, total, page), key -> encode(ranking, key));
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, entries, "popularity-responses");
+    }
+
+    private EncodedResponse encode(PopularityRanking ranking, Key key) {
+        var items = key.count() < ranking.size()
+                ? ranking.items().subList(key.offset(), key.offset() + key.count()) : ranking.items();
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(new PopularRepositoriesResponse(items.size(), items,
+                    ranking.partial(), key.total(), key.page()));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        byte[] gzipped = json.length >= MIN_GZIP_SIZE ? gzip(json) : null;
+        return new EncodedResponse(json, gzipped, etag(json));
+    }
+
+    // Weak: the JSON and gzipped bodies are the same representation, If-None-Match matches either
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "W/\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, ETAG_BYTES)) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] value) {
+        var out = new ByteArrayOutputStream(value.length / 4);
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    public record EncodedResponse(byte[] json, byte[] gzipped, String etag) {
+
+        public boolean hasGzip() {
+            return gzipped != null;
+        }
+
+        private int weight() {
+            return json.length + (gzipped != null ? gzipped.length : 0);
+        }
+    }
+
+    private record Key(long version, int offset, int count, int total, PopularRepositoriesResponse.Page page) {
+    }
+}
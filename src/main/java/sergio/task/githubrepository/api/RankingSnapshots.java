@@ -0,0 +1,51 @@
+package sergio.task.githubrepository.api;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.service.PopularityCacheKey;
+import sergio.task.githubrepository.service.PopularityRanking;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Rankings that pages were cut from, kept for a while after they are refreshed or rescored: a cursor keeps paging
+// through the snapshot it started on instead of skipping or repeating repositories that moved in between.
+// Retained rankings are the cached instances themselves, nothing is copied
+@Component
+public class RankingSnapshots implements MeterBinder {
+
+    private final Cache<Snapshot, PopularityRanking> retained;
+
+    public RankingSnapshots(@Value("${app.popularity.pagination.max-snapshots:256}") long maxSnapshots,
+                            @Value("${app.popularity.pagination.snapshot-ttl:15m}") Duration snapshotTtl) {
+        this.retained = Caffeine.newBuilder()
+                .maximumSize(maxSnapshots)
+                .expireAfterAccess(snapshotTtl)
+                .recordStats()
+                .build();
+    }
+
+    // Version of the ranking, which stays retained at least until snapshot-ttl after its last page was served
+    public long retain(PopularityCacheKey key, PopularityRanking ranking) {
+        long version = ranking.version();
+        retained.put(new Snapshot(key, version), ranking);
+        return version;
+    }
+
+    public Optional<PopularityRanking> find(PopularityCacheKey key, long version) {
+        return Optional.ofNullable(retained.getIfPresent(new Snapshot(key, version)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, retained, "popularity-snapshots");
+    }
+
+    private record Snapshot(PopularityCacheKey key, long version) {
+    }
+}
@@ -0,0 +1,83 @@
+package sergio.task.githubrepository.api;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.service.PopularityCalculator;
+import sergio.task.githubrepository.service.ScoringProperties;
+
+import java.util.stream.DoubleStream;
+
+// Hot reload of app.popularity.scoring: GET /scoring shows the weights in use, POST /scoring with any of the fields
+// replaces them. Cached rankings are not evicted, they are rescored on their next read (RankingRescorer).
+// Not exposed by default: add "scoring" to management.endpoints.web.exposure.include, behind an admin network
+@Slf4j
+@Component
+@Endpoint(id = "scoring")
+@RequiredArgsConstructor
+public class ScoringEndpoint {
+
+    private final PopularityCalculator calculator;
+
+    @ReadOperation
+    public ScoringProperties scoring() {
+        return calculator.scoringProperties();
+    }
+
+    // Fields left out keep their current value
+    @WriteOperation
+    public ScoringProperties update(@Nullable Double starsWeight, @Nullable Double forksWeight,
+                                    @Nullable Integer veryRecentDays, @Nullable Integer recentDays,
+                                    @Nullable Integer oldDays, @Nullable Double boostVeryRecent,
+                                    @Nullable Double boostRecent, @Nullable Double penaltyOld,
+                                    @Nullable Double defaultMultiplier) {
+        var current = calculator.scoringProperties();
+        var freshness = current.freshness();
+        var updated = new ScoringProperties(
+                valueOr(starsWeight, current.starsWeight()),
+                valueOr(forksWeight, current.forksWeight()),
+                new ScoringProperties.Freshness(
+                        valueOr(veryRecentDays, freshness.veryRecentDays()),
+                        valueOr(recentDays, freshness.recentDays()),
+                        valueOr(oldDays, freshness.oldDays()),
+                        valueOr(boostVeryRecent, freshness.boostVeryRecent()),
+                        valueOr(boostRecent, freshness.boostRecent()),
+                        valueOr(penaltyOld, freshness.penaltyOld()),
+                        valueOr(defaultMultiplier, freshness.defaultMultiplier())));
+        validate(updated);
+
+        calculator.updateScoringProperties(updated);
+        log.info("Scoring weights updated from {} to {}", current, updated);
+        return updated;
+    }
+
+    private static void validate(ScoringProperties props) {
+        var freshness = props.freshness();
+        // NaN passes every comparison below, and an infinite weight turns every score into NaN or Infinity
+        if (DoubleStream.of(props.starsWeight(), props.forksWeight(), freshness.boostVeryRecent(),
+                freshness.boostRecent(), freshness.penaltyOld(), freshness.defaultMultiplier())
+                .anyMatch(value -> !Double.isFinite(value))) {
+            throw new InvalidEndpointRequestException("Weights and multipliers must be finite numbers",
+                    "Invalid scoring weights");
+        }
+        if (props.starsWeight() < 0 || props.forksWeight() < 0 || freshness.boostVeryRecent() <= 0
+                || freshness.boostRecent() <= 0 || freshness.penaltyOld() <= 0 || freshness.defaultMultiplier() <= 0) {
+            throw new InvalidEndpointRequestException("Weights must not be negative and multipliers must be positive",
+                    "Invalid scoring weights");
+        }
+        if (freshness.veryRecentDays() < 0 || freshness.veryRecentDays() > freshness.recentDays()
+                || freshness.recentDays() > freshness.oldDays()) {
+            throw new InvalidEndpointRequestException("Expected 0 <= veryRecentDays <= recentDays <= oldDays",
+                    "Invalid freshness days");
+        }
+    }
+
+    private static <T> T valueOr(T value, T current) {
+        return value != null ? value : current;
+    }
+}
@@ -0,0 +1,9 @@
+package sergio.task.githubrepository.api;
+
+// The ranking a cursor was cut from has been replaced and is no longer retained
+public class SnapshotExpiredException extends RuntimeException {
+
+    public SnapshotExpiredException(String version) {
+        super("Snapshot %s is no longer available".formatted(version));
+    }
+}
@@ -0,0 +1,134 @@
+package sergio.task.githubrepository.configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.util.unit.DataSize;
+import sergio.task.githubrepository.service.PopularityCacheKey;
+import sergio.task.githubrepository.service.PopularityRanking;
+import sergio.task.githubrepository.service.RankingDiskStore;
+import sergio.task.githubrepository.service.RedisRankingCache;
+import sergio.task.githubrepository.service.SharedRankingCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class CacheConfig {
+
+    public static final String GITHUB_REPOS_CACHE = "github-repos";
+
+    @Bean
+    public KeyGenerator popularityCacheKeyGenerator() {
+        return (target, method, params) -> PopularityCacheKey.of((String) params[0], (String) params[1]);
+    }
+
+    // Optional persistent second level, so a restarted instance starts with the rankings it already had
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.cache.disk", name = "enabled", havingValue = "true")
+    public RankingDiskStore rankingDiskStore(@Value("${app.cache.disk.directory:./data/cache}") Path directory,
+                                             @Value("${app.cache.disk.ttl:6h}") Duration ttl,
+                                             @Value("${app.cache.disk.compaction-threshold:0.5}") double compactionThreshold,
+                                             Clock clock)
+            throws IOException {
+        return new RankingDiskStore(directory, ttl, compactionThreshold, clock);
+    }
+
+    // Optional tier shared by all the instances, on the Redis-protocol server of spring.data.redis
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.cache.shared", name = "enabled", havingValue = "true")
+    public SharedRankingCache sharedRankingCache(RedisConnectionFactory connectionFactory,
+                                                 RedisMessageListenerContainer sharedRankingListenerContainer,
+                                                 @Value("${app.cache.shared.key-prefix:github-popularity:}") String keyPrefix,
+                                                 @Value("${app.cache.shared.ttl:30m}") Duration ttl,
+                                                 Clock clock) {
+        return new RedisRankingCache(connectionFactory, sharedRankingListenerContainer, keyPrefix, ttl, clock);
+    }
+
+    // Invalidation messages of the shared tier
+    @Bean
+    @ConditionalOnProperty(prefix = "app.cache.shared", name = "enabled", havingValue = "true")
+    public RedisMessageListenerContainer sharedRankingListenerContainer(RedisConnectionFactory connectionFactory) {
+        var container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    // Loads and background refreshes (refreshAfterWrite) run on virtual threads instead of the common ForkJoinPool,
+    // since each one blocks on several GitHub calls.
+    // Async mode: a miss only installs a future under the map lock and the loader runs on the executor, so the
+    // virtual thread that blocks on GitHub doesn't pin its carrier. Spring and the native cache users keep the
+    // synchronous LoadingCache view.
+    // The hard TTL is set per entry instead of through the spec: partial rankings expire after partial-ttl.
+    // The size bound is app.cache.max-weight, the estimated heap of the rankings, unless the spec sets a maximumSize
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> virtualThreadRefreshCustomizer(
+            CacheProperties cacheProperties,
+            @Value("${app.cache.ttl:30m}") Duration ttl,
+            @Value("${app.cache.partial-ttl:1m}") Duration partialTtl,
+            @Value("${app.cache.max-weight:64MB}") DataSize maxWeight) {
+        return cacheManager -> {
+            var spec = cacheProperties.getCaffeine().getSpec();
+            var builder = spec != null ? Caffeine.from(spec) : Caffeine.newBuilder();
+            if (spec == null || !spec.contains("maximumSize")) {
+                builder.maximumWeight(maxWeight.toBytes()).weigher(new RankingWeigher());
+            }
+            cacheManager.setCaffeine(builder
+                    .expireAfter(new RankingExpiry(ttl, partialTtl))
+                    .executor(Executors.newVirtualThreadPerTaskExecutor()));
+            cacheManager.setAsyncCacheMode(true);
+        };
+    }
+
+    static final class RankingWeigher implements Weigher<Object, Object> {
+
+        // Cache key and Caffeine node
+        private static final int ENTRY_OVERHEAD = 128;
+
+        @Override
+        public int weigh(Object key, Object value) {
+            long bytes = value instanceof PopularityRanking ranking ? ranking.estimatedBytes() : 0;
+            return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD + bytes);
+        }
+    }
+
+    static final class RankingExpiry implements Expiry<Object, Object> {
+
+        private final long ttlNanos;
+        private final long partialTtlNanos;
+
+        RankingExpiry(Duration ttl, Duration partialTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.partialTtlNanos = partialTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return value instanceof PopularityRanking ranking && ranking.partial() ? partialTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            // A refresh or a put is a new write
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -2,17 +2,49 @@ package sergio.task.githubrepository.configuration;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
+import sergio.task.githubrepository.external.GithubTransportInterceptor;
+import sergio.task.githubrepository.service.CrawlProperties;
+import sergio.task.githubrepository.service.IncrementalProperties;
+import sergio.task.githubrepository.service.PrecomputeProperties;
 import sergio.task.githubrepository.service.ScoringProperties;
 
-@EnableConfigurationProperties(ScoringProperties.class)
+import java.net.http.HttpClient;
+import java.time.Clock;
+import java.util.concurrent.Executors;
+
+@EnableConfigurationProperties({ScoringProperties.class, PrecomputeProperties.class, CrawlProperties.class,
+        IncrementalProperties.class})
 @Configuration
 public class GithubRepositoryConfig {
 
+    // Day boundaries of the freshness buckets: UTC, like GitHub's timestamps, whatever the host's zone.
+    // The one clock of the application: cache ages, crawl ranges and schedules are all read from it
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+
+    // Transport for the auto-configured RestClient.Builder: the JDK HttpClient keeps connections alive and, over TLS,
+    // negotiates HTTP/2 so the page fan-out is multiplexed on one connection instead of paying a handshake per page.
+    // Connect/read timeouts come from spring.http.client.*, the read timeout bounds every call including its body.
+    // How long idle connections are kept is a JVM-wide system property of the JDK client
+    // (-Djdk.httpclient.keepalive.timeout and .h2, in seconds), set in the JVM options: see the README
+    @Bean
+    public ClientHttpRequestFactoryBuilder<JdkClientHttpRequestFactory> githubRequestFactoryBuilder() {
+        return ClientHttpRequestFactoryBuilder.jdk()
+                .withHttpClientCustomizer(client -> client
+                        .version(HttpClient.Version.HTTP_2)
+                        .executor(Executors.newVirtualThreadPerTaskExecutor()));
+    }
+
     @Bean
     public RestClient githubRestClient(RestClient.Builder builder,
+                                       GithubTransportInterceptor transportInterceptor,
                                        @Value("${app.github.api-url:https://api.github.com}") String baseUrl,
                                        @Value("${app.github.token:}") String token) {
 
@@ -20,7 +52,8 @@ public class GithubRepositoryConfig {
         var clientBuilder = builder
                 .baseUrl(baseUrl)
                 .defaultHeader("Accept", "application/vnd.github+json")
-                .defaultHeader("X-GitHub-Api-Version", "2022-11-28");
+                .defaultHeader("X-GitHub-Api-Version", "2022-11-28")
+                .requestInterceptor(transportInterceptor);
 
         if (token != null && !token.isBlank()) {
             clientBuilder.defaultHeader("Authorization", "Bearer " + token);
@@ -0,0 +1,46 @@
+package sergio.task.githubrepository.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The language comes straight from the request, so using it as a metric tag as-is would create a new time series
+// for every value anyone sends. The first max-languages distinct values keep their own tag, the rest share "other"
+@Component
+public class LanguageTagGuard {
+
+    public static final String OTHER = "other";
+    public static final String NONE = "none";
+
+    private final int maxLanguages;
+    private final Set<String> admitted = ConcurrentHashMap.newKeySet();
+
+    public LanguageTagGuard(@Value("${app.metrics.max-languages:20}") int maxLanguages) {
+        this.maxLanguages = maxLanguages;
+    }
+
+    public String tag(String language) {
+        if (language == null || language.isBlank()) {
+            return NONE;
+        }
+
+        var normalized = language.trim().toLowerCase(Locale.ROOT);
+        if (admitted.contains(normalized)) {
+            return normalized;
+        }
+        synchronized (admitted) {
+            if (admitted.size() < maxLanguages) {
+                admitted.add(normalized);
+                return normalized;
+            }
+        }
+        return OTHER;
+    }
+
+    public int admittedCount() {
+        return admitted.size();
+    }
+}
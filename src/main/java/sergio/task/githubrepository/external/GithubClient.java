@@ -1,37 +1,121 @@
 package sergio.task.githubrepository.external;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
 import sergio.task.githubrepository.external.model.GithubSearchResponse;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class GithubClient {
 
+    // 4xx/5xx are turned into the same HttpStatusCodeException subclasses retrieve() would throw
+    private static final DefaultResponseErrorHandler ERROR_HANDLER = new DefaultResponseErrorHandler();
+    private static final DateTimeFormatter QUALIFIER_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'")
+            .withZone(ZoneOffset.UTC);
+
     private final RestClient restClient;
+    private final GithubSearchResponseParser responseParser;
+    private final GithubRateLimiter rateLimiter;
+    private final GithubEtagCache etagCache;
+    private final GithubSearchMetrics searchMetrics;
+    // Background crawls queue behind user requests and can afford to wait longer for the budget
+    @Value("${app.github.rate-limit.background-max-wait:1m}")
+    private Duration backgroundMaxWait = Duration.ofMinutes(1);
 
     @CircuitBreaker(name = "githubSearch", fallbackMethod = "fallbackSearch")
     public GithubSearchResponse searchRepositories(String date, String language, int page, int itemsPerPage) {
         // Query pattern from GitHub: "created:>YYYY-MM-DD language:xxx"
         String query = String.format("created:>%s language:%s", date, language);
 
-        return restClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/search/repositories")
-                        .queryParam("q", query)
-                        .queryParam("sort", "stars")
-                        .queryParam("order", "desc")
-                        .queryParam("per_page", itemsPerPage)
-                        .queryParam("page", page)
-                        .build())
-                .retrieve()
-                .body(GithubSearchResponse.class);
+        // Page 1 decides whether there is anything else to fetch, so it goes ahead of queued follow-up pages
+        var priority = page == 1 ? GithubRateLimiter.Priority.HIGH : GithubRateLimiter.Priority.LOW;
+        return search(query, "stars", language, page, itemsPerPage, () -> rateLimiter.acquire(priority));
+    }
+
+    // Same search, most recently updated first: the delta of an incremental refresh, read until the repositories
+    // updated before the previous snapshot. Refreshes run in the background, so low priority
+    @CircuitBreaker(name = "githubSearch", fallbackMethod = "fallbackUpdatedSearch")
+    public GithubSearchResponse searchRecentlyUpdated(String date, String language, int page, int itemsPerPage) {
+        String query = String.format("created:>%s language:%s", date, language);
+        return search(query, "updated", language, page, itemsPerPage,
+                () -> rateLimiter.acquire(GithubRateLimiter.Priority.LOW));
+    }
+
+    // Repositories created within [from, to], both inclusive and to the second: one shard of a deep crawl.
+    // Always low priority, user requests go first
+    @CircuitBreaker(name = "githubSearch", fallbackMethod = "fallbackRangeSearch")
+    public GithubSearchResponse searchRepositoriesCreatedBetween(Instant from, Instant to, String language, int page,
+                                                                 int itemsPerPage) {
+        // Query pattern from GitHub: "created:YYYY-MM-DDTHH:MM:SSZ..YYYY-MM-DDTHH:MM:SSZ language:xxx"
+        String query = String.format("created:%s..%s language:%s", QUALIFIER_TIME.format(from), QUALIFIER_TIME.format(to),
+                language);
+        return search(query, "stars", language, page, itemsPerPage,
+                () -> rateLimiter.acquire(GithubRateLimiter.Priority.LOW, backgroundMaxWait));
+    }
+
+    private GithubSearchResponse search(String query, String sort, String language, int page, int itemsPerPage,
+                                        Supplier<GithubRateLimiter.Permit> permits) {
+        var etagKey = new GithubEtagCache.Key(query, sort, page, itemsPerPage);
+        var cached = etagCache.get(etagKey);
+
+        try (var permit = permits.get()) {
+            long start = System.nanoTime();
+            // Stays as IO_ERROR when no response came back at all
+            var status = new AtomicReference<>("IO_ERROR");
+            try {
+                return restClient.get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/search/repositories")
+                                .queryParam("q", query)
+                                .queryParam("sort", sort)
+                                .queryParam("order", "desc")
+                                .queryParam("per_page", itemsPerPage)
+                                .queryParam("page", page)
+                                .build())
+                        .headers(headers -> cached.ifPresent(entry -> headers.setIfNoneMatch(entry.etag())))
+                        // The body is parsed straight from the stream instead of being bound as a whole
+                        .exchange((request, response) -> {
+                            status.set(String.valueOf(response.getStatusCode().value()));
+                            rateLimiter.update(response.getHeaders());
+                            if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && cached.isPresent()) {
+                                permit.refund();
+                                return etagCache.reuse(cached.get());
+                            }
+                            if (response.getStatusCode().isError()) {
+                                ERROR_HANDLER.handleError(request.getURI(), request.getMethod(), response);
+                            }
+                            try {
+                                var parsed = responseParser.parse(response.getBody());
+                                var etag = response.getHeaders().getETag();
+                                if (etag != null) {
+                                    etagCache.put(etagKey, etag, parsed);
+                                }
+                                return parsed;
+                            } catch (JsonProcessingException ex) {
+                                throw new RestClientException("Malformed response from GitHub search API", ex);
+                            }
+                        });
+            } finally {
+                searchMetrics.recordSearch(language, page, status.get(), System.nanoTime() - start);
+            }
+        }
     }
 
     public GithubSearchResponse fallbackSearch(String date, String language, int page, int itemsPerPage, Throwable e) {
@@ -40,4 +124,22 @@ public class GithubClient {
 
         return new GithubSearchResponse(0, Collections.emptyList());
     }
+
+    // Null: the incremental refresh falls back to the full fan-out
+    public GithubSearchResponse fallbackUpdatedSearch(String date, String language, int page, int itemsPerPage,
+                                                      Throwable e) {
+        log.error("Circuit Breaker triggered for GitHub search. Params: [date={}, lang={}, page={}, sort=updated]. Reason: {}",
+                date, language, page, e.getMessage());
+
+        return null;
+    }
+
+    // Null instead of an empty page: an empty shard is a valid answer, the crawl must tell them apart
+    public GithubSearchResponse fallbackRangeSearch(Instant from, Instant to, String language, int page,
+                                                    int itemsPerPage, Throwable e) {
+        log.error("Circuit Breaker triggered for GitHub search. Params: [from={}, to={}, lang={}, page={}]. Reason: {}",
+                from, to, language, page, e.getMessage());
+
+        return null;
+    }
 }
@@ -0,0 +1,66 @@
+package sergio.task.githubrepository.external;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.external.model.GithubSearchResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Last ETag and parsed page seen for each search call, so a refresh can send If-None-Match and reuse the page
+// on a 304 without downloading or parsing it again (GitHub doesn't charge 304s against the rate limit).
+// The parser already keeps only the fields we score, so the stored page is much smaller than the JSON body
+@Component
+public class GithubEtagCache implements MeterBinder {
+
+    private final Cache<Key, Entry> entries;
+    private final AtomicLong notModified = new AtomicLong();
+
+    public GithubEtagCache(@Value("${app.github.etag-cache.max-entries:2000}") long maxEntries,
+                           @Value("${app.github.etag-cache.expire-after-access:1h}") Duration expireAfterAccess) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Entry> get(Key key) {
+        return Optional.ofNullable(entries.getIfPresent(key));
+    }
+
+    public void put(Key key, String etag, GithubSearchResponse page) {
+        entries.put(key, new Entry(etag, new GithubSearchResponse(page.totalCount(), List.copyOf(page.items()))));
+    }
+
+    public GithubSearchResponse reuse(Entry entry) {
+        notModified.incrementAndGet();
+        return entry.page();
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, entries, "github-etags");
+        FunctionCounter.builder("github.search.not.modified", notModified, AtomicLong::get)
+                .description("Search pages answered with 304 and served from the stored copy")
+                .register(registry);
+    }
+
+    public record Key(String query, String sort, int page, int itemsPerPage) {
+    }
+
+    public record Entry(String etag, GithubSearchResponse page) {
+    }
+}
@@ -0,0 +1,8 @@
+package sergio.task.githubrepository.external;
+
+public class GithubRateLimitException extends RuntimeException {
+
+    public GithubRateLimitException(String message) {
+        super(message);
+    }
+}
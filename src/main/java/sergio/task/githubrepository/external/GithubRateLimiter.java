@@ -0,0 +1,305 @@
+package sergio.task.githubrepository.external;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+
+// Shared scheduler for every call to the search API, across all requests.
+// - GitHub's budget (X-RateLimit-Remaining / X-RateLimit-Reset) is spread evenly until the reset through a token
+//   bucket, so a fan-out is paced instead of burning the whole quota and getting 403s
+// - At most maxInFlight calls run at the same time
+// - Callers over budget wait in line (HIGH before LOW) up to maxWait instead of failing straight away
+@Slf4j
+@Component
+public class GithubRateLimiter implements MeterBinder {
+
+    public enum Priority {HIGH, LOW}
+
+    // The search API budget is per minute
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private final int maxInFlight;
+    private final double burst;
+    private final Duration maxWait;
+    private final Clock clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final int[] waiting = new int[Priority.values().length];
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile Timer waitTimer;
+
+    private int limit;
+    private int remaining;
+    private long resetAtMillis;
+    private double tokens;
+    private long lastRefillMillis;
+    private int inFlight;
+
+    @Autowired
+    public GithubRateLimiter(@Value("${app.github.rate-limit.initial-limit:30}") int initialLimit,
+                             @Value("${app.github.rate-limit.burst:10}") int burst,
+                             @Value("${app.github.rate-limit.max-in-flight:8}") int maxInFlight,
+                             @Value("${app.github.rate-limit.max-wait:5s}") Duration maxWait) {
+        this(initialLimit, burst, maxInFlight, maxWait, Clock.systemUTC());
+    }
+
+    GithubRateLimiter(int initialLimit, int burst, int maxInFlight, Duration maxWait, Clock clock) {
+        this.maxInFlight = maxInFlight;
+        this.burst = burst;
+        this.maxWait = maxWait;
+        this.clock = clock;
+
+        // Until the first response tells us the real budget
+        long now = clock.millis();
+        this.limit = initialLimit;
+        this.remaining = initialLimit;
+        this.resetAtMillis = now + WINDOW_MILLIS;
+        this.tokens = burst;
+        this.lastRefillMillis = now;
+    }
+
+    public Permit acquire(Priority priority) {
+        return acquire(priority, maxWait);
+    }
+
+    public Permit acquire(Priority priority, Duration timeout) {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + timeout.toNanos();
+
+        lock.lock();
+        try {
+            waiting[priority.ordinal()]++;
+            try {
+                while (true) {
+                    long now = clock.millis();
+                    refill(now);
+
+                    boolean ahead = priority == Priority.HIGH || waiting[Priority.HIGH.ordinal()] == 0;
+                    if (ahead && inFlight < maxInFlight && remaining > 0 && tokens >= 1) {
+                        tokens -= 1;
+                        remaining--;
+                        inFlight++;
+                        recordWait(startNanos);
+                        return new Permit();
+                    }
+
+                    long leftNanos = deadlineNanos - System.nanoTime();
+                    if (leftNanos <= 0) {
+                        rejected.incrementAndGet();
+                        recordWait(startNanos);
+                        throw new GithubRateLimitException(
+                                "No GitHub search budget available within %d ms (remaining=%d, inFlight=%d)"
+                                        .formatted(timeout.toMillis(), remaining, inFlight));
+                    }
+                    stateChanged.awaitNanos(Math.min(leftNanos, nanosUntilProgress(now)));
+                }
+            } finally {
+                waiting[priority.ordinal()]--;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GithubRateLimitException("Interrupted while waiting for GitHub search budget");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Fed with the headers of every response, including 403/429 ones
+    public void update(HttpHeaders headers) {
+        Long reportedLimit = longHeader(headers, "X-RateLimit-Limit");
+        Long reportedRemaining = longHeader(headers, "X-RateLimit-Remaining");
+        Long resetEpochSeconds = longHeader(headers, "X-RateLimit-Reset");
+        Long retryAfterSeconds = longHeader(headers, HttpHeaders.RETRY_AFTER);
+
+        if (reportedRemaining == null && retryAfterSeconds == null) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            long now = clock.millis();
+            refill(now);
+
+            if (reportedLimit != null) {
+                limit = reportedLimit.intValue();
+            }
+            if (reportedRemaining != null && resetEpochSeconds != null) {
+                long reportedReset = resetEpochSeconds * 1000L;
+                // Responses can arrive out of order, within the same window the lowest remaining is the right one
+                int reported = reportedRemaining.intValue();
+                remaining = reportedReset == resetAtMillis ? Math.min(remaining, reported) : reported;
+                resetAtMillis = reportedReset;
+            }
+            if (retryAfterSeconds != null) {
+                // Secondary rate limit: nothing goes out until GitHub says so
+                remaining = 0;
+                resetAtMillis = Math.max(resetAtMillis, now + retryAfterSeconds * 1000L);
+            }
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Fraction of the window's budget still available, background work uses it to stay out of the way of users
+    public double remainingShare() {
+        lock.lock();
+        try {
+            refill(clock.millis());
+            return limit > 0 ? (double) remaining / limit : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int waitingCount(Priority priority) {
+        lock.lock();
+        try {
+            return waiting[priority.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("github.ratelimit.remaining", this, limiter -> limiter.read(() -> limiter.remaining))
+                .description("Search API calls left in the current GitHub window")
+                .register(registry);
+        Gauge.builder("github.ratelimit.limit", this, limiter -> limiter.read(() -> limiter.limit))
+                .register(registry);
+        Gauge.builder("github.ratelimit.tokens", this, limiter -> limiter.read(() -> limiter.tokens))
+                .description("Calls that can go out right now without waiting for pacing")
+                .register(registry);
+        Gauge.builder("github.ratelimit.in.flight", this, limiter -> limiter.read(() -> limiter.inFlight))
+                .register(registry);
+        for (var priority : Priority.values()) {
+            Gauge.builder("github.ratelimit.waiting", this, limiter -> limiter.waitingCount(priority))
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(registry);
+        }
+        FunctionCounter.builder("github.ratelimit.rejected", rejected, AtomicLong::get)
+                .description("Calls that gave up waiting for budget")
+                .register(registry);
+        waitTimer = Timer.builder("github.ratelimit.wait")
+                .description("Time spent queued for GitHub search budget")
+                .register(registry);
+    }
+
+    private void refill(long now) {
+        if (now >= resetAtMillis) {
+            remaining = limit;
+            resetAtMillis = now + WINDOW_MILLIS;
+        }
+
+        long elapsed = now - lastRefillMillis;
+        lastRefillMillis = now;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * ratePerMilli(now));
+        }
+    }
+
+    // Spread what's left of the budget evenly over what's left of the window
+    private double ratePerMilli(long now) {
+        return (double) remaining / Math.max(1, resetAtMillis - now);
+    }
+
+    private long nanosUntilProgress(long now) {
+        if (remaining <= 0) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(1, resetAtMillis - now));
+        }
+        if (tokens < 1) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(1, (long) Math.ceil((1 - tokens) / ratePerMilli(now))));
+        }
+        // Waiting for an in-flight slot or for higher priority callers, release() signals
+        return TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS);
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refund() {
+        lock.lock();
+        try {
+            remaining = Math.min(limit, remaining + 1);
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double read(DoubleSupplier value) {
+        lock.lock();
+        try {
+            return value.getAsDouble();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordWait(long startNanos) {
+        var timer = waitTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Long longHeader(HttpHeaders headers, String name) {
+        var value = headers.getFirst(name);
+        if (value == null) return null;
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring non numeric {} header: {}", name, value);
+            return null;
+        }
+    }
+
+    public final class Permit implements AutoCloseable {
+
+        private boolean released;
+        private boolean refunded;
+
+        private Permit() {
+        }
+
+        // The call didn't count against GitHub's budget (304 Not Modified)
+        public void refund() {
+            if (!refunded) {
+                refunded = true;
+                GithubRateLimiter.this.refund();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package sergio.task.githubrepository.external;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.configuration.LanguageTagGuard;
+
+import java.util.concurrent.TimeUnit;
+
+// Latency of every search call by page, status and language. Registered lazily, the client works without a registry
+@Component
+public class GithubSearchMetrics implements MeterBinder {
+
+    // GitHub serves at most 1000 results per query, 10 pages of 100
+    private static final int MAX_PAGE_TAG = 10;
+
+    private final LanguageTagGuard languageTags;
+    private volatile MeterRegistry registry;
+
+    public GithubSearchMetrics(LanguageTagGuard languageTags) {
+        this.languageTags = languageTags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordSearch(String language, int page, String status, long durationNanos) {
+        var meterRegistry = registry;
+        if (meterRegistry == null) {
+            return;
+        }
+        Timer.builder("github.search.requests")
+                .description("Calls to the GitHub search API")
+                .tag("language", languageTags.tag(language))
+                .tag("page", page <= MAX_PAGE_TAG ? String.valueOf(page) : MAX_PAGE_TAG + "+")
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,114 @@
+package sergio.task.githubrepository.external;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+import sergio.task.githubrepository.external.model.GithubSearchResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Token-level reader for /search/repositories: only the fields of GithubRepositoryDto are read,
+// everything else (owner, license, topics, ~80 urls per item...) is skipped without being materialized
+@Component
+public class GithubSearchResponseParser {
+
+    private static final int EXPECTED_ITEMS_PER_PAGE = 100;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public GithubSearchResponse parse(InputStream body) throws IOException {
+        List<GithubRepositoryDto> items = new ArrayList<>(EXPECTED_ITEMS_PER_PAGE);
+        long totalCount = parse(body, items::add);
+        return new GithubSearchResponse(totalCount, items);
+    }
+
+    // Items are handed over one by one while the stream is read, returns total_count
+    public long parse(InputStream body, Consumer<GithubRepositoryDto> onItem) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+            long totalCount = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                switch (field) {
+                    case "total_count" -> totalCount = parser.getValueAsLong();
+                    case "items" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            readItems(parser, onItem);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            expect(parser, parser.currentToken(), JsonToken.END_OBJECT);
+            return totalCount;
+        }
+    }
+
+    private void readItems(JsonParser parser, Consumer<GithubRepositoryDto> onItem) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            expect(parser, token, JsonToken.START_OBJECT);
+            onItem.accept(readItem(parser));
+        }
+    }
+
+    private GithubRepositoryDto readItem(JsonParser parser) throws IOException {
+        String name = null;
+        String fullName = null;
+        int stars = 0;
+        int forks = 0;
+        LocalDateTime updatedAt = null;
+        String language = null;
+        String url = null;
+        LocalDateTime createdAt = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "name" -> name = parser.getValueAsString();
+                case "full_name" -> fullName = parser.getValueAsString();
+                case "stargazers_count" -> stars = parser.getValueAsInt();
+                case "forks_count" -> forks = parser.getValueAsInt();
+                case "updated_at" -> updatedAt = parseTimestamp(parser.getValueAsString());
+                case "language" -> language = parser.getValueAsString();
+                case "html_url" -> url = parser.getValueAsString();
+                case "created_at" -> createdAt = parseTimestamp(parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+        expect(parser, parser.currentToken(), JsonToken.END_OBJECT);
+
+        return new GithubRepositoryDto(name, fullName, stars, forks, updatedAt, language, url, createdAt);
+    }
+
+    // GitHub sends ISO-8601 UTC timestamps ("2023-10-01T12:00:00Z")
+    private static LocalDateTime parseTimestamp(String value) {
+        if (value == null || value.isEmpty()) return null;
+        if (value.endsWith("Z")) {
+            return LocalDateTime.ofInstant(Instant.parse(value), ZoneOffset.UTC);
+        }
+        return LocalDateTime.parse(value);
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected %s but found %s".formatted(expected, actual));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package sergio.task.githubrepository.external;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+// The JDK HttpClient doesn't negotiate compression by itself: this asks GitHub for gzip and inflates the body
+// while it is streamed to the parser. It also tracks the exchanges open on the transport (until their body is
+// closed) and the bytes that actually went over the wire
+@Component
+public class GithubTransportInterceptor implements ClientHttpRequestInterceptor, MeterBinder {
+
+    private static final String GZIP = "gzip";
+
+    private final AtomicInteger openExchanges = new AtomicInteger();
+    private final AtomicLong gzipResponses = new AtomicLong();
+    private volatile DistributionSummary wireBytes;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                        ClientHttpRequestExecution execution) throws IOException {
+        if (!request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, GZIP);
+        }
+
+        openExchanges.incrementAndGet();
+        try {
+            return new TransportResponse(execution.execute(request, body));
+        } catch (IOException | RuntimeException ex) {
+            openExchanges.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    public int openExchanges() {
+        return openExchanges.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("github.http.open.exchanges", openExchanges, AtomicInteger::get)
+                .description("GitHub exchanges whose response is still being read")
+                .register(registry);
+        FunctionCounter.builder("github.http.gzip.responses", gzipResponses, AtomicLong::get)
+                .register(registry);
+        wireBytes = DistributionSummary.builder("github.http.response.wire.bytes")
+                .description("Response body size as received, before decompression")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private void completed(long bytesRead) {
+        openExchanges.decrementAndGet();
+        var summary = wireBytes;
+        if (summary != null) {
+            summary.record(bytesRead);
+        }
+    }
+
+    private final class TransportResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final boolean gzipped;
+        private final HttpHeaders headers;
+        private CountingInputStream rawBody;
+        private InputStream body;
+        private boolean closed;
+
+        private TransportResponse(ClientHttpResponse delegate) {
+            this.delegate = delegate;
+            this.gzipped = GZIP.equalsIgnoreCase(delegate.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+            if (gzipped) {
+                gzipResponses.incrementAndGet();
+                // What callers read is the inflated body, the wire encoding and length no longer apply
+                var decoded = new HttpHeaders();
+                decoded.putAll(delegate.getHeaders());
+                decoded.remove(HttpHeaders.CONTENT_ENCODING);
+                decoded.remove(HttpHeaders.CONTENT_LENGTH);
+                this.headers = HttpHeaders.readOnlyHttpHeaders(decoded);
+            } else {
+                this.headers = delegate.getHeaders();
+            }
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                rawBody = new CountingInputStream(delegate.getBody());
+                // An empty gzip body (304, HEAD) has no header for GZIPInputStream to read
+                body = gzipped && hasContent() ? new GZIPInputStream(rawBody) : rawBody;
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                drain();
+                delegate.close();
+            } finally {
+                completed(rawBody != null ? rawBody.count : 0);
+            }
+        }
+
+        // GZIPInputStream stops at the gzip trailer, closing a stream that hasn't reached EOF makes the client drop
+        // the connection instead of returning it to the pool
+        private void drain() {
+            if (rawBody == null) {
+                return;
+            }
+            try {
+                rawBody.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException ex) {
+                // The connection is discarded, nothing else to do
+            }
+        }
+
+        private boolean hasContent() throws IOException {
+            return delegate.getHeaders().getContentLength() != 0 && !getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) count++;
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) count += read;
+            return read;
+        }
+    }
+}
@@ -11,5 +11,11 @@ public record GithubRepositoryDto(
         @JsonProperty("forks_count") int forks,
         @JsonProperty("updated_at") LocalDateTime updatedAt,
         String language,
-        @JsonProperty("html_url") String url
-) {}
+        @JsonProperty("html_url") String url,
+        @JsonProperty("created_at") LocalDateTime createdAt
+) {
+    public GithubRepositoryDto(String name, String fullName, int stars, int forks, LocalDateTime updatedAt,
+                               String language, String url) {
+        this(name, fullName, stars, forks, updatedAt, language, url, null);
+    }
+}
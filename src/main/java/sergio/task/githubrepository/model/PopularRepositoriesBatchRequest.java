@@ -0,0 +1,32 @@
+package sergio.task.githubrepository.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record PopularRepositoriesBatchRequest(
+        @NotEmpty
+        @Size(max = MAX_QUERIES)
+        List<@Valid @NotNull Query> queries,
+        // Applies to every query, best first
+        @Positive
+        Integer limit
+) {
+    public static final int MAX_QUERIES = 20;
+
+    public record Query(
+            @NotNull
+            @JsonFormat(pattern = "dd-MM-yyyy")
+            LocalDate since,
+            @NotBlank
+            String language
+    ) {
+    }
+}
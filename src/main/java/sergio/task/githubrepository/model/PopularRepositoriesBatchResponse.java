@@ -0,0 +1,28 @@
+package sergio.task.githubrepository.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record PopularRepositoriesBatchResponse(
+        int count,
+        List<Result> results
+) {
+
+    // Same fields as PopularRepositoriesResponse, plus the query it answers
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(
+            @JsonFormat(pattern = "dd-MM-yyyy") LocalDate since,
+            String language,
+            int count,
+            List<RepositoryScoreResponse> items,
+            boolean partial,
+            // Answered from the cache, without waiting for GitHub
+            boolean cached,
+            // Only set when this query failed, the other results are still valid
+            String error
+    ) {
+    }
+}
@@ -1,9 +1,38 @@
 package sergio.task.githubrepository.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public record PopularRepositoriesResponse(
         int count,
-        List<RepositoryScoreResponse> items
+        List<RepositoryScoreResponse> items,
+        // Some GitHub pages didn't make it within the latency budget, the ranking only covers the ones that did
+        boolean partial,
+        // Repositories the request can page through (the ranking, up to limit), count is the ones in this response
+        int total,
+        // Only for paginated requests
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Page page
 ) {
+
+    public PopularRepositoriesResponse(int count, List<RepositoryScoreResponse> items, boolean partial) {
+        this(count, items, partial, count, null);
+    }
+
+    public PopularRepositoriesResponse(int count, List<RepositoryScoreResponse> items) {
+        this(count, items, false);
+    }
+
+    public record Page(
+            // Zero-based
+            int number,
+            int size,
+            // Version of the ranking the page was cut from, cursors stay on it
+            String snapshot,
+            // Opaque, null on the last page
+            @JsonInclude(JsonInclude.Include.NON_NULL)
+            String nextCursor
+    ) {
+    }
 }
@@ -1,11 +1,24 @@
 package sergio.task.githubrepository.model;
 
+import java.time.LocalDateTime;
+
 public record RepositoryScoreResponse(
         String fullName,
         int stars,
         int forks,
         String language,
         double popularityScore,
-        String url
+        String url,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
 ) {
-}
\ No newline at end of file
+    public RepositoryScoreResponse(String fullName, int stars, int forks, String language, double popularityScore,
+                                   String url, LocalDateTime createdAt) {
+        this(fullName, stars, forks, language, popularityScore, url, createdAt, null);
+    }
+
+    public RepositoryScoreResponse(String fullName, int stars, int forks, String language, double popularityScore,
+                                   String url) {
+        this(fullName, stars, forks, language, popularityScore, url, null, null);
+    }
+}
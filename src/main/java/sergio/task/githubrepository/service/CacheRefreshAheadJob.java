@@ -0,0 +1,69 @@
+package sergio.task.githubrepository.service;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.configuration.CacheConfig;
+
+import java.util.Map;
+
+// Refreshes the most frequently read keys shortly before they go stale, so the hottest queries
+// never even see a stale-while-revalidate response. Crawled keys are left to RankingPrecomputeJob
+@Slf4j
+@Component
+public class CacheRefreshAheadJob {
+
+    private final CacheManager cacheManager;
+    private final RankingPrecomputeJob precomputeJob;
+    private final int hotKeys;
+    private final double refreshAgeRatio;
+
+    public CacheRefreshAheadJob(CacheManager cacheManager, RankingPrecomputeJob precomputeJob,
+                                @Value("${app.cache.refresh-ahead.hot-keys:20}") int hotKeys,
+                                @Value("${app.cache.refresh-ahead.age-ratio:0.8}") double refreshAgeRatio) {
+        this.cacheManager = cacheManager;
+        this.precomputeJob = precomputeJob;
+        this.hotKeys = hotKeys;
+        this.refreshAgeRatio = refreshAgeRatio;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.refresh-ahead.interval:30s}")
+    public void refreshHottestKeys() {
+        var cache = cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        if (cache == null || !(cache.getNativeCache() instanceof LoadingCache<?, ?> nativeCache)) {
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        var loadingCache = (LoadingCache<Object, Object>) nativeCache;
+        var policy = loadingCache.policy();
+        var refreshPolicy = policy.refreshAfterWrite().orElse(null);
+        if (refreshPolicy == null || hotKeys <= 0) {
+            return;
+        }
+
+        long refreshAtNanos = (long) (refreshPolicy.getRefreshesAfter().toNanos() * refreshAgeRatio);
+        Map<Object, Object> hottest = policy.eviction()
+                .map(eviction -> eviction.hottest(hotKeys))
+                .orElse(Map.of());
+
+        int refreshed = 0;
+        for (var key : hottest.keySet()) {
+            if (key instanceof PopularityCacheKey cacheKey && precomputeJob.isCrawled(cacheKey)) {
+                continue;
+            }
+            var age = refreshPolicy.ageOf(key);
+            if (age.isPresent() && age.get().toNanos() >= refreshAtNanos) {
+                loadingCache.refresh(key);
+                refreshed++;
+            }
+        }
+
+        if (refreshed > 0) {
+            log.debug("Refresh-ahead triggered for {} of the {} hottest keys", refreshed, hottest.size());
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package sergio.task.githubrepository.service;
+
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Read-only ranking stored column by column, the layout of the values kept in github-repos. Compared with a list of
+// records it drops the per-item object, the LocalDateTime (two more objects) and the html url, which GitHub always
+// builds from the full name. Languages are interned, so a ranking holds references to a handful of shared strings.
+// Items are rebuilt on access: the hot path reads the pre-encoded response body, not these.
+// The last update is kept to the second next to stars and forks: everything the score is made of, so RankingRescorer
+// can rescore and reorder a cached ranking without going back to GitHub
+public final class ColumnarRepositoryList extends AbstractList<RepositoryScoreResponse> implements RandomAccess {
+
+    private static final String GITHUB_URL_PREFIX = "https://github.com/";
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    // Rough HotSpot sizes with compressed oops
+    private static final int OBJECT_HEADER = 16;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int STRING_OVERHEAD = 24 + ARRAY_HEADER;
+
+    private final String[] fullNames;
+    private final int[] stars;
+    private final int[] forks;
+    private final double[] scores;
+    private final String[] languages;
+    // Only allocated when some url can't be derived from the full name
+    private final String[] urls;
+    private final BitSet explicitUrls;
+    private final long[] createdAt;
+    // Only allocated when some creation date has a fraction of second
+    private final int[] createdAtNanos;
+    private final long[] updatedAt;
+    // False for rankings written before the update date was kept, their scores can't be taken apart
+    private final boolean hasUpdatedAt;
+    private final long estimatedBytes;
+    private final long fingerprint;
+
+    private ColumnarRepositoryList(List<RepositoryScoreResponse> items) {
+        int size = items.size();
+        fullNames = new String[size];
+        stars = new int[size];
+        forks = new int[size];
+        scores = new double[size];
+        languages = new String[size];
+        createdAt = new long[size];
+        updatedAt = new long[size];
+
+        String[] otherUrls = null;
+        var explicit = new BitSet();
+        int[] nanos = null;
+        boolean anyUpdatedAt = false;
+        for (int i = 0; i < size; i++) {
+            var item = items.get(i);
+            fullNames[i] = item.fullName();
+            stars[i] = item.stars();
+            forks[i] = item.forks();
+            scores[i] = item.popularityScore();
+            languages[i] = item.language() != null ? item.language().intern() : null;
+
+            if (!isDerivedUrl(item.fullName(), item.url())) {
+                if (otherUrls == null) {
+                    otherUrls = new String[size];
+                }
+                otherUrls[i] = item.url();
+                explicit.set(i);
+            }
+
+            var date = item.createdAt();
+            createdAt[i] = date != null ? date.toEpochSecond(ZoneOffset.UTC) : NO_DATE;
+            if (date != null && date.getNano() != 0) {
+                if (nanos == null) {
+                    nanos = new int[size];
+                }
+                nanos[i] = date.getNano();
+            }
+            updatedAt[i] = item.updatedAt() != null ? item.updatedAt().toEpochSecond(ZoneOffset.UTC) : NO_DATE;
+            anyUpdatedAt |= item.updatedAt() != null;
+        }
+        urls = otherUrls;
+        explicitUrls = explicit;
+        createdAtNanos = nanos;
+        hasUpdatedAt = anyUpdatedAt;
+        estimatedBytes = estimateBytes();
+        fingerprint = computeFingerprint();
+    }
+
+    // Same items in the given order (indexes into this list) with new scores, the strings are shared
+    private ColumnarRepositoryList(ColumnarRepositoryList source, int[] order, double[] newScores) {
+        int size = order.length;
+        fullNames = new String[size];
+        stars = new int[size];
+        forks = new int[size];
+        scores = newScores;
+        languages = new String[size];
+        createdAt = new long[size];
+        updatedAt = new long[size];
+        urls = source.urls != null ? new String[size] : null;
+        explicitUrls = new BitSet();
+        createdAtNanos = source.createdAtNanos != null ? new int[size] : null;
+        for (int i = 0; i < size; i++) {
+            int from = order[i];
+            fullNames[i] = source.fullNames[from];
+            stars[i] = source.stars[from];
+            forks[i] = source.forks[from];
+            languages[i] = source.languages[from];
+            createdAt[i] = source.createdAt[from];
+            updatedAt[i] = source.updatedAt[from];
+            if (source.explicitUrls.get(from)) {
+                urls[i] = source.urls[from];
+                explicitUrls.set(i);
+            }
+            if (createdAtNanos != null) {
+                createdAtNanos[i] = source.createdAtNanos[from];
+            }
+        }
+        hasUpdatedAt = source.hasUpdatedAt;
+        estimatedBytes = estimateBytes();
+        fingerprint = computeFingerprint();
+    }
+
+    public static ColumnarRepositoryList of(List<RepositoryScoreResponse> items) {
+        if (items instanceof ColumnarRepositoryList columnar) {
+            return columnar;
+        }
+        return new ColumnarRepositoryList(items);
+    }
+
+    @Override
+    public RepositoryScoreResponse get(int index) {
+        // Also the bounds check for the columns
+        String fullName = fullNames[index];
+        return new RepositoryScoreResponse(fullName, stars[index], forks[index], languages[index], scores[index],
+                url(index, fullName), createdAt(index), updatedAt(index));
+    }
+
+    @Override
+    public int size() {
+        return fullNames.length;
+    }
+
+    // Heap retained by this list, shared strings (languages) excluded. Used to weigh cache entries
+    public long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    // 64-bit hash of the ranking as served: every column of every item, in order. Equal on every instance holding
+    // the same ranking, so it can tell snapshots apart across replicas. Computed once, on creation
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    private long computeFingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < fullNames.length; i++) {
+            hash = mix(hash, fullNames[i]);
+            hash = mix(hash, languages[i]);
+            // A derived url is a function of the full name
+            hash = mix(hash, explicitUrls.get(i) ? urls[i] : null);
+            hash = mix(hash, ((long) stars[i] << 32) | (forks[i] & 0xffffffffL));
+            hash = mix(hash, Double.doubleToLongBits(scores[i]));
+            hash = mix(hash, createdAt[i]);
+            hash = mix(hash, createdAtNanos != null ? createdAtNanos[i] : 0);
+            hash = mix(hash, updatedAt[i]);
+        }
+        return hash;
+    }
+
+    // The characters themselves, four per step: String.hashCode is only 32 bits and easy to collide
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, -1L);
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i += 4) {
+            long chunk = 0;
+            for (int j = i; j < Math.min(i + 4, length); j++) {
+                chunk = chunk << 16 | value.charAt(j);
+            }
+            hash = mix(hash, chunk);
+        }
+        return mix(hash, length);
+    }
+
+    private static long mix(long hash, long value) {
+        // murmur3 finalizer over the running hash, so neighbouring values don't cancel out
+        long h = (hash ^ value) * 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    ColumnarRepositoryList reorder(int[] order, double[] newScores) {
+        return new ColumnarRepositoryList(this, order, newScores);
+    }
+
+    // Items at the given positions, in that order, with their scores
+    ColumnarRepositoryList select(int[] positions) {
+        double[] selectedScores = new double[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            selectedScores[i] = scores[positions[i]];
+        }
+        return new ColumnarRepositoryList(this, positions, selectedScores);
+    }
+
+    boolean hasUpdatedAt() {
+        return hasUpdatedAt;
+    }
+
+    String fullName(int index) {
+        return fullNames[index];
+    }
+
+    int stars(int index) {
+        return stars[index];
+    }
+
+    int forks(int index) {
+        return forks[index];
+    }
+
+    // Same day as LocalDateTime.toLocalDate() of the update date, UNKNOWN_UPDATE_DAY when there is none
+    long updatedEpochDay(int index) {
+        long epochSecond = updatedAt[index];
+        return epochSecond == NO_DATE ? PopularityCalculator.UNKNOWN_UPDATE_DAY : Math.floorDiv(epochSecond, 86_400);
+    }
+
+    private String url(int index, String fullName) {
+        return explicitUrls.get(index) ? urls[index] : githubUrl(fullName);
+    }
+
+    static String githubUrl(String fullName) {
+        return GITHUB_URL_PREFIX + fullName;
+    }
+
+    private LocalDateTime createdAt(int index) {
+        long epochSecond = createdAt[index];
+        if (epochSecond == NO_DATE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(epochSecond, createdAtNanos != null ? createdAtNanos[index] : 0, ZoneOffset.UTC);
+    }
+
+    private LocalDateTime updatedAt(int index) {
+        long epochSecond = updatedAt[index];
+        return epochSecond == NO_DATE ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    static boolean isDerivedUrl(String fullName, String url) {
+        return fullName != null && url != null
+                && url.length() == GITHUB_URL_PREFIX.length() + fullName.length()
+                && url.startsWith(GITHUB_URL_PREFIX)
+                && url.endsWith(fullName);
+    }
+
+    private long estimateBytes() {
+        int size = fullNames.length;
+        long bytes = OBJECT_HEADER + 11L * REFERENCE + 17 + OBJECT_HEADER + explicitUrls.size() / 8
+                // fullNames, languages
+                + 2L * (ARRAY_HEADER + (long) size * REFERENCE)
+                // stars, forks, scores, createdAt, updatedAt
+                + 2L * (ARRAY_HEADER + 4L * size) + 3L * (ARRAY_HEADER + 8L * size);
+        for (var fullName : fullNames) {
+            bytes += stringBytes(fullName);
+        }
+        if (urls != null) {
+            bytes += ARRAY_HEADER + (long) size * REFERENCE;
+            for (var url : urls) {
+                bytes += stringBytes(url);
+            }
+        }
+        if (createdAtNanos != null) {
+            bytes += ARRAY_HEADER + 4L * size;
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        // Latin-1 compact strings, one byte per char (GitHub names are ASCII)
+        return value == null ? 0 : STRING_OVERHEAD + value.length();
+    }
+}
@@ -0,0 +1,20 @@
+package sergio.task.githubrepository.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Deep crawl of the precomputed keys: the whole result set instead of the first max-pages-to-fetch pages
+@ConfigurationProperties(prefix = "app.popularity.crawl")
+public record CrawlProperties(
+        boolean enabled,
+        int maxConcurrency,
+        int maxRequests,
+        Duration maxDuration
+) {
+    public CrawlProperties {
+        maxConcurrency = maxConcurrency <= 0 ? 2 : maxConcurrency;
+        maxRequests = maxRequests <= 0 ? 300 : maxRequests;
+        maxDuration = maxDuration == null ? Duration.ofMinutes(10) : maxDuration;
+    }
+}
@@ -0,0 +1,258 @@
+package sergio.task.githubrepository.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.external.GithubClient;
+import sergio.task.githubrepository.external.model.GithubSearchResponse;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Deep crawl: GitHub search stops at 1000 results per query, sorted by stars, so for big languages the regular
+// fan-out never sees repositories with fewer stars but a better freshness. The crawl covers the whole result set:
+// - the created range is split into shards of at most 1000 results each. A shard over the cap is split again,
+//   into as many parts as its total count asks for (ranges are to the second, disjoint, so nothing is seen twice)
+// - every page of every shard is scored and merged into a top max-results accumulator as it arrives, so memory
+//   stays bounded whatever the size of the result set
+// - at most max-concurrency calls at a time, at low priority and within max-requests, so user requests keep the
+//   GitHub budget. Calls are planned within max-requests in two phases: first the shards are found, fetching only
+//   their first pages (a shard whose parts don't fit anymore is kept whole instead of split), then what is left
+//   goes to deeper pages, page 2 of every shard before page 3 of any. Each shard's best repositories are on its
+//   first page, so a capped crawl is still a complete ranking, just not an exhaustive one
+// Takes many calls: it runs in the background (precomputation), never on the request path
+@Slf4j
+@Component
+public class DateShardedCrawler {
+
+    // GitHub search never returns more than this many results for a query
+    static final int SEARCH_CAP = 1000;
+    private static final int ITEMS_PER_PAGE = 100;
+    // Size aimed at when a shard is split, below the cap since repositories are not spread evenly over time
+    private static final int SHARD_TARGET = 800;
+
+    private final GithubClient githubClient;
+    private final PopularityService popularityService;
+    private final CrawlProperties properties;
+    private final int maxResults;
+    private final Clock clock;
+
+    public DateShardedCrawler(GithubClient githubClient, PopularityService popularityService,
+                              CrawlProperties properties, @Value("${app.popularity.max-results:500}") int maxResults,
+                              Clock clock) {
+        this.githubClient = githubClient;
+        this.popularityService = popularityService;
+        this.properties = properties;
+        this.maxResults = maxResults;
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    public PopularityRanking crawl(PopularityCacheKey key) {
+        var since = key.createdAfterDate();
+        if (since.isEmpty()) {
+            // Not a date GitHub's range qualifier can take, the regular fan-out handles it
+            return popularityService.computeRanking(key);
+        }
+        // "created:>date" starts the day after
+        long from = since.get().plusDays(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+        long to = clock.instant().getEpochSecond();
+        if (from > to) {
+            return PopularityRanking.exhaustive(List.of());
+        }
+        return new Crawl(key.language()).run(new Shard(from, to));
+    }
+
+    private final class Crawl {
+
+        private final String language;
+        private final RankingAccumulator<RepositoryScoreResponse> ranking =
+                new RankingAccumulator<>(maxResults, PopularityService.RANKING_ORDER);
+        private final Semaphore concurrency = new Semaphore(properties.maxConcurrency());
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger budget = new AtomicInteger(properties.maxRequests());
+        private final AtomicInteger shards = new AtomicInteger();
+        private final AtomicInteger missingPages = new AtomicInteger();
+        private final AtomicLong matched = new AtomicLong();
+        // A single second with more results than the cap, only its first 1000 were seen
+        private final AtomicBoolean truncated = new AtomicBoolean();
+        // Shards or pages left out to stay within max-requests
+        private final AtomicBoolean capped = new AtomicBoolean();
+
+        private Crawl(String language) {
+            this.language = language;
+        }
+
+        private PopularityRanking run(Shard root) {
+            long start = System.nanoTime();
+            boolean finished = false;
+            try {
+                long deadline = start + properties.maxDuration().toNanos();
+                // max-requests is at least 1, the first page is always there
+                reserve(1);
+                var leaves = findShards(root).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                fetchDeeperPages(leaves).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                finished = true;
+            } catch (TimeoutException ex) {
+                log.warn("Deep crawl of {} exceeded {}, keeping what was fetched so far", language,
+                        properties.maxDuration());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                log.error("Deep crawl of {} failed: {}", language, ex.getCause().getMessage());
+            } finally {
+                // Shards still queued or in flight give back their rate limit permits
+                executor.shutdownNow();
+            }
+
+            var items = ranking.snapshot().items();
+            PopularityRanking result;
+            if (!finished || missingPages.get() > 0) {
+                result = PopularityRanking.partial(items);
+            } else if (!truncated.get() && !capped.get() && matched.get() <= maxResults) {
+                result = PopularityRanking.exhaustive(items);
+            } else {
+                result = PopularityRanking.complete(items);
+            }
+            log.info("Deep crawl of {} from {}: {} shards, {} requests{}, {} repositories matched, {} pages missing in {} ms",
+                    language, Instant.ofEpochSecond(root.from()), shards.get(), requests.get(),
+                    capped.get() ? " (capped by max-requests)" : "", matched.get(), missingPages.get(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        }
+
+        // Phase 1: the shards small enough to paginate, with their first page merged. The first page of the shard
+        // is already reserved
+        private CompletableFuture<List<Leaf>> findShards(Shard shard) {
+            return CompletableFuture.supplyAsync(() -> fetch(shard, 1), executor).thenCompose(firstPage -> {
+                if (firstPage == null) {
+                    return CompletableFuture.completedFuture(List.of());
+                }
+                long total = firstPage.totalCount();
+                if (total > SEARCH_CAP && shard.canSplit()) {
+                    var parts = shard.split((int) Math.ceil((double) total / SHARD_TARGET));
+                    int reserved = reserve(parts.size());
+                    if (reserved == parts.size()) {
+                        // This page is not kept, each part fetches its own best repositories
+                        var found = parts.stream().map(this::findShards).toList();
+                        return CompletableFuture.allOf(found.toArray(CompletableFuture[]::new))
+                                .thenApply(done -> found.stream().flatMap(leaves -> leaves.join().stream()).toList());
+                    }
+                    // The parts don't fit in what is left of max-requests, the shard is ranked from its own pages
+                    budget.addAndGet(reserved);
+                    capped.set(true);
+                } else if (total > SEARCH_CAP) {
+                    truncated.set(true);
+                }
+                shards.incrementAndGet();
+                matched.addAndGet(total);
+                merge(firstPage);
+                int pages = (int) Math.ceil((double) Math.min(total, SEARCH_CAP) / ITEMS_PER_PAGE);
+                return CompletableFuture.completedFuture(List.of(new Leaf(shard, pages)));
+            });
+        }
+
+        // Phase 2: deeper pages hold fewer stars, so they are reserved page number by page number across the shards
+        // until max-requests runs out
+        private CompletableFuture<Void> fetchDeeperPages(List<Leaf> leaves) {
+            List<CompletableFuture<Void>> fetches = new ArrayList<>();
+            for (int page = 2; page <= SEARCH_CAP / ITEMS_PER_PAGE; page++) {
+                for (var leaf : leaves) {
+                    if (page > leaf.pages()) {
+                        continue;
+                    }
+                    if (reserve(1) == 0) {
+                        capped.set(true);
+                        return CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new));
+                    }
+                    int number = page;
+                    fetches.add(CompletableFuture.supplyAsync(() -> fetch(leaf.shard(), number), executor)
+                            .thenAccept(this::merge));
+                }
+            }
+            return CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new));
+        }
+
+        private void merge(GithubSearchResponse page) {
+            if (page != null && !page.items().isEmpty()) {
+                ranking.merge(popularityService.scorePage(page.items()));
+            }
+        }
+
+        // Takes up to the given number of calls from what is left of max-requests, answers how many it got
+        private int reserve(int calls) {
+            int left = budget.getAndUpdate(remaining -> Math.max(0, remaining - calls));
+            return Math.min(left, calls);
+        }
+
+        // Null when the page could not be fetched, after one retry. The first attempt is already reserved
+        private GithubSearchResponse fetch(Shard shard, int page) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                if (attempt > 0 && reserve(1) == 0) {
+                    log.warn("Deep crawl of {} has no requests left to retry page {}", language, page);
+                    break;
+                }
+                requests.incrementAndGet();
+                try {
+                    concurrency.acquire();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                try {
+                    var response = githubClient.searchRepositoriesCreatedBetween(Instant.ofEpochSecond(shard.from()),
+                            Instant.ofEpochSecond(shard.to()), language, page, ITEMS_PER_PAGE);
+                    if (response != null) {
+                        return response;
+                    }
+                } finally {
+                    concurrency.release();
+                }
+            }
+            missingPages.incrementAndGet();
+            return null;
+        }
+    }
+
+    // Shard small enough to paginate, with its number of pages
+    private record Leaf(Shard shard, int pages) {
+    }
+
+    // Repositories created within [from, to], epoch seconds, both inclusive
+    record Shard(long from, long to) {
+
+        boolean canSplit() {
+            return to > from;
+        }
+
+        List<Shard> split(int parts) {
+            long length = to - from + 1;
+            int count = (int) Math.min(Math.max(2, parts), length);
+            long step = length / count;
+            List<Shard> shards = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long start = from + i * step;
+                shards.add(new Shard(start, i == count - 1 ? to : start + step - 1));
+            }
+            return shards;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package sergio.task.githubrepository.service;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.configuration.CacheConfig;
+
+import java.time.Clock;
+import java.time.Duration;
+
+// Fills the in-memory cache from the disk store on startup. Entries older than the soft TTL are served
+// as they are and refreshed in the background, like any other stale entry
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.cache.disk", name = "enabled", havingValue = "true")
+public class DiskCacheWarmer {
+
+    private final CacheManager cacheManager;
+    private final RankingDiskStore diskStore;
+    private final Clock clock;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        var cache = cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        if (cache == null) {
+            return;
+        }
+
+        var stored = diskStore.loadAll();
+        // With their flags: an exhaustive ranking answers later dates of its language right away
+        stored.forEach((key, entry) -> cache.put(key, entry.ranking()));
+
+        if (cache.getNativeCache() instanceof LoadingCache<?, ?> nativeCache) {
+            @SuppressWarnings("unchecked")
+            var loadingCache = (LoadingCache<Object, Object>) nativeCache;
+            var softTtl = loadingCache.policy().refreshAfterWrite()
+                    .map(refresh -> refresh.getRefreshesAfter())
+                    .orElse(null);
+
+            if (softTtl != null) {
+                var now = clock.instant();
+                stored.forEach((key, entry) -> {
+                    if (Duration.between(entry.writtenAt(), now).compareTo(softTtl) >= 0) {
+                        loadingCache.refresh(key);
+                    }
+                });
+            }
+        }
+
+        log.info("Warmed {} rankings from the disk cache", stored.size());
+    }
+}
@@ -0,0 +1,154 @@
+package sergio.task.githubrepository.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Hedged requests for the page fan-out: when a page takes longer than the given percentile of recent page
+// latencies, a duplicate request is sent and whichever answers first wins. One slow GitHub shard then costs
+// about one percentile delay instead of its full latency, for a few percent of extra calls
+@Component
+public class HedgedPageFetcher implements MeterBinder {
+
+    private static final int WINDOW_SIZE = 256;
+    // The delay is recomputed every few samples, not on every call
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private int samples;
+    private int nextSample;
+    private volatile long hedgeDelayNanos;
+
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    public HedgedPageFetcher(@Value("${app.popularity.hedging.enabled:true}") boolean enabled,
+                             @Value("${app.popularity.hedging.percentile:0.95}") double percentile,
+                             @Value("${app.popularity.hedging.min-delay:200ms}") Duration minDelay,
+                             @Value("${app.popularity.hedging.initial-delay:1s}") Duration initialDelay) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.hedgeDelayNanos = Math.max(minDelayNanos, initialDelay.toNanos());
+    }
+
+    public <T> CompletableFuture<T> fetch(Supplier<T> call, Executor executor) {
+        var hedgedCall = new HedgedCall<>(call);
+        executor.execute(() -> hedgedCall.attempt(false));
+
+        if (enabled) {
+            // Only the hand-over waits on the timer, the hedge itself runs on the caller's executor like the page
+            CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS)
+                    .execute(() -> hedge(hedgedCall, executor));
+        }
+        return hedgedCall.result;
+    }
+
+    private <T> void hedge(HedgedCall<T> hedgedCall, Executor executor) {
+        if (!hedgedCall.startHedge()) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                hedges.incrementAndGet();
+                hedgedCall.attempt(true);
+            });
+        } catch (RejectedExecutionException ex) {
+            // The caller is done with its pages (executor shut down at the deadline), nobody waits for the hedge
+            hedgedCall.skipHedge();
+        }
+    }
+
+    public Duration hedgeDelay() {
+        return Duration.ofNanos(hedgeDelayNanos);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("popularity.page.hedges", hedges, AtomicLong::get)
+                .description("Duplicate page requests sent because the first one was slower than the hedge delay")
+                .register(registry);
+        FunctionCounter.builder("popularity.page.hedge.wins", hedgeWins, AtomicLong::get)
+                .description("Hedged page requests that answered before the original one")
+                .register(registry);
+        Gauge.builder("popularity.page.hedge.delay", this, fetcher -> fetcher.hedgeDelayNanos / 1_000_000.0)
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[nextSample] = nanos;
+        nextSample = (nextSample + 1) % WINDOW_SIZE;
+        samples = Math.min(samples + 1, WINDOW_SIZE);
+
+        if (samples >= RECOMPUTE_EVERY && nextSample % RECOMPUTE_EVERY == 0) {
+            long[] window = Arrays.copyOf(latencies, samples);
+            Arrays.sort(window);
+            int index = Math.min(samples - 1, (int) Math.ceil(percentile * samples) - 1);
+            hedgeDelayNanos = Math.max(minDelayNanos, window[Math.max(0, index)]);
+        }
+    }
+
+    private final class HedgedCall<T> {
+
+        private final Supplier<T> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private int running = 1;
+        private Exception failure;
+
+        private HedgedCall(Supplier<T> call) {
+            this.call = call;
+        }
+
+        private synchronized boolean startHedge() {
+            if (result.isDone()) {
+                return false;
+            }
+            running++;
+            return true;
+        }
+
+        private synchronized void skipHedge() {
+            finishAttempt();
+        }
+
+        private void attempt(boolean hedge) {
+            long start = System.nanoTime();
+            try {
+                T value = call.get();
+                recordLatency(System.nanoTime() - start);
+                if (result.complete(value) && hedge) {
+                    hedgeWins.incrementAndGet();
+                }
+            } catch (Exception ex) {
+                // The page only fails once every attempt has failed
+                synchronized (this) {
+                    failure = ex;
+                    finishAttempt();
+                }
+            }
+        }
+
+        private void finishAttempt() {
+            if (--running == 0 && failure != null) {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package sergio.task.githubrepository.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Refreshes that only fetch the repositories updated since the previous snapshot of the ranking
+@ConfigurationProperties(prefix = "app.popularity.incremental")
+public record IncrementalProperties(
+        boolean enabled,
+        int maxPages,
+        Duration fullRefreshEvery,
+        int maxKeys
+) {
+    public IncrementalProperties {
+        maxPages = maxPages <= 0 ? 3 : maxPages;
+        fullRefreshEvery = fullRefreshEvery == null ? Duration.ofHours(6) : fullRefreshEvery;
+        maxKeys = maxKeys <= 0 ? 100 : maxKeys;
+    }
+}
@@ -0,0 +1,161 @@
+package sergio.task.githubrepository.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.external.GithubClient;
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Incremental refresh of cached rankings:
+// - a full fan-out (cache miss, or a refresh that can't be incremental) indexes every page it fetches (RankingIndex)
+// - a refresh asks GitHub for the same search sorted by last update and reads pages until it reaches the
+//   repositories updated before the snapshot: only those changed (stars, forks, updated_at) or are new
+// - the changed repositories are rescored and moved in the index, plus the ones whose freshness bucket changed
+//   since they were scored (the day rolled over). Nothing else is touched
+// A refresh then costs one or two calls instead of the whole fan-out. It falls back to the full fan-out when the
+// delta doesn't fit in max-pages, a call fails, or the snapshot is older than full-refresh-every (renamed or deleted
+// repositories never show up in a delta, the full fan-out drops them)
+@Slf4j
+@Component
+public class IncrementalRankingRefresher implements MeterBinder {
+
+    private static final int ITEMS_PER_PAGE = 100;
+    // GitHub's search index lags behind the API, repositories updated just before the snapshot are read again
+    private static final Duration OVERLAP = Duration.ofMinutes(10);
+    // Entries kept beyond max-results, see RankingIndex
+    private static final int CAPACITY_FACTOR = 2;
+
+    // Resolved lazily: the cache-proxied service is built after the cache loader, which uses this class
+    private final ObjectProvider<PopularityService> popularityService;
+    private final GithubClient githubClient;
+    private final PopularityCalculator calculator;
+    private final IncrementalProperties properties;
+    private final int maxResults;
+    private final Clock clock;
+    private final Cache<PopularityCacheKey, RankingIndex> indexes;
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong rescored = new AtomicLong();
+
+    public IncrementalRankingRefresher(ObjectProvider<PopularityService> popularityService, GithubClient githubClient,
+                                       PopularityCalculator calculator, IncrementalProperties properties,
+                                       @Value("${app.popularity.max-results:500}") int maxResults, Clock clock) {
+        this.popularityService = popularityService;
+        this.githubClient = githubClient;
+        this.calculator = calculator;
+        this.properties = properties;
+        this.maxResults = maxResults;
+        this.clock = clock;
+        // Written by full fan-outs only: an index older than full-refresh-every is gone and the next refresh is full
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(properties.maxKeys())
+                .expireAfterWrite(properties.fullRefreshEvery())
+                .build();
+    }
+
+    // Regular load of the key, indexing the pages fetched from GitHub for the next refreshes
+    public PopularityRanking load(PopularityCacheKey key) {
+        var service = popularityService.getObject();
+        if (!properties.enabled()) {
+            return service.loadRanking(key);
+        }
+        var index = new RankingIndex(maxResults * CAPACITY_FACTOR, clock.instant(), today());
+        var ranking = service.loadRanking(key, index::upsert);
+        // Partial rankings miss pages, and an empty index means the ranking didn't come from this fan-out
+        if (ranking.partial() || index.size() == 0) {
+            indexes.invalidate(key);
+        } else {
+            index.markExhaustive(ranking.exhaustive());
+            indexes.put(key, index);
+        }
+        return ranking;
+    }
+
+    // Empty when the ranking has to be loaded again in full
+    public Optional<PopularityRanking> refresh(PopularityCacheKey key) {
+        var index = properties.enabled() ? indexes.getIfPresent(key) : null;
+        if (index == null) {
+            return Optional.empty();
+        }
+        var startedAt = clock.instant();
+        var delta = fetchDelta(key, LocalDateTime.ofInstant(index.snapshotAt().minus(OVERLAP), ZoneOffset.UTC));
+        if (delta.isEmpty()) {
+            fallbacks.incrementAndGet();
+            indexes.invalidate(key);
+            return Optional.empty();
+        }
+
+        var service = popularityService.getObject();
+        long today = today();
+        var changed = delta.get();
+        index.upsert(changed, service.scorePage(changed));
+        var crossed = index.crossedBuckets(calculator, today);
+        if (!crossed.isEmpty()) {
+            index.upsert(crossed, service.scorePage(crossed));
+        }
+        index.markSnapshot(startedAt, today);
+
+        refreshes.incrementAndGet();
+        rescored.addAndGet(changed.size() + crossed.size());
+        log.info("Incremental refresh of {} from {}: {} repositories updated, {} changed freshness bucket",
+                key.language(), key.createdAfter(), changed.size(), crossed.size());
+        return Optional.of(index.ranking(maxResults));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("popularity.refresh.incremental", refreshes, AtomicLong::get)
+                .description("Refreshes that only fetched the repositories updated since the previous snapshot")
+                .register(registry);
+        FunctionCounter.builder("popularity.refresh.incremental.fallbacks", fallbacks, AtomicLong::get)
+                .description("Incremental refreshes that had to fall back to the full fan-out")
+                .register(registry);
+        FunctionCounter.builder("popularity.refresh.incremental.rescored", rescored, AtomicLong::get)
+                .description("Repositories rescored by incremental refreshes")
+                .register(registry);
+    }
+
+    // Repositories updated after 'since', empty when the delta could not be read in full
+    private Optional<List<GithubRepositoryDto>> fetchDelta(PopularityCacheKey key, LocalDateTime since) {
+        List<GithubRepositoryDto> updated = new ArrayList<>();
+        for (int page = 1; page <= properties.maxPages(); page++) {
+            var response = githubClient.searchRecentlyUpdated(key.createdAfter(), key.language(), page, ITEMS_PER_PAGE);
+            if (response == null) {
+                return Optional.empty();
+            }
+            for (var repo : response.items()) {
+                // Most recently updated first: everything from here on is already in the snapshot
+                if (repo.updatedAt() == null || repo.updatedAt().isBefore(since)) {
+                    return Optional.of(updated);
+                }
+                updated.add(repo);
+            }
+            if (response.items().size() < ITEMS_PER_PAGE) {
+                return Optional.of(updated);
+            }
+        }
+        log.info("More than {} pages of updates for {} from {}, refreshing in full", properties.maxPages(),
+                key.language(), key.createdAfter());
+        return Optional.empty();
+    }
+
+    // Days as the calculator counts them, the freshness buckets are relative to its day
+    private long today() {
+        return calculator.today();
+    }
+}
@@ -0,0 +1,21 @@
+package sergio.task.githubrepository.service;
+
+// One query of a batch: the ranking, or the reason it couldn't be loaded (then ranking is null)
+public record PopularityBatchResult(
+        PopularityCacheKey key,
+        PopularityRanking ranking,
+        boolean cached,
+        String error
+) {
+    public static PopularityBatchResult cached(PopularityCacheKey key, PopularityRanking ranking) {
+        return new PopularityBatchResult(key, ranking, true, null);
+    }
+
+    public static PopularityBatchResult loaded(PopularityCacheKey key, PopularityRanking ranking) {
+        return new PopularityBatchResult(key, ranking, false, null);
+    }
+
+    public static PopularityBatchResult failed(PopularityCacheKey key, String error) {
+        return new PopularityBatchResult(key, null, false, error);
+    }
+}
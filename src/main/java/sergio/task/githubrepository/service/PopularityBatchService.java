@@ -0,0 +1,91 @@
+package sergio.task.githubrepository.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Several queries in one request: cached rankings are answered right away, the misses are loaded concurrently
+// on virtual threads. The loads of every batch share one permit pool, so a burst of batches can't start more
+// GitHub fan-outs at once than max-concurrency
+@Slf4j
+@Service
+public class PopularityBatchService {
+
+    // Goes through the cache proxy, the loads below are cached like single requests
+    private final PopularityService popularityService;
+    private final Semaphore loadPermits;
+    private final Duration maxWait;
+
+    public PopularityBatchService(PopularityService popularityService,
+                                  @Value("${app.popularity.batch.max-concurrency:4}") int maxConcurrency,
+                                  @Value("${app.popularity.batch.max-wait:10s}") Duration maxWait) {
+        this.popularityService = popularityService;
+        this.loadPermits = new Semaphore(maxConcurrency, true);
+        this.maxWait = maxWait;
+    }
+
+    // Results come back in the order of the queries, a query repeated in the batch is loaded once
+    public List<PopularityBatchResult> getPopularRepositories(List<PopularityCacheKey> queries) {
+        Map<PopularityCacheKey, PopularityBatchResult> results = new LinkedHashMap<>();
+        List<PopularityCacheKey> misses = new ArrayList<>();
+
+        for (var key : new LinkedHashSet<>(queries)) {
+            var cached = popularityService.peekRanking(key);
+            if (cached.isPresent()) {
+                results.put(key, PopularityBatchResult.cached(key, cached.get()));
+            } else {
+                misses.add(key);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                Map<PopularityCacheKey, Future<PopularityBatchResult>> loads = new LinkedHashMap<>();
+                for (var key : misses) {
+                    loads.put(key, executor.submit(() -> load(key)));
+                }
+                loads.forEach((key, load) -> results.put(key, await(key, load)));
+            }
+        }
+
+        return queries.stream().map(results::get).toList();
+    }
+
+    private PopularityBatchResult load(PopularityCacheKey key) throws InterruptedException {
+        if (!loadPermits.tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+            return PopularityBatchResult.failed(key, "Too many rankings being loaded, try again later");
+        }
+        try {
+            return PopularityBatchResult.loaded(key,
+                    popularityService.getPopularRepositories(key.createdAfter(), key.language()));
+        } finally {
+            loadPermits.release();
+        }
+    }
+
+    private PopularityBatchResult await(PopularityCacheKey key, Future<PopularityBatchResult> load) {
+        try {
+            return load.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return PopularityBatchResult.failed(key, "Interrupted");
+        } catch (ExecutionException ex) {
+            // One failed query doesn't fail the others
+            log.error("Error loading {} from {} in batch: {}", key.language(), key.createdAfter(),
+                    ex.getCause().getMessage());
+            return PopularityBatchResult.failed(key, "Could not load the ranking from GitHub");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package sergio.task.githubrepository.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Optional;
+
+// Normalized so that requests which mean the same search share an entry: GitHub's language qualifier is
+// case-insensitive and dates are kept in ISO form
+public record PopularityCacheKey(
+        String createdAfter,
+        String language
+) {
+    public static PopularityCacheKey of(String createdAfter, String language) {
+        return new PopularityCacheKey(normalizeDate(createdAfter), normalizeLanguage(language));
+    }
+
+    public Optional<LocalDate> createdAfterDate() {
+        try {
+            return Optional.of(LocalDate.parse(createdAfter));
+        } catch (DateTimeParseException | NullPointerException ex) {
+            return Optional.empty();
+        }
+    }
+
+    // Same language and an earlier date: the results of this key are a superset of the other key's results
+    public boolean covers(PopularityCacheKey other) {
+        if (!language.equals(other.language)) {
+            return false;
+        }
+        var since = createdAfterDate();
+        var otherSince = other.createdAfterDate();
+        return since.isPresent() && otherSince.isPresent() && since.get().isBefore(otherSince.get());
+    }
+
+    private static String normalizeDate(String createdAfter) {
+        if (createdAfter == null) {
+            return null;
+        }
+        var trimmed = createdAfter.trim();
+        try {
+            return LocalDate.parse(trimmed).toString();
+        } catch (DateTimeParseException ex) {
+            return trimmed;
+        }
+    }
+
+    private static String normalizeLanguage(String language) {
+        return language == null ? null : language.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,121 @@
+package sergio.task.githubrepository.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.configuration.CacheConfig;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+
+// Picked up by the Caffeine cache manager, so entries older than refreshAfterWrite are served stale
+// while this loader recomputes them in the background.
+// Misses check the persistent second level and then the shared tier (when enabled) before going to GitHub.
+// A disk hit keeps the age it was written with: past the soft TTL it is fetched again, like a stale entry would be
+// reloaded, and only served when GitHub answers with nothing.
+// Refreshes go to GitHub unless another instance refreshed the key recently, fetching only what changed since the
+// previous snapshot when they can (IncrementalRankingRefresher). Keys crawled by RankingPrecomputeJob keep their
+// ranking until the job crawls them again.
+// Rankings fetched from GitHub are persisted and published to the shared tier
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularityCacheLoader implements CacheLoader<Object, Object> {
+
+    private final IncrementalRankingRefresher refresher;
+    private final ObjectProvider<RankingDiskStore> diskStore;
+    private final SharedRankingTier sharedTier;
+    // Lazy, the cache manager is built with this loader
+    private final ObjectProvider<CacheManager> cacheManager;
+    // Lazy too, the job goes through the cache manager
+    private final ObjectProvider<RankingPrecomputeJob> precomputeJob;
+    private final Clock clock;
+
+    @Override
+    public Object load(Object key) {
+        var cacheKey = (PopularityCacheKey) key;
+        var store = diskStore.getIfAvailable();
+        PopularityRanking persisted = null;
+        if (store != null) {
+            var stored = store.get(cacheKey);
+            if (stored.isPresent()) {
+                persisted = stored.get().ranking();
+                if (!isStale(stored.get())) {
+                    return persisted;
+                }
+            }
+        }
+        var loaded = sharedTier.get(cacheKey).orElseGet(() -> fetchAndPersist(cacheKey));
+
+        // The circuit breaker fallback answers with an empty page, a stale disk hit is better than nothing
+        if (loaded.isEmpty() && persisted != null && !persisted.isEmpty()) {
+            log.warn("Load for {} returned no results, serving the ranking from the disk cache", key);
+            return persisted;
+        }
+        return loaded;
+    }
+
+    @Override
+    public Object reload(Object key, Object oldValue) {
+        var cacheKey = (PopularityCacheKey) key;
+        var job = precomputeJob.getIfAvailable();
+        if (job != null && job.isCrawled(cacheKey)) {
+            return oldValue;
+        }
+        var shared = sharedTier.getFresh(cacheKey);
+        if (shared.isPresent()) {
+            return shared.get();
+        }
+        var refreshed = refresher.refresh(cacheKey)
+                .map(ranking -> persist(cacheKey, ranking))
+                .orElseGet(() -> fetchAndPersist(cacheKey));
+
+        // The circuit breaker fallback answers with an empty page, don't let it wipe out a good ranking
+        if (refreshed.isEmpty() && oldValue instanceof PopularityRanking oldRanking && !oldRanking.isEmpty()) {
+            log.warn("Refresh for {} returned no results, keeping the previous ranking", key);
+            return oldValue;
+        }
+        return refreshed;
+    }
+
+    private boolean isStale(RankingDiskStore.StoredRanking stored) {
+        return softTtl()
+                .map(softTtl -> Duration.between(stored.writtenAt(), clock.instant()).compareTo(softTtl) >= 0)
+                .orElse(false);
+    }
+
+    // refreshAfterWrite of the github-repos cache
+    private Optional<Duration> softTtl() {
+        var manager = cacheManager.getIfAvailable();
+        var cache = manager != null ? manager.getCache(CacheConfig.GITHUB_REPOS_CACHE) : null;
+        if (cache != null && cache.getNativeCache() instanceof LoadingCache<?, ?> nativeCache) {
+            return nativeCache.policy().refreshAfterWrite().map(Policy.FixedRefresh::getRefreshesAfter);
+        }
+        return Optional.empty();
+    }
+
+    private PopularityRanking fetchAndPersist(PopularityCacheKey key) {
+        return persist(key, refresher.load(key));
+    }
+
+    private PopularityRanking persist(PopularityCacheKey key, PopularityRanking ranking) {
+        // Partial rankings only live in memory for their short TTL, a restart shouldn't bring them back
+        var store = diskStore.getIfAvailable();
+        if (store != null && !ranking.isEmpty() && !ranking.partial()) {
+            try {
+                store.put(key, ranking);
+            } catch (RuntimeException ex) {
+                // The disk tier is an optimization, a failed write must not fail the request
+                log.warn("Could not persist ranking for {}: {}", key, ex.getMessage());
+            }
+        }
+        sharedTier.publish(key, ranking);
+        return ranking;
+    }
+}
@@ -1,44 +1,169 @@
 package sergio.task.githubrepository.service;
 
-import lombok.RequiredArgsConstructor;
+import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Component;
 import sergio.task.githubrepository.external.model.GithubRepositoryDto;
 
+import java.time.Clock;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.List;
 
 @Component
-@RequiredArgsConstructor
+@AllArgsConstructor
 public class PopularityCalculator {
 
-    private final ScoringProperties scoringProps;
+    // Marks a repository without updated_at in the batch API, it gets the default multiplier
+    public static final long UNKNOWN_UPDATE_DAY = Long.MIN_VALUE;
+
+    // Freshness buckets, every repository of a bucket gets the same multiplier. Unknown update days go with DEFAULT
+    static final int VERY_RECENT = 0;
+    static final int RECENT = 1;
+    static final int DEFAULT = 2;
+    static final int OLD = 3;
+    static final int FRESHNESS_BUCKETS = 4;
+
+    // Most repositories in a result set have few forks (and many have few stars), so log10(n + 1)
+    // for small counts is read from a table instead of being computed
+    private static final int LOG_TABLE_SIZE = 4096;
+    private static final double[] LOG10_PLUS_ONE = new double[LOG_TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < LOG_TABLE_SIZE; i++) {
+            LOG10_PLUS_ONE[i] = Math.log10(i + 1);
+        }
+    }
+
+    // Replaced as a whole on a hot reload, every scoring pass reads it once
+    private volatile ScoringProperties scoringProps;
+    // UTC, like GitHub's updated_at: every freshness age, here and in the cached rankings, is counted on its days
+    private final Clock clock;
+
+    public ScoringProperties scoringProperties() {
+        return scoringProps;
+    }
+
+    // Epoch day the freshness buckets are relative to
+    public long today() {
+        return LocalDate.now(clock).toEpochDay();
+    }
+
+    // New fan-outs score with these right away, cached rankings are rescored when read (RankingRescorer)
+    public void updateScoringProperties(ScoringProperties scoringProps) {
+        this.scoringProps = scoringProps;
+    }
 
     public double calculateScore(GithubRepositoryDto repo) {
         if (repo == null) return 0.0;
 
-        double baseScore = Math.log10(repo.stars() + 1) * scoringProps.starsWeight();
-        baseScore += (Math.log10(repo.forks() + 1) * scoringProps.forksWeight());
+        var props = scoringProps;
+        double baseScore = baseScore(props, repo.stars(), repo.forks());
 
-        double freshnessMultiplier = calculateFreshnessMultiplier(repo.updatedAt());
+        // Same calendar-day buckets as the batch variant
+        var freshness = props.freshness();
+        double freshnessMultiplier = bucketMultiplier(freshness,
+                freshnessBucket(freshness, updatedEpochDay(repo.updatedAt()), today()));
 
         return baseScore * freshnessMultiplier;
     }
 
-    private double calculateFreshnessMultiplier(LocalDateTime updatedAt) {
-        if (updatedAt == null) return scoringProps.freshness().defaultMultiplier();
+    public double[] calculateScores(List<GithubRepositoryDto> repos) {
+        int size = repos.size();
+        int[] stars = new int[size];
+        int[] forks = new int[size];
+        long[] updatedEpochDays = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            var repo = repos.get(i);
+            stars[i] = repo.stars();
+            forks[i] = repo.forks();
+            updatedEpochDays[i] = updatedEpochDay(repo.updatedAt());
+        }
+
+        double[] scores = new double[size];
+        calculateScores(stars, forks, updatedEpochDays, scores);
+        return scores;
+    }
+
+    // Batch variant over primitive columns: one clock read per batch, freshness thresholds turned into
+    // epoch days up front, and a plain indexed loop the JIT can unroll. Ages are counted in calendar days
+    public void calculateScores(int[] stars, int[] forks, long[] updatedEpochDays, double[] scores) {
+        int size = scores.length;
+        if (stars.length < size || forks.length < size || updatedEpochDays.length < size) {
+            throw new IllegalArgumentException("Input arrays are shorter than the scores array (" + size + ")");
+        }
+
+        var props = scoringProps;
+        var freshness = props.freshness();
+        long today = today();
+        long veryRecentFrom = today - freshness.veryRecentDays();
+        long recentFrom = today - freshness.recentDays();
+        long oldBefore = today - freshness.oldDays();
+
+        double starsWeight = props.starsWeight();
+        double forksWeight = props.forksWeight();
+        double boostVeryRecent = freshness.boostVeryRecent();
+        double boostRecent = freshness.boostRecent();
+        double penaltyOld = freshness.penaltyOld();
+        double defaultMultiplier = freshness.defaultMultiplier();
+
+        for (int i = 0; i < size; i++) {
+            double baseScore = log10PlusOne(stars[i]) * starsWeight + log10PlusOne(forks[i]) * forksWeight;
+
+            long updatedDay = updatedEpochDays[i];
+            double multiplier;
+            if (updatedDay == UNKNOWN_UPDATE_DAY) {
+                multiplier = defaultMultiplier;
+            } else if (updatedDay >= veryRecentFrom) {
+                multiplier = boostVeryRecent;
+            } else if (updatedDay >= recentFrom) {
+                multiplier = boostRecent;
+            } else if (updatedDay < oldBefore) {
+                multiplier = penaltyOld;
+            } else {
+                multiplier = defaultMultiplier;
+            }
+
+            scores[i] = baseScore * multiplier;
+        }
+    }
+
+    static long updatedEpochDay(LocalDateTime updatedAt) {
+        return updatedAt != null ? updatedAt.toLocalDate().toEpochDay() : UNKNOWN_UPDATE_DAY;
+    }
 
-        long daysOld = ChronoUnit.DAYS.between(updatedAt, LocalDateTime.now());
+    // The part of the score that doesn't change over time
+    static double baseScore(ScoringProperties props, int stars, int forks) {
+        return log10PlusOne(stars) * props.starsWeight() + log10PlusOne(forks) * props.forksWeight();
+    }
 
-        if (daysOld <= scoringProps.freshness().veryRecentDays()) {
-            return scoringProps.freshness().boostVeryRecent();
+    // Bucket the batch variant puts a repository updated on updatedEpochDay in, on the given day
+    static int freshnessBucket(ScoringProperties.Freshness freshness, long updatedEpochDay, long today) {
+        if (updatedEpochDay == UNKNOWN_UPDATE_DAY) {
+            return DEFAULT;
         }
-        if (daysOld <= scoringProps.freshness().recentDays()) {
-            return scoringProps.freshness().boostRecent();
+        if (updatedEpochDay >= today - freshness.veryRecentDays()) {
+            return VERY_RECENT;
         }
-        if (daysOld > scoringProps.freshness().oldDays()) {
-            return scoringProps.freshness().penaltyOld();
+        if (updatedEpochDay >= today - freshness.recentDays()) {
+            return RECENT;
         }
+        if (updatedEpochDay < today - freshness.oldDays()) {
+            return OLD;
+        }
+        return DEFAULT;
+    }
+
+    static double bucketMultiplier(ScoringProperties.Freshness freshness, int bucket) {
+        return switch (bucket) {
+            case VERY_RECENT -> freshness.boostVeryRecent();
+            case RECENT -> freshness.boostRecent();
+            case OLD -> freshness.penaltyOld();
+            default -> freshness.defaultMultiplier();
+        };
+    }
 
-        return scoringProps.freshness().defaultMultiplier();
+    private static double log10PlusOne(int count) {
+        return count >= 0 && count < LOG_TABLE_SIZE ? LOG10_PLUS_ONE[count] : Math.log10(count + 1.0);
     }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package sergio.task.githubrepository.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.configuration.LanguageTagGuard;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-request view of a ranking load: how long the fan-out took, how many pages made it, how big the ranking is,
+// and the time spent scoring. Registered lazily, the service works without a registry
+@Component
+public class PopularityMetrics implements MeterBinder {
+
+    private final LanguageTagGuard languageTags;
+    private volatile MeterRegistry registry;
+    private volatile Timer scoringTimer;
+    private final AtomicLong coveringHits = new AtomicLong();
+
+    public PopularityMetrics(LanguageTagGuard languageTags) {
+        this.languageTags = languageTags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        this.scoringTimer = Timer.builder("popularity.scoring")
+                .description("Time to score one page of repositories")
+                .register(registry);
+        FunctionCounter.builder("popularity.cache.covering.hits", coveringHits, AtomicLong::get)
+                .description("Misses answered by filtering the cached ranking of an earlier date")
+                .register(registry);
+    }
+
+    public void recordCoveringHit() {
+        coveringHits.incrementAndGet();
+    }
+
+    public void recordScoring(long durationNanos) {
+        var timer = scoringTimer;
+        if (timer != null) {
+            timer.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordLoad(String language, int pagesFetched, PopularityRanking ranking, long durationNanos) {
+        var meterRegistry = registry;
+        if (meterRegistry == null) {
+            return;
+        }
+        var languageTag = languageTags.tag(language);
+        var partialTag = String.valueOf(ranking.partial());
+
+        Timer.builder("popularity.load")
+                .description("Time to fetch, score and rank all the pages of a query")
+                .tag("language", languageTag)
+                .tag("partial", partialTag)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("popularity.load.pages")
+                .description("GitHub pages that made it into the ranking")
+                .tag("language", languageTag)
+                .register(meterRegistry)
+                .record(pagesFetched);
+        DistributionSummary.builder("popularity.load.results")
+                .description("Repositories in the ranking")
+                .tag("language", languageTag)
+                .tag("partial", partialTag)
+                .register(meterRegistry)
+                .record(ranking.size());
+    }
+}
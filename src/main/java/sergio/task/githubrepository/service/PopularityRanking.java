@@ -0,0 +1,70 @@
+package sergio.task.githubrepository.service;
+
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Value stored in the github-repos cache. A ranking is partial when some pages were dropped (deadline or failure),
+// partial rankings are served but expire sooner than complete ones.
+// A ranking is exhaustive when it holds every repository matching the search (all pages fetched, nothing trimmed
+// by max-results), so the ranking of any later date is just this one filtered.
+// Items are always held in columnar form, see ColumnarRepositoryList
+public record PopularityRanking(List<RepositoryScoreResponse> items, boolean partial, boolean exhaustive) {
+
+    public PopularityRanking {
+        items = ColumnarRepositoryList.of(items);
+    }
+
+    public static PopularityRanking complete(List<RepositoryScoreResponse> items) {
+        return new PopularityRanking(items, false, false);
+    }
+
+    public static PopularityRanking partial(List<RepositoryScoreResponse> items) {
+        return new PopularityRanking(items, true, false);
+    }
+
+    public static PopularityRanking exhaustive(List<RepositoryScoreResponse> items) {
+        return new PopularityRanking(items, false, true);
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    // Weight of the entry in the github-repos cache
+    public long estimatedBytes() {
+        return ((ColumnarRepositoryList) items).estimatedBytes();
+    }
+
+    // Version of the ranking, the same for the same items on any instance. Pagination cursors and encoded bodies are
+    // tied to it. Cheap, the fingerprint is computed when the items are
+    public long version() {
+        long fingerprint = ((ColumnarRepositoryList) items).fingerprint();
+        return partial ? ~fingerprint : fingerprint;
+    }
+
+    // Repositories created after the given date, in the same order. Only exhaustive rankings can be narrowed
+    public Optional<PopularityRanking> createdAfter(LocalDate since) {
+        if (!exhaustive) {
+            return Optional.empty();
+        }
+        List<RepositoryScoreResponse> narrowed = new ArrayList<>(items.size());
+        for (var item : items) {
+            if (item.createdAt() == null) {
+                return Optional.empty();
+            }
+            // Same rule as GitHub's "created:>date" qualifier
+            if (item.createdAt().toLocalDate().isAfter(since)) {
+                narrowed.add(item);
+            }
+        }
+        return Optional.of(exhaustive(narrowed));
+    }
+}
@@ -3,17 +3,31 @@ package sergio.task.githubrepository.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import sergio.task.githubrepository.configuration.CacheConfig;
 import sergio.task.githubrepository.external.GithubClient;
 import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+import sergio.task.githubrepository.external.model.GithubSearchResponse;
 import sergio.task.githubrepository.model.RepositoryScoreResponse;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
 @Slf4j
@@ -22,27 +36,166 @@ import java.util.stream.IntStream;
 public class PopularityService {
 
     private static final int ITEMS_PER_PAGE = 100;//GitHub documentation says max 100
+    // Higher score first, ties keep GitHub's stars order and then a stable name order
+    public static final Comparator<RepositoryScoreResponse> RANKING_ORDER = Comparator
+            .comparingDouble(RepositoryScoreResponse::popularityScore)
+            .thenComparingInt(RepositoryScoreResponse::stars)
+            .thenComparing(RepositoryScoreResponse::fullName, Comparator.reverseOrder());
+    private static final Consumer<RankingAccumulator.Snapshot<RepositoryScoreResponse>> NO_PROGRESS = snapshot -> {
+    };
+    private static final BiConsumer<List<GithubRepositoryDto>, List<RepositoryScoreResponse>> NO_PAGES = (repos, scored) -> {
+    };
     private final GithubClient githubClient;
     private final PopularityCalculator calculator;
+    private final RequestCoalescer requestCoalescer;
+    private final CacheManager cacheManager;
+    private final HedgedPageFetcher hedgedPageFetcher;
+    private final PopularityMetrics metrics;
+    private final SharedRankingTier sharedTier;
     @Value("${app.github.max-pages-to-fetch:5}")
     private int maxPagesToFetch;
+    @Value("${app.popularity.max-results:500}")
+    private int maxResults;
+    @Value("${app.popularity.latency-budget:5s}")
+    private Duration latencyBudget;
 
     // I'm caching to improve performance and avoid hitting rate limits established by GitHub API
-    // We could implement a more sophisticated cache by saving to Redis or similar to avoid losing
-    // cache on app restart and shared cache with multiple instances (Distributed Cache)
-    @Cacheable(value = "github-repos", key = "#createdAfter + '-' + #language")
-    public List<RepositoryScoreResponse> getPopularRepositories(String createdAfter, String language) {
+    // The cache is a LoadingCache: misses and stale entries are loaded through PopularityCacheLoader
+    // (disk and shared tiers, stale-while-revalidate), and Caffeine already runs a single load per key
+    @Cacheable(value = CacheConfig.GITHUB_REPOS_CACHE, keyGenerator = "popularityCacheKeyGenerator")
+    public PopularityRanking getPopularRepositories(String createdAfter, String language) {
+        return loadRanking(PopularityCacheKey.of(createdAfter, language));
+    }
+
+    public PopularityRanking loadRanking(PopularityCacheKey key) {
+        return loadRanking(key, NO_PAGES);
+    }
+
+    // Every page fetched from GitHub is also handed to the listener, with its scores in the same order (the
+    // incremental refresh indexes them). Nothing is handed over when the ranking comes from another one, or from
+    // a concurrent caller's fan-out. Hedged pages may be handed over twice
+    public PopularityRanking loadRanking(PopularityCacheKey key,
+                                         BiConsumer<List<GithubRepositoryDto>, List<RepositoryScoreResponse>> pages) {
+        var covering = findCoveringRanking(key);
+        if (covering.isPresent()) {
+            return covering.get();
+        }
+        // Concurrent misses for the same key wait for the first caller instead of repeating the fan-out
+        return requestCoalescer.execute(key,
+                () -> fetchAndScoreRepositories(key.createdAfter(), key.language(), NO_PROGRESS, pages));
+    }
+
+    // Always goes to GitHub, without looking at the cache or storing the result
+    public PopularityRanking computeRanking(PopularityCacheKey key) {
+        return requestCoalescer.execute(key,
+                () -> fetchAndScoreRepositories(key.createdAfter(), key.language(), NO_PROGRESS, NO_PAGES));
+    }
+
+    // Progressive variant for the streaming endpoint: the partial ranking is published every time a page
+    // is merged, and the final one is stored in the cache like a regular load
+    public PopularityRanking streamPopularRepositories(String createdAfter, String language,
+                                                       Consumer<List<RepositoryScoreResponse>> onProgress) {
+        var key = PopularityCacheKey.of(createdAfter, language);
+        var cached = peekRanking(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        var ranking = requestCoalescer.execute(key,
+                () -> fetchAndScoreRepositories(key.createdAfter(), key.language(), new ProgressPublisher(onProgress),
+                        NO_PAGES));
+
+        var cache = cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        if (cache != null) {
+            cache.put(key, ranking);
+        }
+        sharedTier.publish(key, ranking);
+        return ranking;
+    }
+
+    // Cached ranking for the key, directly or through an earlier date, without loading anything
+    public Optional<PopularityRanking> peekRanking(PopularityCacheKey key) {
+        return findCachedRanking(key).or(() -> findCoveringRanking(key));
+    }
+
+    private Optional<PopularityRanking> findCachedRanking(PopularityCacheKey key) {
+        // Spring's get() would trigger the cache loader, the native cache lets us only peek
+        return nativeCache().map(cache -> (PopularityRanking) cache.getIfPresent(key));
+    }
+
+    // Dashboards slide their date window every day: a later date is answered by filtering an exhaustive ranking
+    // of an earlier date for the same language. The closest earlier date is used, it has the fewest items to filter.
+    // Scanning the entries is fine here, it only happens on a miss, which would otherwise cost several GitHub calls
+    private Optional<PopularityRanking> findCoveringRanking(PopularityCacheKey key) {
+        var since = key.createdAfterDate();
+        if (since.isEmpty()) {
+            return Optional.empty();
+        }
+
+        PopularityCacheKey bestKey = null;
+        PopularityRanking best = null;
+        for (var entry : nativeCache().map(cache -> cache.asMap().entrySet()).orElse(Set.of())) {
+            if (entry.getKey() instanceof PopularityCacheKey candidateKey && candidateKey.covers(key)
+                    && entry.getValue() instanceof PopularityRanking candidate && candidate.exhaustive()
+                    && (bestKey == null || bestKey.covers(candidateKey))) {
+                bestKey = candidateKey;
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            return Optional.empty();
+        }
+
+        var narrowed = best.createdAfter(since.get());
+        if (narrowed.isPresent()) {
+            log.info("Answering {} from {} from the cached ranking from {}", key.language(), key.createdAfter(),
+                    bestKey.createdAfter());
+            metrics.recordCoveringHit();
+        }
+        return narrowed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<com.github.benmanes.caffeine.cache.Cache<Object, Object>> nativeCache() {
+        var cache = cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+            return Optional.of((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache);
+        }
+        return Optional.empty();
+    }
 
+    private PopularityRanking fetchAndScoreRepositories(String createdAfter, String language,
+                                                        Consumer<RankingAccumulator.Snapshot<RepositoryScoreResponse>> onProgress,
+                                                        BiConsumer<List<GithubRepositoryDto>, List<RepositoryScoreResponse>> pages) {
         log.info("Starting search for: {} from {}", language, createdAfter);
+        long start = System.nanoTime();
+        // The latency budget covers the whole fan-out, page 1 included
+        long deadlineNanos = start + latencyBudget.toNanos();
 
         // 1. Fetch of Page 1 (to determine total results)
-        var firstPage = githubClient.searchRepositories(createdAfter, language, 1, ITEMS_PER_PAGE);
+        GithubSearchResponse firstPage;
+        try {
+            firstPage = fetchFirstPage(createdAfter, language, deadlineNanos);
+        } catch (TimeoutException ex) {
+            log.warn("Latency budget of {} exhausted on page 1 for {} from {}", latencyBudget, language, createdAfter);
+            var missing = PopularityRanking.partial(List.of());
+            metrics.recordLoad(language, 0, missing, System.nanoTime() - start);
+            return missing;
+        }
 
         if (firstPage == null || firstPage.items().isEmpty()) {
-            return List.of();
+            // Not exhaustive: the circuit breaker fallback looks the same as a search without results
+            var empty = PopularityRanking.complete(List.of());
+            metrics.recordLoad(language, firstPage == null ? 0 : 1, empty, System.nanoTime() - start);
+            return empty;
         }
 
-        List<GithubRepositoryDto> allRepos = Collections.synchronizedList(new ArrayList<>(firstPage.items()));
+        // Pages are scored and merged as they arrive and only the best maxResults are kept,
+        // the DTOs are dropped right away
+        var ranking = new RankingAccumulator<>(maxResults, RANKING_ORDER);
+        var firstScored = scorePage(firstPage.items());
+        pages.accept(firstPage.items(), firstScored);
+        onProgress.accept(ranking.merge(firstScored));
         var totalCount = firstPage.totalCount();
 
         // 2. Calculate pages to fetch
@@ -50,44 +203,154 @@ public class PopularityService {
         int pagesToFetch = Math.min(totalPages, maxPagesToFetch);
 
         // 3. Parallel Fetch Remaining Pages starting from page 2
+        int fetchedPages = 1;
         if (pagesToFetch > 1) {
-            fetchRestOfPagesInParallel(createdAfter, language, pagesToFetch, allRepos);
+            fetchedPages += fetchRestOfPagesInParallel(createdAfter, language, pagesToFetch, deadlineNanos, ranking,
+                    onProgress, pages);
         }
 
-        // 4. Map list of repos, calculate score and sort DESC
-        return allRepos.stream()
-                .map(this::mapToRepositoryScoreResponse)
-                .sorted((repo1, repo2) -> Double.compare(repo2.popularityScore(), repo1.popularityScore()))
-                .toList();
+        // 4. Best repos sorted by score DESC
+        var items = ranking.snapshot().items();
+        PopularityRanking result;
+        if (fetchedPages < pagesToFetch) {
+            result = PopularityRanking.partial(items);
+        } else if (pagesToFetch == totalPages && totalCount <= maxResults) {
+            // Every matching repository was fetched and kept
+            result = PopularityRanking.exhaustive(items);
+        } else {
+            result = PopularityRanking.complete(items);
+        }
+        metrics.recordLoad(language, fetchedPages, result, System.nanoTime() - start);
+        return result;
+    }
+
+    private GithubSearchResponse fetchFirstPage(String date, String language, long deadlineNanos)
+            throws TimeoutException {
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            return CompletableFuture.supplyAsync(() -> githubClient.searchRepositories(date, language, 1, ITEMS_PER_PAGE),
+                    executor).get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            // Same failure as calling GitHub on this thread
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            // A page 1 still in flight is interrupted and gives back its rate limit permit
+            executor.shutdownNow();
+        }
+    }
+
+    // Returns how many pages made it into the ranking before the deadline
+    private int fetchRestOfPagesInParallel(String date, String language, int endPage, long deadlineNanos,
+                                               RankingAccumulator<RepositoryScoreResponse> ranking,
+                                               Consumer<RankingAccumulator.Snapshot<RepositoryScoreResponse>> onProgress,
+                                               BiConsumer<List<GithubRepositoryDto>, List<RepositoryScoreResponse>> pages) {
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        var mergedPages = new AtomicInteger();
+        var finished = new AtomicBoolean();
+
+        try {
+            // Each page is merged on completion, in whatever order they finish
+            CompletableFuture<?>[] futures = IntStream.rangeClosed(2, endPage)
+                    .mapToObj(page -> hedgedPageFetcher.fetch(() -> fetchPage(date, language, page, pages), executor)
+                            .thenAccept(scored -> {
+                                // Pages arriving after the deadline are not part of the answer anymore
+                                if (!finished.get()) {
+                                    onProgress.accept(ranking.merge(scored));
+                                    mergedPages.incrementAndGet();
+                                }
+                            })
+                            .exceptionally(ex -> {
+                                if (!finished.get()) {
+                                    log.error("Error fetching page {}: {}", page, ex.getMessage());
+                                }
+                                return null;
+                            }))
+                    .toArray(CompletableFuture[]::new);
+
+            CompletableFuture.allOf(futures).get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            log.warn("Latency budget of {} exhausted for {} from {}, answering with the pages fetched so far",
+                    latencyBudget, language, date);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            // Failed pages are already handled one by one
+        } finally {
+            finished.set(true);
+            // Stragglers (slow pages, losing hedges) are interrupted so they give back their rate limit permits
+            executor.shutdownNow();
+        }
+        return mergedPages.get();
     }
 
-    private void fetchRestOfPagesInParallel(String date, String language, int endPage, List<GithubRepositoryDto> accumulatedResults) {
-        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+    private List<RepositoryScoreResponse> fetchPage(String date, String language, int page,
+                                                    BiConsumer<List<GithubRepositoryDto>, List<RepositoryScoreResponse>> pages) {
+        var response = githubClient.searchRepositories(date, language, page, ITEMS_PER_PAGE);
+        // The circuit breaker fallback answers with an empty page and no total, that page is missing, not empty
+        if (response == null || (response.totalCount() == 0 && response.items().isEmpty())) {
+            throw new IllegalStateException("GitHub returned no data for page " + page);
+        }
+        var scored = scorePage(response.items());
+        pages.accept(response.items(), scored);
+        return scored;
+    }
 
-            List<CompletableFuture<List<GithubRepositoryDto>>> futures = IntStream.rangeClosed(2, endPage)
-                    .mapToObj(page -> CompletableFuture.supplyAsync(() -> {
-                        var response = githubClient.searchRepositories(date, language, page, ITEMS_PER_PAGE);
-                        return response != null ? response.items() : Collections.<GithubRepositoryDto>emptyList();
-                    }, executor).exceptionally(ex -> {
-                        log.error("Error fetching page {}: {}", page, ex.getMessage());
-                        return Collections.emptyList();
-                    }))
-                    .toList();
+    // Also used by the deep crawl, so every path scores and maps pages the same way
+    public List<RepositoryScoreResponse> scorePage(List<GithubRepositoryDto> repos) {
+        long start = System.nanoTime();
+        double[] scores = calculator.calculateScores(repos);
 
-            futures.stream()
-                    .map(CompletableFuture::join)
-                    .forEach(accumulatedResults::addAll);
+        List<RepositoryScoreResponse> scored = new ArrayList<>(repos.size());
+        for (int i = 0; i < repos.size(); i++) {
+            scored.add(mapToRepositoryScoreResponse(repos.get(i), scores[i]));
         }
+        metrics.recordScoring(System.nanoTime() - start);
+        return scored;
     }
 
-    private RepositoryScoreResponse mapToRepositoryScoreResponse(GithubRepositoryDto repo) {
+    private RepositoryScoreResponse mapToRepositoryScoreResponse(GithubRepositoryDto repo, double score) {
         return new RepositoryScoreResponse(
                 repo.fullName(),
                 repo.stars(),
                 repo.forks(),
                 repo.language(),
-                calculator.calculateScore(repo),
-                repo.url()
+                score,
+                repo.url(),
+                repo.createdAt(),
+                repo.updatedAt()
         );
     }
+
+    // Pages complete concurrently, so a snapshot may reach us after a newer one: only publish forward.
+    // The listener writes to the client: a lock instead of synchronized, which would pin the page's virtual thread
+    // to its carrier for the whole write
+    private static final class ProgressPublisher implements Consumer<RankingAccumulator.Snapshot<RepositoryScoreResponse>> {
+
+        private final Consumer<List<RepositoryScoreResponse>> listener;
+        private final ReentrantLock lock = new ReentrantLock();
+        private long lastPublishedVersion;
+
+        private ProgressPublisher(Consumer<List<RepositoryScoreResponse>> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void accept(RankingAccumulator.Snapshot<RepositoryScoreResponse> snapshot) {
+            lock.lock();
+            try {
+                if (snapshot.version() > lastPublishedVersion) {
+                    lastPublishedVersion = snapshot.version();
+                    listener.accept(snapshot.items());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
 }
@@ -0,0 +1,24 @@
+package sergio.task.githubrepository.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+// Hot keys computed in the background: every language for every window ("last 30 days" is since = today - 30d)
+@ConfigurationProperties(prefix = "app.precompute")
+public record PrecomputeProperties(
+        boolean enabled,
+        List<String> languages,
+        List<Duration> windows,
+        Duration refreshEvery,
+        Duration retryAfter,
+        double minBudgetShare
+) {
+    public PrecomputeProperties {
+        languages = languages == null ? List.of() : List.copyOf(languages);
+        windows = windows == null ? List.of() : List.copyOf(windows);
+        refreshEvery = refreshEvery == null ? Duration.ofMinutes(8) : refreshEvery;
+        retryAfter = retryAfter == null ? Duration.ofMinutes(1) : retryAfter;
+    }
+}
@@ -0,0 +1,52 @@
+package sergio.task.githubrepository.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Lock-free running ranking: every page future merges its own (already sorted) top-K into the shared
+// immutable snapshot with a CAS, so results are available as soon as each page completes
+public class RankingAccumulator<T> {
+
+    private final int capacity;
+    private final Comparator<? super T> order;
+    private final AtomicReference<Snapshot<T>> current = new AtomicReference<>(new Snapshot<>(0, List.of()));
+
+    public RankingAccumulator(int capacity, Comparator<? super T> order) {
+        this.capacity = capacity;
+        this.order = order;
+    }
+
+    public Snapshot<T> merge(List<T> items) {
+        var collector = new TopKCollector<T>(capacity, order);
+        collector.offerAll(items);
+        var pageRanking = collector.toSortedList();
+
+        return current.updateAndGet(snapshot ->
+                new Snapshot<>(snapshot.version() + 1, mergeSorted(snapshot.items(), pageRanking)));
+    }
+
+    public Snapshot<T> snapshot() {
+        return current.get();
+    }
+
+    // Both inputs are best-first, a single linear pass keeps the best 'capacity' items
+    private List<T> mergeSorted(List<T> left, List<T> right) {
+        var merged = new ArrayList<T>(Math.min(capacity, left.size() + right.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < capacity && (i < left.size() || j < right.size())) {
+            if (j >= right.size() || (i < left.size() && order.compare(left.get(i), right.get(j)) >= 0)) {
+                merged.add(left.get(i++));
+            } else {
+                merged.add(right.get(j++));
+            }
+        }
+        return Collections.unmodifiableList(merged);
+    }
+
+    public record Snapshot<T>(long version, List<T> items) {
+    }
+}
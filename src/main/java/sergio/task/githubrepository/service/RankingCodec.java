@@ -0,0 +1,216 @@
+package sergio.task.githubrepository.service;
+
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compact binary form of a cached ranking, used by the persistent and shared cache tiers.
+//
+// Version 4: version | flags | size | languages | items
+// - languages is the table of distinct languages (count + strings), items refer to it by index + 1 (0 = none)
+// - item: fullName | stars | forks | score (double) | language | url kind [url] | createdAt | updatedAt
+// - counts, stars, forks and indexes are varints, dates are zigzag varints of the epoch second + 1 (0 = none)
+// - url kind: derived from the full name (GitHub's html_url), explicit (followed by the url) or none
+// About half the size of version 2, which repeated the language and url of every item. Version 3 is version 4
+// without updatedAt, its rankings are served with their stored scores (see RankingRescorer)
+public final class RankingCodec {
+
+    private static final byte FORMAT_VERSION = 4;
+    private static final byte FORMAT_VERSION_3 = 3;
+    // Version 2 adds the creation date to version 1, both are still read
+    private static final byte FORMAT_VERSION_2 = 2;
+    private static final byte FORMAT_VERSION_1 = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int FLAG_PARTIAL = 1;
+    private static final int FLAG_EXHAUSTIVE = 1 << 1;
+
+    private static final byte URL_DERIVED = 0;
+    private static final byte URL_EXPLICIT = 1;
+    private static final byte URL_NONE = 2;
+
+    private RankingCodec() {
+    }
+
+    public static byte[] encode(List<RepositoryScoreResponse> ranking) {
+        return encode(ranking, 0);
+    }
+
+    // Keeps the partial / exhaustive flags of the ranking
+    public static byte[] encode(PopularityRanking ranking) {
+        int flags = (ranking.partial() ? FLAG_PARTIAL : 0) | (ranking.exhaustive() ? FLAG_EXHAUSTIVE : 0);
+        return encode(ranking.items(), flags);
+    }
+
+    public static List<RepositoryScoreResponse> decode(byte[] payload) {
+        return decodeRanking(payload).items();
+    }
+
+    // Payloads written before version 3 have no flags and are read as complete rankings
+    public static PopularityRanking decodeRanking(byte[] payload) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = in.readByte();
+            return switch (version) {
+                case FORMAT_VERSION, FORMAT_VERSION_3 -> decodeCompact(in, version);
+                case FORMAT_VERSION_2, FORMAT_VERSION_1 -> PopularityRanking.complete(decodeLegacy(in, version));
+                default -> throw new IllegalArgumentException("Unsupported ranking format version " + version);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encode(List<RepositoryScoreResponse> ranking, int flags) {
+        Map<String, Integer> languageIndexes = new HashMap<>();
+        List<String> languages = new ArrayList<>();
+        for (var repo : ranking) {
+            if (repo.language() != null && !languageIndexes.containsKey(repo.language())) {
+                languageIndexes.put(repo.language(), languages.size() + 1);
+                languages.add(repo.language());
+            }
+        }
+
+        // ~50 bytes per repository, the full name dominates
+        var bytes = new ByteArrayOutputStream(16 + ranking.size() * 50);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(flags);
+            writeVarLong(out, ranking.size());
+            writeVarLong(out, languages.size());
+            for (var language : languages) {
+                out.writeUTF(language);
+            }
+            for (var repo : ranking) {
+                writeNullable(out, repo.fullName());
+                writeVarLong(out, repo.stars());
+                writeVarLong(out, repo.forks());
+                out.writeDouble(repo.popularityScore());
+                writeVarLong(out, repo.language() != null ? languageIndexes.get(repo.language()) : 0);
+                if (ColumnarRepositoryList.isDerivedUrl(repo.fullName(), repo.url())) {
+                    out.writeByte(URL_DERIVED);
+                } else if (repo.url() != null) {
+                    out.writeByte(URL_EXPLICIT);
+                    out.writeUTF(repo.url());
+                } else {
+                    out.writeByte(URL_NONE);
+                }
+                writeDate(out, repo.createdAt());
+                writeDate(out, repo.updatedAt());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static PopularityRanking decodeCompact(DataInputStream in, byte version) throws IOException {
+        int flags = in.readByte();
+        int size = (int) readVarLong(in);
+        String[] languages = new String[(int) readVarLong(in)];
+        for (int i = 0; i < languages.length; i++) {
+            languages[i] = in.readUTF();
+        }
+
+        List<RepositoryScoreResponse> ranking = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String fullName = readNullable(in);
+            int stars = (int) readVarLong(in);
+            int forks = (int) readVarLong(in);
+            double score = in.readDouble();
+            int languageIndex = (int) readVarLong(in);
+            String url = switch (in.readByte()) {
+                case URL_DERIVED -> ColumnarRepositoryList.githubUrl(fullName);
+                case URL_EXPLICIT -> in.readUTF();
+                default -> null;
+            };
+            var createdAt = readCompactDate(in);
+            var updatedAt = version == FORMAT_VERSION ? readCompactDate(in) : null;
+            ranking.add(new RepositoryScoreResponse(fullName, stars, forks,
+                    languageIndex > 0 ? languages[languageIndex - 1] : null, score, url, createdAt, updatedAt));
+        }
+        return new PopularityRanking(ranking, (flags & FLAG_PARTIAL) != 0, (flags & FLAG_EXHAUSTIVE) != 0);
+    }
+
+    private static List<RepositoryScoreResponse> decodeLegacy(DataInputStream in, byte version) throws IOException {
+        int size = in.readInt();
+        List<RepositoryScoreResponse> ranking = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ranking.add(new RepositoryScoreResponse(
+                    in.readUTF(),
+                    in.readInt(),
+                    in.readInt(),
+                    readNullable(in),
+                    in.readDouble(),
+                    readNullable(in),
+                    version == FORMAT_VERSION_2 ? readDate(in) : null
+            ));
+        }
+        return Collections.unmodifiableList(ranking);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDateTime value) throws IOException {
+        writeVarLong(out, value != null ? zigzag(value.toEpochSecond(ZoneOffset.UTC)) + 1 : 0);
+    }
+
+    private static LocalDateTime readCompactDate(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        return value == 0 ? null : LocalDateTime.ofEpochSecond(unzigzag(value - 1), 0, ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime readDate(DataInputStream in) throws IOException {
+        long epochSecond = in.readLong();
+        return epochSecond == NO_DATE ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    // 7 bits per byte, high bit set on every byte but the last
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,293 @@
+package sergio.task.githubrepository.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+// Second level of the github-repos cache: an append-only segment file, memory-mapped for reads, that survives
+// restarts so a fresh instance doesn't go back to GitHub for everything it already knew.
+//
+// Record: magic(int) | bodyLength(int) | body | crc32(body)
+// Body:   writtenAt(long) | expiresAt(long) | createdAfter | language | payloadLength(int) | payload
+// Strings are written as length(int) + UTF-8 bytes. The payload is a RankingCodec ranking with its partial /
+// exhaustive flags; records written before the flags were kept read as complete rankings
+//
+// A key written again supersedes the previous record, superseded and expired records are dropped by compaction.
+// A torn record at the end of the file (crash while appending) is truncated on open.
+@Slf4j
+public class RankingDiskStore implements Closeable {
+
+    static final String SEGMENT_FILE = "rankings.seg";
+    private static final String COMPACTION_FILE = "rankings.seg.compacting";
+    private static final int RECORD_MAGIC = 0x524B4731;
+    private static final int RECORD_OVERHEAD = Integer.BYTES * 3;
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final Path segmentPath;
+    private final Duration ttl;
+    private final double compactionThreshold;
+    private final Clock clock;
+    private final Map<PopularityCacheKey, RecordLocation> index = new HashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long segmentSize;
+    private long liveBytes;
+
+    public RankingDiskStore(Path directory, Duration ttl, double compactionThreshold, Clock clock) throws IOException {
+        this.directory = directory;
+        this.segmentPath = directory.resolve(SEGMENT_FILE);
+        this.ttl = ttl;
+        this.compactionThreshold = compactionThreshold;
+        this.clock = clock;
+
+        Files.createDirectories(directory);
+        open();
+        log.info("Ranking disk cache opened at {} with {} entries ({} bytes)", segmentPath, index.size(), segmentSize);
+    }
+
+    public synchronized Optional<StoredRanking> get(PopularityCacheKey key) {
+        var location = index.get(key);
+        if (location == null) {
+            return Optional.empty();
+        }
+        if (location.isExpired(clock.millis())) {
+            remove(key, location);
+            return Optional.empty();
+        }
+        return Optional.of(new StoredRanking(RankingCodec.decodeRanking(readPayload(location)),
+                Instant.ofEpochMilli(location.writtenAt())));
+    }
+
+    public synchronized void put(PopularityCacheKey key, PopularityRanking ranking) {
+        long now = clock.millis();
+        long expiresAt = now + ttl.toMillis();
+        byte[] createdAfter = key.createdAfter().getBytes(StandardCharsets.UTF_8);
+        byte[] language = key.language().getBytes(StandardCharsets.UTF_8);
+        byte[] record = encodeRecord(createdAfter, language, now, expiresAt, RankingCodec.encode(ranking));
+        int payloadOffset = 2 * Long.BYTES + 2 * Integer.BYTES + createdAfter.length + language.length;
+
+        try {
+            long offset = segmentSize;
+            writeFully(channel, ByteBuffer.wrap(record), offset);
+            segmentSize += record.length;
+
+            var previous = index.put(key, new RecordLocation(offset, record.length, payloadOffset, now, expiresAt));
+            liveBytes += record.length - (previous != null ? previous.recordLength() : 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append ranking to " + segmentPath, e);
+        }
+
+        if (segmentSize >= MIN_COMPACTION_BYTES && deadRatio() >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    // Live entries, used to warm the in-memory cache on startup
+    public synchronized Map<PopularityCacheKey, StoredRanking> loadAll() {
+        long now = clock.millis();
+        Map<PopularityCacheKey, StoredRanking> live = new HashMap<>();
+        for (var entry : Map.copyOf(index).entrySet()) {
+            var location = entry.getValue();
+            if (location.isExpired(now)) {
+                remove(entry.getKey(), location);
+            } else {
+                live.put(entry.getKey(), new StoredRanking(
+                        RankingCodec.decodeRanking(readPayload(location)), Instant.ofEpochMilli(location.writtenAt())));
+            }
+        }
+        return live;
+    }
+
+    // Rewrites only the live records into a new segment and swaps it in atomically
+    public synchronized void compact() {
+        long now = clock.millis();
+        var compactionPath = directory.resolve(COMPACTION_FILE);
+        long compactedSize = 0;
+
+        try (var target = FileChannel.open(compactionPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (var entry : index.entrySet()) {
+                var location = entry.getValue();
+                if (location.isExpired(now)) {
+                    continue;
+                }
+                var record = mappedSlice(location.offset(), location.recordLength());
+                writeFully(target, record, compactedSize);
+                compactedSize += location.recordLength();
+            }
+            target.force(true);
+        } catch (IOException e) {
+            log.warn("Ranking disk cache compaction failed, keeping the current segment: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            channel.close();
+            Files.move(compactionPath, segmentPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Ranking disk cache compacted from {} to {} bytes", segmentSize, compactedSize);
+            // Offsets changed, the index is rebuilt from the new segment
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not swap compacted segment " + compactionPath, e);
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long segmentSize() {
+        return segmentSize;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index.clear();
+        liveBytes = 0;
+        segmentSize = channel.size();
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+
+        long validSize = scan();
+        if (validSize < segmentSize) {
+            log.warn("Truncating {} bytes of incomplete records at the end of {}", segmentSize - validSize, segmentPath);
+            channel.truncate(validSize);
+            segmentSize = validSize;
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+        }
+    }
+
+    // Rebuilds the index from the records, stops at the first one that is incomplete or corrupted
+    private long scan() {
+        long position = 0;
+        while (position + RECORD_OVERHEAD <= segmentSize) {
+            int magic = mapped.getInt((int) position);
+            int bodyLength = mapped.getInt((int) position + Integer.BYTES);
+            long recordLength = (long) bodyLength + RECORD_OVERHEAD;
+            if (magic != RECORD_MAGIC || bodyLength <= 0 || position + recordLength > segmentSize) {
+                break;
+            }
+
+            var body = mappedSlice(position + 2 * Integer.BYTES, bodyLength);
+            int storedCrc = mapped.getInt((int) (position + 2 * Integer.BYTES + bodyLength));
+            var crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != storedCrc) {
+                break;
+            }
+
+            var header = readHeader(body);
+            var previous = index.put(header.key(), new RecordLocation(position, (int) recordLength,
+                    header.payloadOffset(), header.writtenAt(), header.expiresAt()));
+            liveBytes += recordLength - (previous != null ? previous.recordLength() : 0);
+            position += recordLength;
+        }
+        return position;
+    }
+
+    private byte[] readPayload(RecordLocation location) {
+        var body = mappedSlice(location.offset() + 2 * Integer.BYTES, location.recordLength() - RECORD_OVERHEAD);
+        body.position(location.payloadOffset());
+        int payloadLength = body.getInt();
+        byte[] payload = new byte[payloadLength];
+        body.get(payload);
+        return payload;
+    }
+
+    private ByteBuffer mappedSlice(long offset, int length) {
+        if (offset + length > mapped.capacity()) {
+            // Appended after the last mapping
+            try {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return mapped.slice((int) offset, length);
+    }
+
+    private void remove(PopularityCacheKey key, RecordLocation location) {
+        if (index.remove(key, location)) {
+            liveBytes -= location.recordLength();
+        }
+    }
+
+    private double deadRatio() {
+        return segmentSize == 0 ? 0 : 1.0 - (double) liveBytes / segmentSize;
+    }
+
+    private static byte[] encodeRecord(byte[] createdAfter, byte[] language, long writtenAt, long expiresAt, byte[] payload) {
+        int bodyLength = 2 * Long.BYTES + 3 * Integer.BYTES + createdAfter.length + language.length + payload.length;
+        var record = ByteBuffer.allocate(bodyLength + RECORD_OVERHEAD)
+                .putInt(RECORD_MAGIC)
+                .putInt(bodyLength)
+                .putLong(writtenAt)
+                .putLong(expiresAt)
+                .putInt(createdAfter.length).put(createdAfter)
+                .putInt(language.length).put(language)
+                .putInt(payload.length).put(payload);
+
+        var crc = new CRC32();
+        crc.update(record.array(), 2 * Integer.BYTES, bodyLength);
+        return record.putInt((int) crc.getValue()).array();
+    }
+
+    private static RecordHeader readHeader(ByteBuffer body) {
+        var in = body.duplicate();
+        long writtenAt = in.getLong();
+        long expiresAt = in.getLong();
+        var key = PopularityCacheKey.of(readString(in), readString(in));
+        return new RecordHeader(key, writtenAt, expiresAt, in.position());
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+
+    public record StoredRanking(PopularityRanking ranking, Instant writtenAt) {
+    }
+
+    private record RecordHeader(PopularityCacheKey key, long writtenAt, long expiresAt, int payloadOffset) {
+    }
+
+    private record RecordLocation(long offset, int recordLength, int payloadOffset, long writtenAt, long expiresAt) {
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package sergio.task.githubrepository.service;
+
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Snapshot of a ranking kept for incremental refreshes: every repository seen by full name, with the fields its
+// score is made of, and the entries kept in ranking order in a red-black tree. A delta costs O(log n) per changed
+// repository instead of sorting the whole ranking again, and the top K is an in-order walk.
+// Holds more than max-results (capacity): entries below the top can move up when others lose their freshness boost.
+// Not thread-safe on its own, every method is synchronized: pages of the seeding fan-out arrive concurrently
+final class RankingIndex {
+
+    private static final Comparator<Entry> ENTRY_ORDER =
+            Comparator.comparing(Entry::scored, PopularityService.RANKING_ORDER.reversed());
+
+    private final int capacity;
+    private final Map<String, Entry> byName = new HashMap<>();
+    private final TreeSet<Entry> ordered = new TreeSet<>(ENTRY_ORDER);
+    private Instant snapshotAt;
+    // Epoch day the scores were computed on, the freshness buckets are relative to it
+    private long scoredOnDay;
+    private boolean exhaustive;
+
+    RankingIndex(int capacity, Instant snapshotAt, long scoredOnDay) {
+        this.capacity = capacity;
+        this.snapshotAt = snapshotAt;
+        this.scoredOnDay = scoredOnDay;
+    }
+
+    // Repositories and their scores, in the same order. A repository already indexed is replaced
+    synchronized void upsert(List<GithubRepositoryDto> repos, List<RepositoryScoreResponse> scored) {
+        for (int i = 0; i < repos.size(); i++) {
+            var repo = repos.get(i);
+            var entry = new Entry(repo, scored.get(i));
+            var previous = byName.put(repo.fullName(), entry);
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+            ordered.add(entry);
+        }
+        // Lowest scores go first, the ranking can no longer claim to hold every matching repository
+        while (ordered.size() > capacity) {
+            byName.remove(ordered.pollLast().repo().fullName());
+            exhaustive = false;
+        }
+    }
+
+    // Repositories whose freshness bucket on 'today' differs from the one they were scored in
+    synchronized List<GithubRepositoryDto> crossedBuckets(PopularityCalculator calculator, long today) {
+        if (today == scoredOnDay) {
+            return List.of();
+        }
+        var freshness = calculator.scoringProperties().freshness();
+        List<GithubRepositoryDto> crossed = new ArrayList<>();
+        for (var entry : byName.values()) {
+            long updatedDay = PopularityCalculator.updatedEpochDay(entry.repo().updatedAt());
+            if (PopularityCalculator.freshnessBucket(freshness, updatedDay, scoredOnDay)
+                    != PopularityCalculator.freshnessBucket(freshness, updatedDay, today)) {
+                crossed.add(entry.repo());
+            }
+        }
+        return crossed;
+    }
+
+    synchronized void markSnapshot(Instant snapshotAt, long scoredOnDay) {
+        this.snapshotAt = snapshotAt;
+        this.scoredOnDay = scoredOnDay;
+    }
+
+    synchronized void markExhaustive(boolean exhaustive) {
+        this.exhaustive = exhaustive;
+    }
+
+    synchronized Instant snapshotAt() {
+        return snapshotAt;
+    }
+
+    synchronized int size() {
+        return ordered.size();
+    }
+
+    // Best maxResults entries. Exhaustive while every matching repository is indexed and all of them fit
+    synchronized PopularityRanking ranking(int maxResults) {
+        List<RepositoryScoreResponse> items = new ArrayList<>(Math.min(maxResults, ordered.size()));
+        for (var entry : ordered) {
+            if (items.size() == maxResults) {
+                break;
+            }
+            items.add(entry.scored());
+        }
+        return exhaustive && ordered.size() <= maxResults
+                ? PopularityRanking.exhaustive(items) : PopularityRanking.complete(items);
+    }
+
+    private record Entry(GithubRepositoryDto repo, RepositoryScoreResponse scored) {
+    }
+}
@@ -0,0 +1,165 @@
+package sergio.task.githubrepository.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.configuration.CacheConfig;
+import sergio.task.githubrepository.external.GithubRateLimiter;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keeps the rankings of the configured hot keys computed ahead of time, so those requests are memory reads.
+// - One key per tick, and only while enough of the GitHub budget is left, so the work is spread over time and
+//   user requests keep priority
+// - With app.popularity.crawl.enabled the ranking covers the whole result set (DateShardedCrawler) instead of the
+//   first pages
+// - A new ranking is computed outside the cache and replaces the previous one in a single put, only when it is
+//   complete. Until then readers keep getting the previous snapshot
+// - The work runs on its own virtual thread, one key at a time: a crawl takes minutes and must not hold the
+//   scheduler thread the other jobs share
+// - Crawled keys belong to this job: reloads and refresh-ahead leave them alone (isCrawled), a regular refresh
+//   would replace the whole result set with its first pages
+@Slf4j
+@Component
+public class RankingPrecomputeJob {
+
+    private final PopularityService popularityService;
+    private final DateShardedCrawler crawler;
+    private final CacheManager cacheManager;
+    private final GithubRateLimiter rateLimiter;
+    private final PrecomputeProperties properties;
+    private final SharedRankingTier sharedTier;
+    private final Clock clock;
+    private final Executor executor;
+    private final Map<PopularityCacheKey, Instant> nextRunAt = new ConcurrentHashMap<>();
+    private final Set<PopularityCacheKey> crawledKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Autowired
+    public RankingPrecomputeJob(PopularityService popularityService, DateShardedCrawler crawler,
+                                CacheManager cacheManager, GithubRateLimiter rateLimiter,
+                                PrecomputeProperties properties, SharedRankingTier sharedTier, Clock clock) {
+        this(popularityService, crawler, cacheManager, rateLimiter, properties, sharedTier, clock,
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    RankingPrecomputeJob(PopularityService popularityService, DateShardedCrawler crawler, CacheManager cacheManager,
+                         GithubRateLimiter rateLimiter, PrecomputeProperties properties,
+                         SharedRankingTier sharedTier, Clock clock, Executor executor) {
+        this.popularityService = popularityService;
+        this.crawler = crawler;
+        this.cacheManager = cacheManager;
+        this.rateLimiter = rateLimiter;
+        this.properties = properties;
+        this.sharedTier = sharedTier;
+        this.clock = clock;
+        this.executor = executor;
+    }
+
+    @Scheduled(initialDelayString = "${app.precompute.initial-delay:5s}", fixedDelayString = "${app.precompute.tick:20s}")
+    public void precomputeNext() {
+        if (!properties.enabled()) {
+            return;
+        }
+        var next = nextDueKey();
+        if (next.isEmpty()) {
+            return;
+        }
+        if (rateLimiter.remainingShare() < properties.minBudgetShare()) {
+            log.debug("Postponing precomputation of {}, GitHub budget is running low", next.get());
+            return;
+        }
+        // The previous key is still being computed, this tick is skipped
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    precompute(next.get());
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException ex) {
+            running.set(false);
+            throw ex;
+        }
+    }
+
+    // The cached ranking of the key comes from a deep crawl, which only this job refreshes
+    public boolean isCrawled(PopularityCacheKey key) {
+        return crawledKeys.contains(key);
+    }
+
+    Set<PopularityCacheKey> hotKeys() {
+        var today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+        Set<PopularityCacheKey> keys = new LinkedHashSet<>();
+        for (var window : properties.windows()) {
+            for (var language : properties.languages()) {
+                keys.add(PopularityCacheKey.of(today.minusDays(window.toDays()).toString(), language));
+            }
+        }
+        return keys;
+    }
+
+    private Optional<PopularityCacheKey> nextDueKey() {
+        var keys = hotKeys();
+        // Windows slide every day, yesterday's keys are not hot anymore
+        nextRunAt.keySet().retainAll(keys);
+        crawledKeys.retainAll(keys);
+
+        var now = clock.instant();
+        return keys.stream()
+                .filter(key -> !nextRunAt.getOrDefault(key, Instant.MIN).isAfter(now))
+                .min(Comparator.comparing(key -> nextRunAt.getOrDefault(key, Instant.MIN)));
+    }
+
+    private void precompute(PopularityCacheKey key) {
+        var cache = cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        if (cache == null) {
+            return;
+        }
+
+        try {
+            boolean crawled = crawler.isEnabled();
+            var ranking = crawled ? crawler.crawl(key) : popularityService.computeRanking(key);
+            // Native lookup, Spring's get() would trigger the cache loader
+            var previous = cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache
+                    ? (PopularityRanking) nativeCache.asMap().get(key) : null;
+            // The circuit breaker fallback answers with an empty page, don't let it wipe out a good snapshot
+            if (ranking.partial() || (ranking.isEmpty() && previous != null && !previous.isEmpty())) {
+                log.warn("Precomputed ranking for {} is incomplete, keeping the previous snapshot", key);
+                nextRunAt.put(key, clock.instant().plus(properties.retryAfter()));
+                return;
+            }
+
+            if (crawled) {
+                crawledKeys.add(key);
+            } else {
+                crawledKeys.remove(key);
+            }
+            cache.put(key, ranking);
+            sharedTier.publish(key, ranking);
+            nextRunAt.put(key, clock.instant().plus(properties.refreshEvery()));
+            log.debug("Precomputed ranking for {} ({} repositories)", key, ranking.size());
+        } catch (RuntimeException ex) {
+            log.warn("Could not precompute ranking for {}: {}", key, ex.getMessage());
+            nextRunAt.put(key, clock.instant().plus(properties.retryAfter()));
+        }
+    }
+}
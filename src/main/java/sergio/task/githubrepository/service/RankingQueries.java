@@ -0,0 +1,122 @@
+package sergio.task.githubrepository.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+// Filtered and re-sorted views of a cached ranking, so those queries reuse the one cached fetch instead of new cache
+// keys and GitHub calls. Per ranking instance, built once on its first query:
+// - sort permutations by stars and by forks (descending, ties in ranking order). The ranking itself is the score order
+// - a prefix index: positions sorted by lower-cased full name, a prefix is a range found by binary search
+// A query walks the permutation of its order and keeps the entries that pass the filters. A minimum on the sort
+// column stops the walk at the first entry below it. Results are kept per query next to the index
+@Component
+public class RankingQueries {
+
+    // Distinct queries remembered per ranking, the response cache is keyed by their instance
+    private static final int RESULTS_PER_RANKING = 64;
+
+    // Weak keys compare by identity, the index goes away with the ranking it was built from
+    private final Cache<PopularityRanking, QueryIndex> indexes = Caffeine.newBuilder().weakKeys().build();
+
+    public PopularityRanking apply(PopularityRanking ranking, RankingQuery query) {
+        if (query.isNone() || ranking.isEmpty()) {
+            return ranking;
+        }
+        var index = indexes.get(ranking, QueryIndex::new);
+        return index.results.get(query, index::run);
+    }
+
+    // Rankings with an index, after dropping those no longer referenced
+    long indexedRankings() {
+        indexes.cleanUp();
+        return indexes.estimatedSize();
+    }
+
+    // Must not reference the ranking it was built from: it is the value of a weak key, and would keep it reachable
+    private static final class QueryIndex {
+
+        private final ColumnarRepositoryList items;
+        private final boolean partial;
+        private final int[] byStars;
+        private final int[] byForks;
+        private final String[] sortedNames;
+        private final int[] byName;
+        private final Cache<RankingQuery, PopularityRanking> results = Caffeine.newBuilder()
+                .maximumSize(RESULTS_PER_RANKING)
+                .build();
+
+        QueryIndex(PopularityRanking ranking) {
+            this.items = (ColumnarRepositoryList) ranking.items();
+            this.partial = ranking.partial();
+            int size = items.size();
+            byStars = permutation(size, Comparator.<Integer>comparingInt(items::stars).reversed());
+            byForks = permutation(size, Comparator.<Integer>comparingInt(items::forks).reversed());
+            String[] names = new String[size];
+            for (int i = 0; i < size; i++) {
+                names[i] = items.fullName(i) != null ? items.fullName(i).toLowerCase(Locale.ROOT) : "";
+            }
+            byName = permutation(size, Comparator.comparing(i -> names[i]));
+            sortedNames = new String[size];
+            for (int i = 0; i < size; i++) {
+                sortedNames[i] = names[byName[i]];
+            }
+        }
+
+        PopularityRanking run(RankingQuery query) {
+            var prefixMatches = query.namePrefix() != null ? prefixMatches(query.namePrefix()) : null;
+            int size = items.size();
+            int[] selected = new int[prefixMatches != null ? prefixMatches.cardinality() : size];
+            int count = 0;
+            for (int position = 0; position < size && count < selected.length; position++) {
+                int i = switch (query.sort()) {
+                    case SCORE -> position;
+                    case STARS -> byStars[position];
+                    case FORKS -> byForks[position];
+                };
+                // The rest of the walk is below the minimum too
+                if (query.sort() == RankingQuery.Sort.STARS && items.stars(i) < query.minStars()
+                        || query.sort() == RankingQuery.Sort.FORKS && items.forks(i) < query.minForks()) {
+                    break;
+                }
+                if ((prefixMatches == null || prefixMatches.get(i))
+                        && items.stars(i) >= query.minStars() && items.forks(i) >= query.minForks()) {
+                    selected[count++] = i;
+                }
+            }
+            return new PopularityRanking(items.select(Arrays.copyOf(selected, count)), partial, false);
+        }
+
+        // Positions in the ranking of the names starting with the prefix
+        private BitSet prefixMatches(String prefix) {
+            var matches = new BitSet(items.size());
+            for (int at = lowerBound(prefix); at < sortedNames.length && sortedNames[at].startsWith(prefix); at++) {
+                matches.set(byName[at]);
+            }
+            return matches;
+        }
+
+        private int lowerBound(String prefix) {
+            int found = Arrays.binarySearch(sortedNames, prefix);
+            if (found < 0) {
+                return -found - 1;
+            }
+            // Case variants of the same name are equal once lower-cased, start from the first one
+            while (found > 0 && sortedNames[found - 1].equals(prefix)) {
+                found--;
+            }
+            return found;
+        }
+
+        // Positions sorted by the comparator, ties keep the ranking order
+        private static int[] permutation(int size, Comparator<Integer> order) {
+            return IntStream.range(0, size).boxed().sorted(order).mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package sergio.task.githubrepository.service;
+
+import java.util.Locale;
+
+// Filters and order applied to a cached ranking, see RankingQueries. Name prefixes match the full name
+// ("owner/repo"), case-insensitively like GitHub names
+public record RankingQuery(int minStars, int minForks, String namePrefix, Sort sort) {
+
+    public static final RankingQuery NONE = new RankingQuery(0, 0, null, Sort.SCORE);
+
+    public RankingQuery {
+        namePrefix = namePrefix == null || namePrefix.isBlank() ? null : namePrefix.trim().toLowerCase(Locale.ROOT);
+        sort = sort != null ? sort : Sort.SCORE;
+    }
+
+    public static RankingQuery of(Integer minStars, Integer minForks, String namePrefix, String sort) {
+        return new RankingQuery(minStars != null ? minStars : 0, minForks != null ? minForks : 0, namePrefix,
+                Sort.of(sort));
+    }
+
+    public boolean isNone() {
+        return equals(NONE);
+    }
+
+    public enum Sort {
+        SCORE, STARS, FORKS;
+
+        static Sort of(String value) {
+            if (value == null || value.isBlank()) {
+                return SCORE;
+            }
+            for (var sort : values()) {
+                if (sort.name().equalsIgnoreCase(value.trim())) {
+                    return sort;
+                }
+            }
+            throw new IllegalArgumentException("Invalid sort: '%s'. Expected one of: score, stars, forks.".formatted(value));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package sergio.task.githubrepository.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+// Scores of cached rankings as of today and with the current weights, applied when they are read. A score is
+// base (stars and forks, fixed while the weights are) x the multiplier of a freshness bucket (changes with the day):
+// - per ranking and weights: the base scores and the items ordered by base score, computed once
+// - per day: that order is split into the (at most four) freshness buckets. Every item of a bucket has the same
+//   multiplier, so each bucket is already in score order and the ranking is a four-way merge of them, O(n)
+// The view is kept until the day or the weights change, so the response cache sees the same ranking instance
+// meanwhile. Rankings without update dates (written by an older version) are served with their stored scores
+@Component
+@RequiredArgsConstructor
+public class RankingRescorer {
+
+    private static final Comparator<String> NAME_ORDER = Comparator.nullsLast(Comparator.naturalOrder());
+
+    private final PopularityCalculator calculator;
+    // Weak keys compare by identity, and the views are dropped with the cached ranking they were computed from
+    private final Cache<PopularityRanking, View> views = Caffeine.newBuilder().weakKeys().build();
+
+    public PopularityRanking current(PopularityRanking stored) {
+        var items = (ColumnarRepositoryList) stored.items();
+        if (stored.isEmpty() || !items.hasUpdatedAt()) {
+            return stored;
+        }
+        var props = calculator.scoringProperties();
+        // Days as the calculator counts them, so cached and freshly scored rankings agree
+        long today = calculator.today();
+        // Read path first: compute() locks the map bin, every reader of a hot ranking would queue on it
+        var current = views.getIfPresent(stored);
+        if (current != null && current.isFor(today, props)) {
+            return current.ranking();
+        }
+        return views.asMap().compute(stored, (key, view) -> {
+            if (view != null && view.isFor(today, props)) {
+                return view;
+            }
+            var base = view != null && view.base().props().equals(props) ? view.base() : BaseOrder.of(items, props);
+            return new View(base, today, rescore(stored, items, base, today));
+        }).ranking();
+    }
+
+    private static PopularityRanking rescore(PopularityRanking stored, ColumnarRepositoryList items, BaseOrder base,
+                                             long today) {
+        var freshness = base.props().freshness();
+        int size = items.size();
+
+        // Split the base order into buckets, each one stays in base order
+        int[] bucketOf = new int[size];
+        int[] bucketSizes = new int[PopularityCalculator.FRESHNESS_BUCKETS];
+        for (int i = 0; i < size; i++) {
+            bucketOf[i] = PopularityCalculator.freshnessBucket(freshness, items.updatedEpochDay(i), today);
+            bucketSizes[bucketOf[i]]++;
+        }
+        int[][] buckets = new int[PopularityCalculator.FRESHNESS_BUCKETS][];
+        double[] multipliers = new double[PopularityCalculator.FRESHNESS_BUCKETS];
+        for (int b = 0; b < buckets.length; b++) {
+            buckets[b] = new int[bucketSizes[b]];
+            multipliers[b] = PopularityCalculator.bucketMultiplier(freshness, b);
+        }
+        int[] filled = new int[buckets.length];
+        for (int index : base.order()) {
+            int b = bucketOf[index];
+            buckets[b][filled[b]++] = index;
+        }
+
+        // Merge the bucket heads, best first (RANKING_ORDER: score, then stars, then name)
+        int[] order = new int[size];
+        double[] scores = new double[size];
+        int[] heads = new int[buckets.length];
+        for (int out = 0; out < size; out++) {
+            int best = -1;
+            double bestScore = 0;
+            for (int b = 0; b < buckets.length; b++) {
+                if (heads[b] == buckets[b].length) {
+                    continue;
+                }
+                int candidate = buckets[b][heads[b]];
+                double score = base.scores()[candidate] * multipliers[b];
+                if (best == -1 || isBetter(items, candidate, score, buckets[best][heads[best]], bestScore)) {
+                    best = b;
+                    bestScore = score;
+                }
+            }
+            order[out] = buckets[best][heads[best]++];
+            scores[out] = bestScore;
+        }
+        return new PopularityRanking(items.reorder(order, scores), stored.partial(), stored.exhaustive());
+    }
+
+    private static boolean isBetter(ColumnarRepositoryList items, int candidate, double score, int other,
+                                    double otherScore) {
+        if (score != otherScore) {
+            return score > otherScore;
+        }
+        if (items.stars(candidate) != items.stars(other)) {
+            return items.stars(candidate) > items.stars(other);
+        }
+        return NAME_ORDER.compare(items.fullName(candidate), items.fullName(other)) < 0;
+    }
+
+    // Base scores with the given weights, and the items from the best base score to the worst
+    private record BaseOrder(ScoringProperties props, double[] scores, int[] order) {
+
+        static BaseOrder of(ColumnarRepositoryList items, ScoringProperties props) {
+            int size = items.size();
+            double[] scores = new double[size];
+            for (int i = 0; i < size; i++) {
+                scores[i] = PopularityCalculator.baseScore(props, items.stars(i), items.forks(i));
+            }
+            Comparator<Integer> best = Comparator.<Integer>comparingDouble(i -> scores[i]).reversed()
+                    .thenComparing(Comparator.<Integer>comparingInt(items::stars).reversed())
+                    .thenComparing(items::fullName, NAME_ORDER);
+            int[] order = IntStream.range(0, size).boxed().sorted(best).mapToInt(Integer::intValue).toArray();
+            return new BaseOrder(props, scores, order);
+        }
+    }
+
+    private record View(BaseOrder base, long today, PopularityRanking ranking) {
+
+        boolean isFor(long day, ScoringProperties props) {
+            return today == day && base.props().equals(props);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package sergio.task.githubrepository.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Shared tier on a Redis-protocol server, through Spring Data Redis (Lettuce): TLS, sentinel and cluster are
+// whatever spring.data.redis configures.
+// - Key: <prefix>ranking:<createdAfter>:<language>, written with a TTL so the server drops old rankings
+// - Value: writtenAt (epoch millis, long) | RankingCodec payload, which keeps the partial / exhaustive flags
+// - Every write is announced on <prefix>invalidate as "<instance id>\n<createdAfter>\n<language>", each instance
+//   ignores its own messages
+@Slf4j
+public class RedisRankingCache implements SharedRankingCache {
+
+    private final RedisTemplate<String, byte[]> redis;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String keyPrefix;
+    private final ChannelTopic channel;
+    private final Duration ttl;
+    private final Clock clock;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final List<MessageListener> listeners = new CopyOnWriteArrayList<>();
+
+    public RedisRankingCache(RedisConnectionFactory connectionFactory, RedisMessageListenerContainer listenerContainer,
+                             String keyPrefix, Duration ttl, Clock clock) {
+        this.redis = new RedisTemplate<>();
+        this.redis.setConnectionFactory(connectionFactory);
+        this.redis.setKeySerializer(RedisSerializer.string());
+        this.redis.setValueSerializer(RedisSerializer.byteArray());
+        this.redis.afterPropertiesSet();
+        this.listenerContainer = listenerContainer;
+        this.keyPrefix = keyPrefix;
+        this.channel = new ChannelTopic(keyPrefix + "invalidate");
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<SharedRanking> get(PopularityCacheKey key) {
+        byte[] value = redis.opsForValue().get(redisKey(key));
+        if (value == null) {
+            return Optional.empty();
+        }
+        var buffer = ByteBuffer.wrap(value);
+        var writtenAt = Instant.ofEpochMilli(buffer.getLong());
+        byte[] payload = new byte[buffer.remaining()];
+        buffer.get(payload);
+        return Optional.of(new SharedRanking(RankingCodec.decodeRanking(payload), writtenAt));
+    }
+
+    @Override
+    public void put(PopularityCacheKey key, PopularityRanking ranking) {
+        byte[] payload = RankingCodec.encode(ranking);
+        byte[] value = ByteBuffer.allocate(Long.BYTES + payload.length)
+                .putLong(clock.millis())
+                .put(payload)
+                .array();
+        redis.opsForValue().set(redisKey(key), value, ttl);
+        redis.convertAndSend(channel.getTopic(), String.join("\n", instanceId, key.createdAfter(), key.language())
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void onInvalidation(Consumer<PopularityCacheKey> listener) {
+        MessageListener messageListener = (message, pattern) -> {
+            var parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", -1);
+            if (parts.length != 3) {
+                log.warn("Ignoring malformed invalidation message on {}", channel.getTopic());
+            } else if (!instanceId.equals(parts[0])) {
+                listener.accept(new PopularityCacheKey(parts[1], parts[2]));
+            }
+        };
+        listeners.add(messageListener);
+        // The container subscribes again after a lost connection
+        listenerContainer.addMessageListener(messageListener, channel);
+    }
+
+    @Override
+    public void close() {
+        // The connection factory and the listener container are Spring beans, closed with the context
+        listeners.forEach(listenerContainer::removeMessageListener);
+        listeners.clear();
+    }
+
+    private String redisKey(PopularityCacheKey key) {
+        return keyPrefix + "ranking:" + key.createdAfter() + ":" + key.language();
+    }
+}
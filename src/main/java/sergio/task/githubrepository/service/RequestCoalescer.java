@@ -0,0 +1,63 @@
+package sergio.task.githubrepository.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+// Single-flight: concurrent callers asking for the same key share the computation started by the first one,
+// so a cache miss costs one GitHub fan-out no matter how many requests arrive at the same time
+@Component
+public class RequestCoalescer {
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCalls;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.coalescedCalls = Counter.builder("popularity.requests.coalesced")
+                .description("Callers that joined an in-flight computation instead of starting their own")
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> computation) {
+        var leader = new CompletableFuture<Object>();
+        var existing = inFlight.putIfAbsent(key, leader);
+
+        if (existing != null) {
+            coalescedCalls.increment();
+            return (T) await(existing);
+        }
+
+        try {
+            T result = computation.get();
+            leader.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            leader.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, leader);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            // Followers see the same failure as the leader, not the CompletableFuture wrapper
+            if (ex.getCause() instanceof RuntimeException runtimeEx) throw runtimeEx;
+            if (ex.getCause() instanceof Error error) throw error;
+            throw ex;
+        }
+    }
+}
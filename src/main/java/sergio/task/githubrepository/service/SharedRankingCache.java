@@ -0,0 +1,25 @@
+package sergio.task.githubrepository.service;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// Tier of github-repos shared by all the instances, so a ranking fetched from GitHub by one of them serves the
+// others. Implementations are best effort: callers treat any exception as a miss
+public interface SharedRankingCache extends Closeable {
+
+    Optional<SharedRanking> get(PopularityCacheKey key);
+
+    // Stores the ranking and tells the other instances that the key changed
+    void put(PopularityCacheKey key, PopularityRanking ranking);
+
+    // Called with the keys written by the other instances
+    void onInvalidation(Consumer<PopularityCacheKey> listener);
+
+    @Override
+    void close();
+
+    record SharedRanking(PopularityRanking ranking, Instant writtenAt) {
+    }
+}
@@ -0,0 +1,151 @@
+package sergio.task.githubrepository.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import sergio.task.githubrepository.configuration.CacheConfig;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// How the in-memory cache uses the shared tier (when one is configured, otherwise every call is a no-op):
+// - Misses read the shared ranking before going to GitHub, refreshes only reuse it when it is recent
+// - Complete rankings fetched from GitHub are published, partial ones stay local for their short TTL
+// - Near cache: a key written by another instance is replaced in this instance's cache with the shared ranking,
+//   when this instance holds that key
+// The shared tier is an optimization: after a failure it is skipped for a while and requests go on without it
+@Slf4j
+@Component
+public class SharedRankingTier implements MeterBinder {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(10);
+
+    private final SharedRankingCache sharedCache;
+    private final Supplier<CacheManager> cacheManager;
+    private final Duration reuseWithin;
+    private final Clock clock;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile long unavailableUntilMillis;
+
+    // The cache manager is resolved lazily: it is built with the cache loader, which uses this tier
+    @Autowired
+    public SharedRankingTier(ObjectProvider<SharedRankingCache> sharedCache, ObjectProvider<CacheManager> cacheManager,
+                             @Value("${app.cache.shared.reuse-within:5m}") Duration reuseWithin, Clock clock) {
+        this(sharedCache.getIfAvailable(), cacheManager::getObject, reuseWithin, clock);
+    }
+
+    SharedRankingTier(SharedRankingCache sharedCache, Supplier<CacheManager> cacheManager,
+                      Duration reuseWithin, Clock clock) {
+        this.sharedCache = sharedCache;
+        this.cacheManager = cacheManager;
+        this.reuseWithin = reuseWithin;
+        this.clock = clock;
+    }
+
+    public Optional<PopularityRanking> get(PopularityCacheKey key) {
+        return lookup(key, Duration.ofMillis(Long.MAX_VALUE));
+    }
+
+    // Only rankings written within reuse-within, a refresh must not bring back the ranking it is replacing
+    public Optional<PopularityRanking> getFresh(PopularityCacheKey key) {
+        return lookup(key, reuseWithin);
+    }
+
+    public void publish(PopularityCacheKey key, PopularityRanking ranking) {
+        if (ranking.isEmpty() || ranking.partial() || !isAvailable()) {
+            return;
+        }
+        call(key, () -> {
+            sharedCache.put(key, ranking);
+            return null;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribe() {
+        if (sharedCache != null) {
+            sharedCache.onInvalidation(this::onInvalidation);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (sharedCache == null) {
+            return;
+        }
+        FunctionCounter.builder("popularity.cache.shared.hits", hits, AtomicLong::get)
+                .description("Rankings loaded from the shared cache instead of GitHub")
+                .register(registry);
+        FunctionCounter.builder("popularity.cache.shared.misses", misses, AtomicLong::get)
+                .description("Shared cache lookups without a usable ranking")
+                .register(registry);
+        FunctionCounter.builder("popularity.cache.shared.errors", errors, AtomicLong::get)
+                .description("Shared cache calls that failed")
+                .register(registry);
+        FunctionCounter.builder("popularity.cache.shared.invalidations", invalidations, AtomicLong::get)
+                .description("Local rankings replaced after another instance wrote them")
+                .register(registry);
+    }
+
+    void onInvalidation(PopularityCacheKey key) {
+        var cache = cacheManager.get().getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)
+                || !nativeCache.asMap().containsKey(key)) {
+            // Keys this instance doesn't hold are read from the shared tier on their first miss
+            return;
+        }
+        invalidations.incrementAndGet();
+        var shared = call(key, () -> sharedCache.get(key));
+        if (shared != null && shared.isPresent()) {
+            cache.put(key, shared.get().ranking());
+        } else {
+            cache.evict(key);
+        }
+    }
+
+    private Optional<PopularityRanking> lookup(PopularityCacheKey key, Duration maxAge) {
+        if (!isAvailable()) {
+            return Optional.empty();
+        }
+        var shared = call(key, () -> sharedCache.get(key));
+        if (shared == null) {
+            return Optional.empty();
+        }
+        var ranking = shared
+                .filter(entry -> Duration.between(entry.writtenAt(), clock.instant()).compareTo(maxAge) < 0)
+                .map(SharedRankingCache.SharedRanking::ranking);
+        (ranking.isPresent() ? hits : misses).incrementAndGet();
+        return ranking;
+    }
+
+    // Null when the call failed
+    private <T> T call(PopularityCacheKey key, Supplier<T> action) {
+        try {
+            return action.get();
+        } catch (RuntimeException ex) {
+            errors.incrementAndGet();
+            unavailableUntilMillis = clock.millis() + RETRY_AFTER.toMillis();
+            log.warn("Shared cache call for {} failed, skipping the shared cache for {}: {}", key, RETRY_AFTER,
+                    ex.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isAvailable() {
+        return sharedCache != null && clock.millis() >= unavailableUntilMillis;
+    }
+}
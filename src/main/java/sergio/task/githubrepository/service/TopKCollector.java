@@ -0,0 +1,51 @@
+package sergio.task.githubrepository.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Keeps only the best K items seen so far: O(K) memory and O(n log K) work instead of sorting everything.
+// Not thread-safe, every fan-out owns its collector
+public class TopKCollector<T> {
+
+    private final int capacity;
+    private final Comparator<? super T> order;
+    // Min-heap on the ranking order, so the weakest retained item is always on top
+    private final PriorityQueue<T> heap;
+
+    public TopKCollector(int capacity, Comparator<? super T> order) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Top-K capacity must be positive, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.order = order;
+        this.heap = new PriorityQueue<>(Math.min(capacity, 1024), order);
+    }
+
+    public void offer(T item) {
+        if (heap.size() < capacity) {
+            heap.add(item);
+        } else if (order.compare(item, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+
+    public void offerAll(Collection<? extends T> items) {
+        items.forEach(this::offer);
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    // Best item first
+    public List<T> toSortedList() {
+        var sorted = new ArrayList<T>(heap);
+        sorted.sort(order.reversed());
+        return Collections.unmodifiableList(sorted);
+    }
+}
@@ -1,5 +1,6 @@
 package sergio.task.githubrepository.api;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,14 +9,31 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import sergio.task.githubrepository.model.RepositoryScoreResponse;
+import sergio.task.githubrepository.service.PopularityCacheKey;
+import sergio.task.githubrepository.service.PopularityRanking;
 import sergio.task.githubrepository.service.PopularityService;
+import sergio.task.githubrepository.service.RankingQuery;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
@@ -36,7 +54,7 @@ class PopularityControllerTest {
         );
 
         given(service.getPopularRepositories("2023-01-01", "java"))
-                .willReturn(List.of(mockResponse));
+                .willReturn(PopularityRanking.complete(List.of(mockResponse)));
 
         mockMvc.perform(get("/v1/repositories/popular")
                         .param("since", "2023-01-01")
@@ -53,7 +71,7 @@ class PopularityControllerTest {
     @DisplayName("Should return 200 OK and empty list when no repositories match criteria")
     void getPopularRepositories_EmptyResult() throws Exception {
         given(service.getPopularRepositories("2023-01-01", "cobol"))
-                .willReturn(Collections.emptyList());
+                .willReturn(PopularityRanking.complete(Collections.emptyList()));
 
         mockMvc.perform(get("/v1/repositories/popular")
                         .param("since", "2023-01-01")
@@ -91,4 +109,329 @@ class PopularityControllerTest {
                         .param("language", "java"))
                 .andExpect(status().isInternalServerError());
     }
+
+    @Test
+    @DisplayName("Should return only the first 'limit' repositories of the ranking")
+    void getPopularRepositories_WithLimit() throws Exception {
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(PopularityRanking.complete(List.of(
+                new RepositoryScoreResponse("test/first", 300, 50, "java", 300.0, "http://url1"),
+                new RepositoryScoreResponse("test/second", 200, 50, "java", 200.0, "http://url2"),
+                new RepositoryScoreResponse("test/third", 100, 50, "java", 100.0, "http://url3")
+        )));
+
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.items[1].fullName").value("test/second"));
+    }
+
+    @Test
+    @DisplayName("Should flag the response when the ranking is missing some pages")
+    void getPopularRepositories_PartialRanking() throws Exception {
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(PopularityRanking.partial(List.of(
+                new RepositoryScoreResponse("test/repo", 100, 50, "java", 200.0, "http://url"))));
+
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.partial").value(true))
+                .andExpect(jsonPath("$.count").value(1));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 Not Modified when If-None-Match carries the current ETag")
+    void getPopularRepositories_NotModified() throws Exception {
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(PopularityRanking.complete(List.of(
+                new RepositoryScoreResponse("test/repo", 100, 50, "java", 200.0, "http://url"))));
+
+        String etag = mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Should send the gzipped body to clients that accept it")
+    void getPopularRepositories_Gzip() throws Exception {
+        List<RepositoryScoreResponse> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            items.add(new RepositoryScoreResponse("test/repo-" + i, 100, 50, "java", 200.0 - i, "http://url" + i));
+        }
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(PopularityRanking.complete(items));
+
+        byte[] body = mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).contains("\"count\":50"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should send the plain body to clients that refuse gzip with a zero q-value")
+    void getPopularRepositories_GzipRefused() throws Exception {
+        List<RepositoryScoreResponse> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            items.add(new RepositoryScoreResponse("test/repo-" + i, 100, 50, "java", 200.0 - i, "http://url" + i));
+        }
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(PopularityRanking.complete(items));
+
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .header("Accept-Encoding", "gzip;q=0, *"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.count").value(50));
+    }
+
+    @Test
+    @DisplayName("Should return 400 Bad Request when limit is not positive")
+    void getPopularRepositories_InvalidLimit() throws Exception {
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should return a page of the ranking with the total and a cursor to the next page")
+    void getPopularRepositories_WithPage() throws Exception {
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(ranking("test/a", "test/b", "test/c"));
+
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("page", "1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.items[0].fullName").value("test/c"))
+                .andExpect(jsonPath("$.page.number").value(1))
+                .andExpect(jsonPath("$.page.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Should keep paging through the snapshot the cursor was cut from after the ranking is refreshed")
+    void getPopularRepositories_CursorOnSnapshot() throws Exception {
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(ranking("test/a", "test/b", "test/c"));
+        MvcResult first = mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[1].fullName").value("test/b"))
+                .andReturn();
+        String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.page.nextCursor");
+
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(ranking("test/new", "test/a", "test/b"));
+
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.items[0].fullName").value("test/c"))
+                .andExpect(jsonPath("$.page.number").value(1));
+    }
+
+    @Test
+    @DisplayName("Should filter and sort the cached ranking without loading it again")
+    void getPopularRepositories_WithFiltersAndSort() throws Exception {
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(PopularityRanking.complete(List.of(
+                new RepositoryScoreResponse("test/first", 300, 10, "java", 300.0, "http://url1"),
+                new RepositoryScoreResponse("other/second", 200, 90, "java", 200.0, "http://url2"),
+                new RepositoryScoreResponse("test/third", 100, 50, "java", 100.0, "http://url3")
+        )));
+
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("minForks", "20")
+                        .param("namePrefix", "test/")
+                        .param("sort", "forks"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.items[0].fullName").value("test/third"));
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("sort", "stars"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[1].fullName").value("other/second"));
+
+        verify(service, times(2)).getPopularRepositories("2023-01-01", "java");
+    }
+
+    @Test
+    @DisplayName("Should return 400 Bad Request when the sort order is unknown")
+    void getPopularRepositories_InvalidSort() throws Exception {
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("sort", "name"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should return 400 Bad Request when the cursor is sent with other filters than its first page")
+    void getPopularRepositories_CursorWithOtherFilters() throws Exception {
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(ranking("test/a", "test/b", "test/c"));
+        MvcResult first = mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.page.nextCursor");
+
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("sort", "forks")
+                        .param("cursor", cursor))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should return 400 Bad Request when the cursor is not one of ours")
+    void getPopularRepositories_InvalidCursor() throws Exception {
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("Invalid cursor: 'not-a-cursor'."));
+    }
+
+    @Test
+    @DisplayName("Should return 410 Gone when the snapshot of the cursor is no longer available")
+    void getPopularRepositories_ExpiredCursor() throws Exception {
+        given(service.getPopularRepositories("2023-01-01", "java")).willReturn(ranking("test/a", "test/b", "test/c"));
+
+        mockMvc.perform(get("/v1/repositories/popular")
+                        .param("since", "2023-01-01")
+                        .param("language", "java")
+                        .param("cursor", new PageCursor(42, PageCursor.scope(RankingQuery.NONE, null), 2, 2).encode()))
+                .andExpect(status().isGone());
+    }
+
+    @Test
+    @DisplayName("Should stream partial rankings followed by the complete ranking as server-sent events")
+    void streamPopularRepositories_ShouldEmitEvents() throws Exception {
+        var partial = List.of(new RepositoryScoreResponse("test/repo", 100, 50, "java", 200.0, "http://url"));
+        var complete = List.of(
+                new RepositoryScoreResponse("test/other", 300, 90, "java", 400.0, "http://url2"),
+                partial.getFirst());
+
+        given(service.streamPopularRepositories(eq("2023-01-01"), eq("java"), any())).willAnswer(invocation -> {
+            Consumer<List<RepositoryScoreResponse>> onProgress = invocation.getArgument(2);
+            onProgress.accept(partial);
+            return PopularityRanking.complete(complete);
+        });
+
+        MvcResult result = mockMvc.perform(get("/v1/repositories/popular/stream")
+                        .param("since", "2023-01-01")
+                        .param("language", "java"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(5000);
+
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("event:partial"));
+        assertTrue(body.contains("event:complete"));
+        assertTrue(body.indexOf("test/other") > body.indexOf("event:complete"));
+    }
+
+    @Test
+    @DisplayName("Should answer every query of a batch in order, cached ones without loading them")
+    void getPopularRepositoriesBatch_ShouldCombineCachedAndLoadedRankings() throws Exception {
+        given(service.peekRanking(PopularityCacheKey.of("2023-01-01", "java"))).willReturn(Optional.of(
+                PopularityRanking.complete(List.of(new RepositoryScoreResponse("test/java", 100, 50, "java", 200.0, "http://url1")))));
+        given(service.getPopularRepositories("2023-01-01", "go")).willReturn(PopularityRanking.partial(List.of(
+                new RepositoryScoreResponse("test/go", 10, 5, "go", 20.0, "http://url2"))));
+
+        mockMvc.perform(post("/v1/repositories/popular/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"queries": [
+                                    {"since": "01-01-2023", "language": "Java"},
+                                    {"since": "01-01-2023", "language": "go"}
+                                ]}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.results[0].language").value("java"))
+                .andExpect(jsonPath("$.results[0].cached").value(true))
+                .andExpect(jsonPath("$.results[0].items[0].fullName").value("test/java"))
+                .andExpect(jsonPath("$.results[1].since").value("01-01-2023"))
+                .andExpect(jsonPath("$.results[1].cached").value(false))
+                .andExpect(jsonPath("$.results[1].partial").value(true));
+
+        verify(service, never()).getPopularRepositories("2023-01-01", "java");
+    }
+
+    @Test
+    @DisplayName("Should report a failed query of a batch without failing the others")
+    void getPopularRepositoriesBatch_ShouldIsolateFailures() throws Exception {
+        given(service.getPopularRepositories("2023-01-01", "java"))
+                .willReturn(PopularityRanking.complete(List.of(new RepositoryScoreResponse("test/java", 100, 50, "java", 200.0, "http://url1"))));
+        given(service.getPopularRepositories("2023-01-01", "go")).willThrow(new RuntimeException("GitHub API is down"));
+
+        mockMvc.perform(post("/v1/repositories/popular/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"queries": [
+                                    {"since": "01-01-2023", "language": "java"},
+                                    {"since": "01-01-2023", "language": "go"}
+                                ], "limit": 1}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].count").value(1))
+                .andExpect(jsonPath("$.results[0].error").doesNotExist())
+                .andExpect(jsonPath("$.results[1].count").value(0))
+                .andExpect(jsonPath("$.results[1].error").exists());
+    }
+
+    @Test
+    @DisplayName("Should return 400 Bad Request when the batch has no queries")
+    void getPopularRepositoriesBatch_EmptyQueries() throws Exception {
+        mockMvc.perform(post("/v1/repositories/popular/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"queries\": []}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.title").value("Invalid Request Data"));
+    }
+
+    // Best first, scores decreasing with the position
+    private static PopularityRanking ranking(String... fullNames) {
+        List<RepositoryScoreResponse> items = new ArrayList<>();
+        for (int i = 0; i < fullNames.length; i++) {
+            items.add(new RepositoryScoreResponse(fullNames[i], 100 - i, 10, "java", 100.0 - i,
+                    "https://github.com/" + fullNames[i]));
+        }
+        return PopularityRanking.complete(items);
+    }
 }
\ No newline at end of file
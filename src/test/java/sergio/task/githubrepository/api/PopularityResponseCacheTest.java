@@ -0,0 +1,131 @@
+package sergio.task.githubrepository.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import sergio.task.githubrepository.model.PopularRepositoriesResponse;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+import sergio.task.githubrepository.service.PopularityRanking;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularityResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final PopularityResponseCache responseCache =
+            new PopularityResponseCache(objectMapper, DataSize.ofMegabytes(1), Duration.ofMinutes(5));
+
+    @Test
+    @DisplayName("Should encode a ranking once and reuse the same body for the same limit")
+    void get_ShouldReuseEncodedBody() {
+        var ranking = ranking(50);
+
+        var first = responseCache.get(ranking, 10);
+        var second = responseCache.get(ranking, 10);
+
+        assertSame(first, second);
+        assertEquals(1, responseCache.size());
+    }
+
+    @Test
+    @DisplayName("Should reuse the bodies of a refreshed ranking with the same items, and encode changed ones again")
+    void get_ShouldKeyBodiesByRankingVersion() {
+        var first = responseCache.get(ranking(50), 10);
+        var refreshed = responseCache.get(ranking(50), 10);
+        var changed = responseCache.get(ranking(51), 10);
+
+        assertSame(first, refreshed);
+        assertNotSame(first, changed);
+        // Same top 10, same ETag: clients revalidating across the refresh still get a 304
+        assertEquals(first.etag(), changed.etag());
+    }
+
+    @Test
+    @DisplayName("Should not keep replaced rankings alive through their encoded bodies")
+    void get_ShouldNotReferenceRankings() throws InterruptedException {
+        var replaced = new WeakReference<>(encodeOnce());
+
+        for (int attempt = 0; attempt < 50 && replaced.get() != null; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertNull(replaced.get());
+        assertEquals(1, responseCache.size());
+    }
+
+    @Test
+    @DisplayName("Should give each limit its own body and ETag")
+    void get_ShouldEncodeOnlyTheRequestedItems() throws IOException {
+        var ranking = ranking(50);
+
+        var top10 = responseCache.get(ranking, 10);
+        var top20 = responseCache.get(ranking, 20);
+
+        assertNotEquals(top10.etag(), top20.etag());
+        assertEquals(10, objectMapper.readTree(top10.json()).get("count").asInt());
+        assertEquals(10, objectMapper.readTree(top10.json()).get("items").size());
+    }
+
+    @Test
+    @DisplayName("Should encode a page as a slice of the ranking, with the total and the page metadata")
+    void get_ShouldEncodePages() throws IOException {
+        var ranking = ranking(50);
+        var page = new PopularRepositoriesResponse.Page(2, 10, "1f", "cursor");
+
+        var json = objectMapper.readTree(responseCache.get(ranking, 20, 10, 50, page).json());
+
+        assertEquals(10, json.get("count").asInt());
+        assertEquals(50, json.get("total").asInt());
+        assertEquals(ranking.items().get(20).fullName(), json.get("items").get(0).get("fullName").asText());
+        assertEquals("cursor", json.get("page").get("nextCursor").asText());
+        assertNotEquals(responseCache.get(ranking, 10).etag(), responseCache.get(ranking, 20, 10, 50, page).etag());
+    }
+
+    @Test
+    @DisplayName("Should keep a gzipped copy that inflates back to the JSON body")
+    void get_ShouldGzipLargeBodies() throws IOException {
+        var body = responseCache.get(ranking(50), 50);
+
+        assertTrue(body.hasGzip());
+        assertTrue(body.gzipped().length < body.json().length);
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(body.gzipped()))) {
+            assertArrayEquals(body.json(), in.readAllBytes());
+        }
+        assertTrue(body.etag().startsWith("W/\""));
+    }
+
+    @Test
+    @DisplayName("Should not gzip bodies too small to benefit from it")
+    void get_ShouldNotGzipSmallBodies() {
+        var body = responseCache.get(ranking(1), 1);
+
+        assertFalse(body.hasGzip());
+    }
+
+    // A ranking referenced by nothing but the cache once this returns
+    private PopularityRanking encodeOnce() {
+        var ranking = ranking(50);
+        responseCache.get(ranking, 10);
+        return ranking;
+    }
+
+    private static PopularityRanking ranking(int size) {
+        List<RepositoryScoreResponse> items = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            items.add(new RepositoryScoreResponse("test/repo-" + i, 1000 - i, 10, "java", 1000.0 - i,
+                    "http://github.com/test/repo-" + i));
+        }
+        return PopularityRanking.complete(items);
+    }
+}
@@ -0,0 +1,57 @@
+package sergio.task.githubrepository.api;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import sergio.task.githubrepository.service.PopularityCalculator;
+import sergio.task.githubrepository.service.ScoringProperties;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoringEndpointTest {
+
+    private static final ScoringProperties WEIGHTS = new ScoringProperties(1.0, 1.5,
+            new ScoringProperties.Freshness(3, 14, 365, 1.5, 1.2, 0.5, 1.0));
+
+    private final PopularityCalculator calculator = new PopularityCalculator(WEIGHTS, Clock.systemUTC());
+    private final ScoringEndpoint endpoint = new ScoringEndpoint(calculator);
+
+    @Test
+    @DisplayName("Should replace the fields given and keep the others")
+    void update_ShouldMergeWithCurrentWeights() {
+        var updated = endpoint.update(2.0, null, null, null, null, null, null, 0.25, null);
+
+        assertEquals(2.0, updated.starsWeight());
+        assertEquals(1.5, updated.forksWeight());
+        assertEquals(0.25, updated.freshness().penaltyOld());
+        assertEquals(updated, calculator.scoringProperties());
+    }
+
+    @Test
+    @DisplayName("Should reject weights and multipliers that are not finite numbers")
+    void update_ShouldRejectNonFiniteValues() {
+        assertThrows(InvalidEndpointRequestException.class,
+                () -> endpoint.update(Double.NaN, null, null, null, null, null, null, null, null));
+        assertThrows(InvalidEndpointRequestException.class,
+                () -> endpoint.update(null, Double.POSITIVE_INFINITY, null, null, null, null, null, null, null));
+        assertThrows(InvalidEndpointRequestException.class,
+                () -> endpoint.update(null, null, null, null, null, Double.NaN, null, null, null));
+        assertThrows(InvalidEndpointRequestException.class,
+                () -> endpoint.update(null, null, null, null, null, null, null, null, Double.POSITIVE_INFINITY));
+
+        assertEquals(WEIGHTS, calculator.scoringProperties());
+    }
+
+    @Test
+    @DisplayName("Should reject negative weights and unordered freshness days")
+    void update_ShouldRejectOutOfRangeValues() {
+        assertThrows(InvalidEndpointRequestException.class,
+                () -> endpoint.update(-1.0, null, null, null, null, null, null, null, null));
+        assertThrows(InvalidEndpointRequestException.class,
+                () -> endpoint.update(null, null, 30, 14, null, null, null, null, null));
+
+        assertEquals(WEIGHTS, calculator.scoringProperties());
+    }
+}
@@ -0,0 +1,41 @@
+package sergio.task.githubrepository.configuration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LanguageTagGuardTest {
+
+    @Test
+    @DisplayName("Should normalize the language so the same value always maps to the same tag")
+    void tag_ShouldNormalizeLanguage() {
+        var guard = new LanguageTagGuard(5);
+
+        assertEquals("java", guard.tag(" Java "));
+        assertEquals("java", guard.tag("JAVA"));
+        assertEquals(1, guard.admittedCount());
+    }
+
+    @Test
+    @DisplayName("Should tag languages past the limit as other")
+    void tag_ShouldCapDistinctLanguages() {
+        var guard = new LanguageTagGuard(2);
+
+        assertEquals("java", guard.tag("java"));
+        assertEquals("go", guard.tag("go"));
+        assertEquals(LanguageTagGuard.OTHER, guard.tag("rust"));
+        assertEquals("java", guard.tag("java"));
+        assertEquals(2, guard.admittedCount());
+    }
+
+    @Test
+    @DisplayName("Should tag a missing language as none")
+    void tag_ShouldHandleBlankLanguage() {
+        var guard = new LanguageTagGuard(2);
+
+        assertEquals(LanguageTagGuard.NONE, guard.tag(null));
+        assertEquals(LanguageTagGuard.NONE, guard.tag("  "));
+        assertEquals(0, guard.admittedCount());
+    }
+}
@@ -0,0 +1,131 @@
+package sergio.task.githubrepository.external;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+import sergio.task.githubrepository.configuration.LanguageTagGuard;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against a real local HTTP server, MockRestServiceServer doesn't go through the request factory
+// and can't show what was actually sent on the wire
+class GithubClientConditionalRequestTest {
+
+    private static final String ETAG = "\"page-v1\"";
+    private static final String BODY = """
+            {
+                "total_count": 1,
+                "items": [
+                    {
+                        "name": "test-repo",
+                        "full_name": "sergio/test-repo",
+                        "stargazers_count": 100,
+                        "forks_count": 20,
+                        "updated_at": "2023-10-01T12:00:00Z",
+                        "language": "Java",
+                        "html_url": "http://github.com/sergio/test-repo"
+                    }
+                ]
+            }
+            """;
+
+    private final List<String> receivedIfNoneMatch = new CopyOnWriteArrayList<>();
+    private final AtomicReference<String> currentEtag = new AtomicReference<>(ETAG);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+    private GithubEtagCache etagCache;
+    private GithubClient githubClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/search/repositories", exchange -> {
+            var ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            receivedIfNoneMatch.add(String.valueOf(ifNoneMatch));
+
+            exchange.getResponseHeaders().add("ETag", currentEtag.get());
+            if (currentEtag.get().equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+
+        var restClient = RestClient.builder()
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build();
+        etagCache = new GithubEtagCache(100, Duration.ofMinutes(5));
+        var searchMetrics = new GithubSearchMetrics(new LanguageTagGuard(20));
+        searchMetrics.bindTo(registry);
+        githubClient = new GithubClient(restClient, new GithubSearchResponseParser(),
+                new GithubRateLimiter(30, 10, 8, Duration.ofSeconds(1)), etagCache, searchMetrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should revalidate with If-None-Match and reuse the stored page on 304")
+    void searchRepositories_ShouldReuseStoredPageWhenNotModified() {
+        var first = githubClient.searchRepositories("2023-01-01", "java", 1, 100);
+        var second = githubClient.searchRepositories("2023-01-01", "java", 1, 100);
+
+        assertEquals(List.of("null", ETAG), receivedIfNoneMatch);
+        assertEquals(first, second);
+        assertEquals("sergio/test-repo", second.items().getFirst().fullName());
+    }
+
+    @Test
+    @DisplayName("Should download and store the page again when the ETag changed")
+    void searchRepositories_ShouldRefreshStoredPageWhenModified() {
+        githubClient.searchRepositories("2023-01-01", "java", 1, 100);
+        currentEtag.set("\"page-v2\"");
+
+        githubClient.searchRepositories("2023-01-01", "java", 1, 100);
+        githubClient.searchRepositories("2023-01-01", "java", 1, 100);
+
+        assertEquals(List.of("null", ETAG, "\"page-v2\""), receivedIfNoneMatch);
+    }
+
+    @Test
+    @DisplayName("Should keep a separate ETag for each page of the same query")
+    void searchRepositories_ShouldKeyEtagsByPage() {
+        githubClient.searchRepositories("2023-01-01", "java", 1, 100);
+        githubClient.searchRepositories("2023-01-01", "java", 2, 100);
+
+        assertEquals(List.of("null", "null"), receivedIfNoneMatch);
+        assertEquals(2, etagCache.size());
+    }
+
+    @Test
+    @DisplayName("Should time every search call by language, page and status")
+    void searchRepositories_ShouldRecordSearchLatency() {
+        githubClient.searchRepositories("2023-01-01", "java", 1, 100);
+        githubClient.searchRepositories("2023-01-01", "java", 1, 100);
+
+        var ok = registry.get("github.search.requests").tags("language", "java", "page", "1", "status", "200").timer();
+        var notModified = registry.get("github.search.requests").tags("language", "java", "page", "1", "status", "304").timer();
+        assertEquals(1, ok.count());
+        assertEquals(1, notModified.count());
+    }
+}
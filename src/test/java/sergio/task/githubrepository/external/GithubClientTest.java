@@ -11,6 +11,7 @@ import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import sergio.task.githubrepository.configuration.GithubRepositoryConfig;
+import sergio.task.githubrepository.configuration.LanguageTagGuard;
 import sergio.task.githubrepository.external.model.GithubSearchResponse;
 
 import static org.hamcrest.Matchers.containsString;
@@ -19,7 +20,9 @@ import static org.springframework.test.web.client.match.MockRestRequestMatchers.
 import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
 
 @RestClientTest(GithubClient.class)
-@Import(GithubRepositoryConfig.class)
+@Import({GithubRepositoryConfig.class, GithubSearchResponseParser.class, GithubRateLimiter.class,
+        GithubEtagCache.class, GithubTransportInterceptor.class,
+        GithubSearchMetrics.class, LanguageTagGuard.class})
 class GithubClientTest {
 
     private static final int ITEMS_PER_PAGE = 100;
@@ -0,0 +1,106 @@
+package sergio.task.githubrepository.external;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GithubRateLimiterTest {
+
+    private static final Duration SHORT_WAIT = Duration.ofMillis(50);
+
+    @Test
+    @DisplayName("Should cap the calls in flight and queue the rest until a slot is released")
+    void acquire_ShouldLimitInFlightCalls() {
+        var limiter = new GithubRateLimiter(30, 10, 1, SHORT_WAIT, Clock.systemUTC());
+
+        var permit = limiter.acquire(GithubRateLimiter.Priority.HIGH);
+        assertThrows(GithubRateLimitException.class, () -> limiter.acquire(GithubRateLimiter.Priority.HIGH));
+
+        permit.close();
+        assertDoesNotThrow(() -> limiter.acquire(GithubRateLimiter.Priority.HIGH).close());
+    }
+
+    @Test
+    @DisplayName("Should stop sending when GitHub reports the budget is exhausted")
+    void acquire_ShouldHonourReportedBudget() {
+        var limiter = new GithubRateLimiter(30, 10, 8, SHORT_WAIT, Clock.systemUTC());
+        var headers = new HttpHeaders();
+        headers.add("X-RateLimit-Limit", "30");
+        headers.add("X-RateLimit-Remaining", "0");
+        headers.add("X-RateLimit-Reset", String.valueOf(System.currentTimeMillis() / 1000 + 60));
+
+        limiter.update(headers);
+
+        assertThrows(GithubRateLimitException.class, () -> limiter.acquire(GithubRateLimiter.Priority.HIGH));
+    }
+
+    @Test
+    @DisplayName("Should stop sending until Retry-After has passed")
+    void acquire_ShouldHonourRetryAfter() {
+        var limiter = new GithubRateLimiter(30, 10, 8, SHORT_WAIT, Clock.systemUTC());
+        var headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, "30");
+
+        limiter.update(headers);
+
+        assertThrows(GithubRateLimitException.class, () -> limiter.acquire(GithubRateLimiter.Priority.LOW));
+    }
+
+    @Test
+    @DisplayName("Should hand a released slot to high priority callers first")
+    void acquire_ShouldServeHighPriorityFirst() throws Exception {
+        var limiter = new GithubRateLimiter(30, 10, 1, Duration.ofSeconds(5), Clock.systemUTC());
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        var held = limiter.acquire(GithubRateLimiter.Priority.HIGH);
+        var low = Thread.ofVirtual().start(() -> {
+            try (var permit = limiter.acquire(GithubRateLimiter.Priority.LOW)) {
+                order.add("low");
+            }
+        });
+        awaitWaiting(limiter, GithubRateLimiter.Priority.LOW);
+
+        var high = Thread.ofVirtual().start(() -> {
+            try (var permit = limiter.acquire(GithubRateLimiter.Priority.HIGH)) {
+                order.add("high");
+            }
+        });
+        awaitWaiting(limiter, GithubRateLimiter.Priority.HIGH);
+
+        held.close();
+        high.join(TimeUnit.SECONDS.toMillis(5));
+        low.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals(List.of("high", "low"), order);
+    }
+
+    @Test
+    @DisplayName("Should expose the budget state as metrics")
+    void bindTo_ShouldRegisterBudgetMetrics() {
+        var limiter = new GithubRateLimiter(30, 10, 8, SHORT_WAIT, Clock.systemUTC());
+        var registry = new SimpleMeterRegistry();
+        limiter.bindTo(registry);
+
+        limiter.acquire(GithubRateLimiter.Priority.HIGH);
+
+        assertEquals(29.0, registry.get("github.ratelimit.remaining").gauge().value());
+        assertEquals(1.0, registry.get("github.ratelimit.in.flight").gauge().value());
+        assertEquals(1, registry.get("github.ratelimit.wait").timer().count());
+    }
+
+    private static void awaitWaiting(GithubRateLimiter limiter, GithubRateLimiter.Priority priority) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (limiter.waitingCount(priority) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package sergio.task.githubrepository.external;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GithubSearchResponseParserTest {
+
+    private final GithubSearchResponseParser parser = new GithubSearchResponseParser();
+
+    @Test
+    @DisplayName("Should read the needed fields and skip nested objects we don't use")
+    void parse_ShouldSkipUnusedSubtrees() throws Exception {
+        String json = """
+                {
+                    "total_count": 2,
+                    "incomplete_results": false,
+                    "items": [
+                        {
+                            "id": 1,
+                            "name": "test-repo",
+                            "full_name": "sergio/test-repo",
+                            "owner": { "login": "sergio", "id": 7, "site_admin": false },
+                            "html_url": "http://github.com/sergio/test-repo",
+                            "topics": ["java", "spring"],
+                            "license": { "key": "mit", "name": "MIT License", "spdx_id": "MIT" },
+                            "stargazers_count": 100,
+                            "forks_count": 20,
+                            "created_at": "2023-02-15T08:00:00Z",
+                            "updated_at": "2023-10-01T12:00:00Z",
+                            "language": "Java",
+                            "score": 1.0
+                        },
+                        {
+                            "name": "no-language",
+                            "full_name": "sergio/no-language",
+                            "stargazers_count": 3,
+                            "forks_count": 0,
+                            "updated_at": null,
+                            "language": null,
+                            "license": null,
+                            "html_url": "http://github.com/sergio/no-language"
+                        }
+                    ]
+                }
+                """;
+
+        var response = parser.parse(stream(json));
+
+        assertEquals(2, response.totalCount());
+        assertEquals(2, response.items().size());
+        assertEquals(new GithubRepositoryDto("test-repo", "sergio/test-repo", 100, 20,
+                        LocalDateTime.of(2023, 10, 1, 12, 0), "Java", "http://github.com/sergio/test-repo",
+                        LocalDateTime.of(2023, 2, 15, 8, 0)),
+                response.items().getFirst());
+        assertNull(response.items().get(1).language());
+        assertNull(response.items().get(1).updatedAt());
+        assertNull(response.items().get(1).createdAt());
+    }
+
+    @Test
+    @DisplayName("Should hand items over one by one and return the total count")
+    void parse_ShouldStreamItems() throws Exception {
+        String json = """
+                {"items": [{"full_name": "a/a"}, {"full_name": "b/b"}], "total_count": 5000}
+                """;
+        List<String> names = new ArrayList<>();
+
+        long totalCount = parser.parse(stream(json), item -> names.add(item.fullName()));
+
+        assertEquals(5000, totalCount);
+        assertEquals(List.of("a/a", "b/b"), names);
+    }
+
+    @Test
+    @DisplayName("Should fail on malformed JSON")
+    void parse_ShouldRejectMalformedJson() {
+        assertThrows(JsonProcessingException.class, () -> parser.parse(stream("{ invalid_json: ")));
+        assertThrows(JsonProcessingException.class, () -> parser.parse(stream("[1, 2]")));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
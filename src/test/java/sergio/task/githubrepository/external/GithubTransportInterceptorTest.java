@@ -0,0 +1,101 @@
+package sergio.task.githubrepository.external;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.web.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GithubTransportInterceptorTest {
+
+    private static final String BODY = "{\"total_count\": 0, \"items\": []}";
+
+    private final GithubTransportInterceptor interceptor = new GithubTransportInterceptor();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+    private RestClient restClient;
+    private volatile String receivedAcceptEncoding;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byte[] gzipped = gzip(BODY);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gzip", exchange -> {
+            receivedAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, gzipped.length);
+            exchange.getResponseBody().write(gzipped);
+            exchange.close();
+        });
+        server.createContext("/plain", exchange -> {
+            byte[] plain = BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, plain.length);
+            exchange.getResponseBody().write(plain);
+            exchange.close();
+        });
+        server.start();
+
+        interceptor.bindTo(registry);
+        restClient = RestClient.builder()
+                .requestFactory(ClientHttpRequestFactoryBuilder.jdk().build())
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .requestInterceptor(interceptor)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should ask for gzip and hand back the inflated body")
+    void intercept_ShouldDecompressGzipResponses() {
+        var entity = restClient.get().uri("/gzip").retrieve().toEntity(String.class);
+
+        assertEquals("gzip", receivedAcceptEncoding);
+        assertEquals(BODY, entity.getBody());
+        assertNull(entity.getHeaders().getFirst("Content-Encoding"));
+        assertEquals(1.0, registry.get("github.http.gzip.responses").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should pass uncompressed responses through untouched")
+    void intercept_ShouldPassPlainResponsesThrough() {
+        var body = restClient.get().uri("/plain").retrieve().body(String.class);
+
+        assertEquals(BODY, body);
+        assertEquals(0.0, registry.get("github.http.gzip.responses").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should track open exchanges and the bytes received on the wire")
+    void intercept_ShouldRecordTransportMetrics() throws IOException {
+        restClient.get().uri("/gzip").retrieve().body(String.class);
+
+        var wireBytes = registry.get("github.http.response.wire.bytes").summary();
+        assertEquals(0, interceptor.openExchanges());
+        assertEquals(1, wireBytes.count());
+        assertEquals(gzip(BODY).length, wireBytes.totalAmount());
+    }
+
+    private static byte[] gzip(String value) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+}
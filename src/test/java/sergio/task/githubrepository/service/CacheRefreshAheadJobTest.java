@@ -0,0 +1,75 @@
+package sergio.task.githubrepository.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import sergio.task.githubrepository.configuration.CacheConfig;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class CacheRefreshAheadJobTest {
+
+    private final AtomicLong ticker = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final RankingPrecomputeJob precomputeJob = mock(RankingPrecomputeJob.class);
+    private CaffeineCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new CaffeineCacheManager(CacheConfig.GITHUB_REPOS_CACHE);
+        // The loader goes first, refreshAfterWrite needs a loading cache
+        cacheManager.setCacheLoader((CacheLoader<Object, Object>) key -> "ranking-" + loads.incrementAndGet());
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(100)
+                .refreshAfterWrite(Duration.ofMinutes(10))
+                .ticker(ticker::get)
+                .executor(Runnable::run));
+    }
+
+    @Test
+    @DisplayName("Should refresh hot keys that are close to their soft TTL")
+    void refreshHottestKeys_ShouldRefreshAgingEntries() {
+        var cache = cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        cache.get(PopularityCacheKey.of("2023-01-01", "java"));
+
+        ticker.addAndGet(Duration.ofMinutes(9).toNanos());
+        new CacheRefreshAheadJob(cacheManager, precomputeJob, 20, 0.8).refreshHottestKeys();
+
+        assertEquals(2, loads.get());
+        assertEquals("ranking-2", cache.get(PopularityCacheKey.of("2023-01-01", "java")).get());
+    }
+
+    @Test
+    @DisplayName("Should leave fresh entries alone")
+    void refreshHottestKeys_ShouldSkipFreshEntries() {
+        var cache = cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        cache.get(PopularityCacheKey.of("2023-01-01", "java"));
+
+        ticker.addAndGet(Duration.ofMinutes(2).toNanos());
+        new CacheRefreshAheadJob(cacheManager, precomputeJob, 20, 0.8).refreshHottestKeys();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should leave crawled keys to the precompute job")
+    void refreshHottestKeys_ShouldSkipCrawledKeys() {
+        var key = PopularityCacheKey.of("2023-01-01", "java");
+        var cache = cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        cache.get(key);
+        when(precomputeJob.isCrawled(key)).thenReturn(true);
+
+        ticker.addAndGet(Duration.ofMinutes(9).toNanos());
+        new CacheRefreshAheadJob(cacheManager, precomputeJob, 20, 0.8).refreshHottestKeys();
+
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,122 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarRepositoryListTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 1, 12, 30, 15);
+
+    @Test
+    @DisplayName("Should give back the same items it was built from")
+    void of_ShouldRoundTripItems() {
+        var items = List.of(
+                new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.5, "https://github.com/user/a", CREATED_AT),
+                new RepositoryScoreResponse("user/b", 200, 5, null, 205.0, "https://github.com/user/b", null),
+                new RepositoryScoreResponse("user/c", 100, 1, "Go", 101.25, "https://github.com/user/c",
+                        CREATED_AT.withNano(500_000_000)));
+
+        var columnar = ColumnarRepositoryList.of(items);
+
+        assertEquals(items, columnar);
+        assertEquals(3, columnar.size());
+        assertEquals(items.get(2), columnar.get(2));
+    }
+
+    @Test
+    @DisplayName("Should keep urls that can't be derived from the full name as they are")
+    void of_ShouldKeepExplicitUrls() {
+        var items = List.of(
+                new RepositoryScoreResponse("user/a", 300, 10, "java", 310.0, "http://mirror/user/a"),
+                new RepositoryScoreResponse("user/b", 200, 5, "java", 205.0, null),
+                new RepositoryScoreResponse("user/c", 100, 1, "java", 101.0, "https://github.com/user/c"));
+
+        var columnar = ColumnarRepositoryList.of(items);
+
+        assertEquals("http://mirror/user/a", columnar.get(0).url());
+        assertNull(columnar.get(1).url());
+        assertEquals("https://github.com/user/c", columnar.get(2).url());
+    }
+
+    @Test
+    @DisplayName("Should share a single instance of each language")
+    void of_ShouldInternLanguages() {
+        var first = ColumnarRepositoryList.of(List.of(repository("user/a", new String("Java"))));
+        var second = ColumnarRepositoryList.of(List.of(repository("user/b", new String("Java"))));
+
+        assertSame(first.get(0).language(), second.get(0).language());
+    }
+
+    @Test
+    @DisplayName("Should weigh less when urls are derived and grow with the number of items")
+    void estimatedBytes_ShouldReflectLayout() {
+        List<RepositoryScoreResponse> derived = new ArrayList<>();
+        List<RepositoryScoreResponse> explicit = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            derived.add(repository("user/repo-" + i, "java"));
+            explicit.add(new RepositoryScoreResponse("user/repo-" + i, i, i, "java", i, "http://mirror/user/repo-" + i));
+        }
+
+        long derivedBytes = ColumnarRepositoryList.of(derived).estimatedBytes();
+
+        assertTrue(derivedBytes < ColumnarRepositoryList.of(explicit).estimatedBytes());
+        assertTrue(derivedBytes > ColumnarRepositoryList.of(derived.subList(0, 50)).estimatedBytes());
+    }
+
+    @Test
+    @DisplayName("Should be read-only")
+    void of_ShouldNotBeModifiable() {
+        var columnar = ColumnarRepositoryList.of(List.of(repository("user/a", "java")));
+
+        assertThrows(UnsupportedOperationException.class, () -> columnar.add(repository("user/b", "java")));
+        assertThrows(UnsupportedOperationException.class, () -> columnar.set(0, repository("user/b", "java")));
+    }
+
+    @Test
+    @DisplayName("Should tell rankings apart by any field they serve")
+    void fingerprint_ShouldCoverEveryField() {
+        var item = new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.5, "https://github.com/user/a",
+                CREATED_AT, CREATED_AT.plusDays(1));
+        var variants = List.of(
+                new RepositoryScoreResponse("user/b", 300, 10, "Java", 310.5, "https://github.com/user/b",
+                        CREATED_AT, CREATED_AT.plusDays(1)),
+                new RepositoryScoreResponse("user/a", 300, 10, "Go", 310.5, "https://github.com/user/a",
+                        CREATED_AT, CREATED_AT.plusDays(1)),
+                new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.5, "http://mirror/user/a",
+                        CREATED_AT, CREATED_AT.plusDays(1)),
+                new RepositoryScoreResponse("user/a", 301, 10, "Java", 310.5, "https://github.com/user/a",
+                        CREATED_AT, CREATED_AT.plusDays(1)),
+                new RepositoryScoreResponse("user/a", 300, 11, "Java", 310.5, "https://github.com/user/a",
+                        CREATED_AT, CREATED_AT.plusDays(1)),
+                new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.25, "https://github.com/user/a",
+                        CREATED_AT, CREATED_AT.plusDays(1)),
+                new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.5, "https://github.com/user/a",
+                        CREATED_AT.minusDays(1), CREATED_AT.plusDays(1)),
+                new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.5, "https://github.com/user/a",
+                        CREATED_AT.withNano(1_000), CREATED_AT.plusDays(1)),
+                new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.5, "https://github.com/user/a",
+                        CREATED_AT, CREATED_AT.plusDays(2)));
+
+        long fingerprint = ColumnarRepositoryList.of(List.of(item)).fingerprint();
+
+        assertEquals(fingerprint, ColumnarRepositoryList.of(List.of(item)).fingerprint());
+        for (var variant : variants) {
+            assertNotEquals(fingerprint, ColumnarRepositoryList.of(List.of(variant)).fingerprint(), variant.toString());
+        }
+        // Same String.hashCode, different names
+        assertNotEquals(ColumnarRepositoryList.of(List.of(repository("Aa", "java"))).fingerprint(),
+                ColumnarRepositoryList.of(List.of(repository("BB", "java"))).fingerprint());
+    }
+
+    private static RepositoryScoreResponse repository(String fullName, String language) {
+        return new RepositoryScoreResponse(fullName, 10, 1, language, 11.0, "https://github.com/" + fullName,
+                CREATED_AT);
+    }
+}
@@ -0,0 +1,178 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sergio.task.githubrepository.external.GithubClient;
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+import sergio.task.githubrepository.external.model.GithubSearchResponse;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DateShardedCrawlerTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T00:00:00Z");
+    private static final PopularityCacheKey JAVA = PopularityCacheKey.of("2024-01-20", "java");
+    private static final CrawlProperties PROPERTIES = new CrawlProperties(true, 4, 500, Duration.ofMinutes(1));
+
+    private final GithubClient githubClient = mock(GithubClient.class);
+    private final PopularityService popularityService = mock(PopularityService.class);
+    private final AtomicInteger largestPageRequested = new AtomicInteger();
+    private final List<Integer> pagesRequested = Collections.synchronizedList(new ArrayList<>());
+    private List<GithubRepositoryDto> repositories;
+
+    @BeforeEach
+    void setUp() {
+        // Scored by stars, so the expected ranking is easy to compute
+        when(popularityService.scorePage(anyList())).thenAnswer(invocation -> {
+            List<GithubRepositoryDto> page = invocation.getArgument(0);
+            return page.stream()
+                    .map(repo -> new RepositoryScoreResponse(repo.fullName(), repo.stars(), repo.forks(),
+                            repo.language(), repo.stars(), repo.url(), repo.createdAt()))
+                    .toList();
+        });
+        when(githubClient.searchRepositoriesCreatedBetween(any(), any(), eq("java"), anyInt(), eq(100)))
+                .thenAnswer(invocation -> search(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(3)));
+    }
+
+    @Test
+    @DisplayName("Should split the range until every shard is under the cap and rank the whole result set")
+    void crawl_ShouldCoverResultsBeyondTheCap() {
+        // Most repositories are recent, and the best scores are not the ones GitHub would list first
+        repositories = repositories(3_500, 100);
+
+        var ranking = crawler(50).crawl(JAVA);
+
+        assertEquals(expectedTop(50), ranking.items());
+        assertFalse(ranking.partial());
+        assertFalse(ranking.exhaustive());
+        assertTrue(largestPageRequested.get() <= 10);
+    }
+
+    @Test
+    @DisplayName("Should flag the ranking as exhaustive when it holds every matching repository")
+    void crawl_ShouldBeExhaustiveForSmallResultSets() {
+        repositories = repositories(30, 100);
+
+        var ranking = crawler(50).crawl(JAVA);
+
+        assertEquals(expectedTop(30), ranking.items());
+        assertTrue(ranking.exhaustive());
+        verify(githubClient, times(1)).searchRepositoriesCreatedBetween(any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should answer with a partial ranking when a page is still missing after a retry")
+    void crawl_ShouldBePartialWhenPagesAreMissing() {
+        repositories = repositories(500, 100);
+        when(githubClient.searchRepositoriesCreatedBetween(any(), any(), eq("java"), eq(3), eq(100))).thenReturn(null);
+
+        var ranking = crawler(50).crawl(JAVA);
+
+        assertTrue(ranking.partial());
+        assertFalse(ranking.isEmpty());
+        verify(githubClient, times(2)).searchRepositoriesCreatedBetween(any(), any(), any(), eq(3), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should stay within max-requests and still answer with a complete ranking of the best repositories")
+    void crawl_ShouldPlanWithinMaxRequests() {
+        repositories = repositories(3_500, 100);
+        var crawler = new DateShardedCrawler(githubClient, popularityService,
+                new CrawlProperties(true, 4, 12, Duration.ofMinutes(1)), 50, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        var ranking = crawler.crawl(JAVA);
+
+        // Every shard's first page was fetched, so the best 100 of the whole result set are in
+        assertEquals(expectedTop(50), ranking.items());
+        assertFalse(ranking.partial());
+        assertFalse(ranking.exhaustive());
+        verify(githubClient, atMost(12)).searchRepositoriesCreatedBetween(any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should fetch the first page of every shard before any deeper page")
+    void crawl_ShouldPlanFirstPagesBeforeDeeperPages() {
+        repositories = repositories(3_500, 100);
+        var crawler = new DateShardedCrawler(githubClient, popularityService,
+                new CrawlProperties(true, 4, 20, Duration.ofMinutes(1)), 50, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        crawler.crawl(JAVA);
+
+        int firstDeeperPage = pagesRequested.indexOf(2);
+        assertTrue(firstDeeperPage > 0);
+        assertEquals(-1, pagesRequested.subList(firstDeeperPage, pagesRequested.size()).indexOf(1));
+        assertTrue(pagesRequested.size() <= 20);
+    }
+
+    @Test
+    @DisplayName("Should split a shard into disjoint ranges covering it")
+    void split_ShouldCoverShardWithoutOverlap() {
+        var parts = new DateShardedCrawler.Shard(100, 199).split(3);
+
+        assertEquals(List.of(new DateShardedCrawler.Shard(100, 132), new DateShardedCrawler.Shard(133, 165),
+                new DateShardedCrawler.Shard(166, 199)), parts);
+        assertEquals(List.of(new DateShardedCrawler.Shard(5, 5), new DateShardedCrawler.Shard(6, 6)),
+                new DateShardedCrawler.Shard(5, 6).split(10));
+    }
+
+    private DateShardedCrawler crawler(int maxResults) {
+        return new DateShardedCrawler(githubClient, popularityService, PROPERTIES, maxResults,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    // Like GitHub: sorted by stars, paginated, only the first 1000 results reachable
+    private GithubSearchResponse search(Instant from, Instant to, int page) {
+        largestPageRequested.accumulateAndGet(page, Math::max);
+        pagesRequested.add(page);
+        var matching = repositories.stream()
+                .filter(repo -> {
+                    var created = repo.createdAt().toInstant(ZoneOffset.UTC);
+                    return !created.isBefore(from) && !created.isAfter(to);
+                })
+                .sorted(Comparator.comparingInt(GithubRepositoryDto::stars).reversed())
+                .toList();
+        int first = Math.min((page - 1) * 100, Math.min(1000, matching.size()));
+        int last = Math.min(first + 100, Math.min(1000, matching.size()));
+        return new GithubSearchResponse(matching.size(), matching.subList(first, last));
+    }
+
+    private List<RepositoryScoreResponse> expectedTop(int count) {
+        return repositories.stream()
+                .sorted(Comparator.comparingInt(GithubRepositoryDto::stars).reversed())
+                .limit(count)
+                .map(repo -> new RepositoryScoreResponse(repo.fullName(), repo.stars(), repo.forks(), repo.language(),
+                        repo.stars(), repo.url(), repo.createdAt()))
+                .toList();
+    }
+
+    private static List<GithubRepositoryDto> repositories(int count, int days) {
+        var end = LocalDateTime.ofInstant(NOW, ZoneOffset.UTC);
+        List<GithubRepositoryDto> repos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Quadratic spread: more repositories close to now
+            double position = Math.sqrt((double) i / count);
+            var createdAt = end.minusSeconds((long) ((1 - position) * days * 86_400) + 1);
+            // Distinct stars, unrelated to the creation order
+            int stars = (int) ((i * 7919L) % 1_000_003);
+            repos.add(new GithubRepositoryDto("repo-" + i, "user/repo-" + i, stars, 1, createdAt, "java",
+                    "https://github.com/user/repo-" + i, createdAt));
+        }
+        return repos;
+    }
+}
@@ -0,0 +1,127 @@
+package sergio.task.githubrepository.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedPageFetcherTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should send a duplicate request when the first one is slower than the hedge delay")
+    void fetch_ShouldHedgeSlowCalls() {
+        var fetcher = fetcher(Duration.ofMillis(50));
+        var attempts = new AtomicInteger();
+
+        var result = fetcher.fetch(() -> {
+            // The first attempt hangs, the hedge answers straight away
+            if (attempts.incrementAndGet() == 1) {
+                sleep(5_000);
+                return "slow";
+            }
+            return "hedged";
+        }, executor);
+
+        assertEquals("hedged", result.join());
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, registry.get("popularity.page.hedges").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should not hedge calls that answer before the hedge delay")
+    void fetch_ShouldNotHedgeFastCalls() throws InterruptedException {
+        var fetcher = fetcher(Duration.ofMillis(200));
+        var attempts = new AtomicInteger();
+
+        var result = fetcher.fetch(() -> "page-" + attempts.incrementAndGet(), executor);
+        assertEquals("page-1", result.join());
+
+        Thread.sleep(300);
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, registry.get("popularity.page.hedges").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should only fail when every attempt has failed")
+    void fetch_ShouldFailWhenAllAttemptsFail() {
+        var fetcher = fetcher(Duration.ofMillis(50));
+        var attempts = new AtomicInteger();
+
+        var result = fetcher.fetch(() -> {
+            int attempt = attempts.incrementAndGet();
+            sleep(100);
+            throw new IllegalStateException("attempt " + attempt);
+        }, executor);
+
+        var ex = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    @DisplayName("Should skip the hedge once the caller's executor is shut down")
+    void fetch_ShouldSkipHedgeAfterShutdown() {
+        var fetcher = fetcher(Duration.ofMillis(50));
+        var attempts = new AtomicInteger();
+
+        var result = fetcher.fetch(() -> {
+            attempts.incrementAndGet();
+            sleep(200);
+            throw new IllegalStateException("slow page");
+        }, executor);
+        // Like the fan-out at its deadline, before the hedge delay
+        executor.shutdown();
+
+        var ex = assertThrows(CompletionException.class, result::join);
+        assertEquals("slow page", ex.getCause().getMessage());
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, registry.get("popularity.page.hedges").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should derive the hedge delay from the observed latencies")
+    void fetch_ShouldAdaptDelayToLatencyPercentile() {
+        var fetcher = new HedgedPageFetcher(false, 0.5, Duration.ofMillis(1), Duration.ofSeconds(1));
+
+        for (int i = 0; i < 16; i++) {
+            fetcher.fetch(() -> {
+                sleep(20);
+                return "page";
+            }, executor).join();
+        }
+
+        assertTrue(fetcher.hedgeDelay().compareTo(Duration.ofMillis(500)) < 0,
+                "Delay should follow the ~20 ms latencies, was " + fetcher.hedgeDelay());
+        assertTrue(fetcher.hedgeDelay().compareTo(Duration.ofMillis(20)) >= 0);
+    }
+
+    private HedgedPageFetcher fetcher(Duration delay) {
+        var fetcher = new HedgedPageFetcher(true, 0.95, delay, delay);
+        fetcher.bindTo(registry);
+        return fetcher;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
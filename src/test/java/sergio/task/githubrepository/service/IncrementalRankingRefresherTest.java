@@ -0,0 +1,120 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import sergio.task.githubrepository.external.GithubClient;
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+import sergio.task.githubrepository.external.model.GithubSearchResponse;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class IncrementalRankingRefresherTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-05-01T10:00:00Z"), ZoneOffset.UTC);
+    private static final PopularityCacheKey JAVA = PopularityCacheKey.of("2024-01-01", "java");
+    private static final LocalDateTime LAST_WEEK = LocalDateTime.parse("2024-04-24T10:00:00");
+
+    private final GithubClient githubClient = mock(GithubClient.class);
+    private final PopularityService popularityService = mock(PopularityService.class);
+    private final PopularityCalculator calculator = new PopularityCalculator(new ScoringProperties(1.0, 1.5,
+            new ScoringProperties.Freshness(3, 14, 365, 1.5, 1.2, 0.5, 1.0)), CLOCK);
+
+    @BeforeEach
+    void setUp() {
+        // Scored by stars, so the expected order is easy to read
+        when(popularityService.scorePage(anyList())).thenAnswer(invocation -> score(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("Should refresh from the repositories updated since the full load, without fetching everything again")
+    void refresh_ShouldOnlyFetchTheDelta() {
+        var refresher = refresher(3);
+        seed(PopularityRanking.complete(List.of()), repo("user/a", 300, LAST_WEEK), repo("user/b", 200, LAST_WEEK),
+                repo("user/c", 100, LAST_WEEK));
+        refresher.load(JAVA);
+        when(githubClient.searchRecentlyUpdated("2024-01-01", "java", 1, 100)).thenReturn(new GithubSearchResponse(3,
+                List.of(repo("user/c", 400, LocalDateTime.parse("2024-05-01T09:55:00")),
+                        repo("user/new", 250, LocalDateTime.parse("2024-05-01T09:52:00")),
+                        repo("user/a", 300, LAST_WEEK))));
+
+        var refreshed = refresher.refresh(JAVA);
+
+        assertTrue(refreshed.isPresent());
+        assertEquals(List.of("user/c", "user/a", "user/new", "user/b"),
+                refreshed.get().items().stream().map(RepositoryScoreResponse::fullName).toList());
+        verify(githubClient, times(1)).searchRecentlyUpdated(any(), any(), anyInt(), anyInt());
+        verify(popularityService, times(1)).loadRanking(eq(JAVA), any());
+    }
+
+    @Test
+    @DisplayName("Should fall back to a full load when the delta doesn't fit in max-pages")
+    void refresh_ShouldFallBackWhenTooManyRepositoriesChanged() {
+        var refresher = refresher(1);
+        seed(PopularityRanking.complete(List.of()), repo("user/a", 300, LAST_WEEK));
+        refresher.load(JAVA);
+        var updated = IntStream.range(0, 100)
+                .mapToObj(i -> repo("user/updated-" + i, i, LocalDateTime.parse("2024-05-01T09:59:00")))
+                .toList();
+        when(githubClient.searchRecentlyUpdated(any(), any(), anyInt(), anyInt()))
+                .thenReturn(new GithubSearchResponse(5_000, updated));
+
+        assertTrue(refresher.refresh(JAVA).isEmpty());
+        // The index is dropped, the next refresh goes straight to the full load
+        assertTrue(refresher.refresh(JAVA).isEmpty());
+        verify(githubClient, times(1)).searchRecentlyUpdated(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should not index partial rankings")
+    void load_ShouldNotIndexPartialRankings() {
+        var refresher = refresher(3);
+        seed(PopularityRanking.partial(List.of()), repo("user/a", 300, LAST_WEEK));
+
+        refresher.load(JAVA);
+
+        assertTrue(refresher.refresh(JAVA).isEmpty());
+        verifyNoInteractions(githubClient);
+    }
+
+    @SuppressWarnings("unchecked")
+    private IncrementalRankingRefresher refresher(int maxPages) {
+        ObjectProvider<PopularityService> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(popularityService);
+        return new IncrementalRankingRefresher(provider, githubClient, calculator,
+                new IncrementalProperties(true, maxPages, Duration.ofHours(6), 10), 50, CLOCK);
+    }
+
+    // The full load hands its pages to the index, like the fan-out does
+    private void seed(PopularityRanking ranking, GithubRepositoryDto... repos) {
+        when(popularityService.loadRanking(eq(JAVA), any())).thenAnswer(invocation -> {
+            BiConsumer<List<GithubRepositoryDto>, List<RepositoryScoreResponse>> pages = invocation.getArgument(1);
+            pages.accept(List.of(repos), score(List.of(repos)));
+            return ranking;
+        });
+    }
+
+    private static List<RepositoryScoreResponse> score(List<GithubRepositoryDto> repos) {
+        return repos.stream()
+                .map(repo -> new RepositoryScoreResponse(repo.fullName(), repo.stars(), repo.forks(), repo.language(),
+                        repo.stars(), repo.url(), repo.createdAt()))
+                .toList();
+    }
+
+    private static GithubRepositoryDto repo(String fullName, int stars, LocalDateTime updatedAt) {
+        return new GithubRepositoryDto(fullName, fullName, stars, 1, updatedAt, "java", "https://github.com/" + fullName);
+    }
+}
@@ -0,0 +1,53 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PopularityCacheKeyTest {
+
+    @Test
+    @DisplayName("Should map requests for the same search to the same key")
+    void of_ShouldNormalizeLanguageAndDate() {
+        assertEquals(PopularityCacheKey.of("2023-01-01", "java"), PopularityCacheKey.of(" 2023-01-01 ", " Java "));
+        assertEquals("java", PopularityCacheKey.of("2023-01-01", "JAVA").language());
+        assertEquals("not-a-date", PopularityCacheKey.of("not-a-date", "java").createdAfter());
+    }
+
+    @Test
+    @DisplayName("Should cover only later dates of the same language")
+    void covers_ShouldRequireEarlierDateAndSameLanguage() {
+        var january = PopularityCacheKey.of("2023-01-01", "java");
+
+        assertTrue(january.covers(PopularityCacheKey.of("2023-01-02", "Java")));
+        assertFalse(january.covers(january));
+        assertFalse(january.covers(PopularityCacheKey.of("2022-12-31", "java")));
+        assertFalse(january.covers(PopularityCacheKey.of("2023-01-02", "go")));
+        assertFalse(PopularityCacheKey.of("not-a-date", "java").covers(january));
+    }
+
+    @Test
+    @DisplayName("Should narrow only exhaustive rankings, keeping their order")
+    void createdAfter_ShouldFilterExhaustiveRankings() {
+        var items = List.of(
+                repo("user/new", LocalDateTime.of(2023, 3, 1, 10, 0)),
+                repo("user/same-day", LocalDateTime.of(2023, 2, 1, 23, 59)),
+                repo("user/newer", LocalDateTime.of(2023, 5, 1, 0, 0)));
+
+        var narrowed = PopularityRanking.exhaustive(items).createdAfter(LocalDate.of(2023, 2, 1)).orElseThrow();
+
+        assertEquals(List.of("user/new", "user/newer"), narrowed.items().stream().map(RepositoryScoreResponse::fullName).toList());
+        assertTrue(narrowed.exhaustive());
+        assertTrue(PopularityRanking.complete(items).createdAfter(LocalDate.of(2023, 2, 1)).isEmpty());
+    }
+
+    private static RepositoryScoreResponse repo(String fullName, LocalDateTime createdAt) {
+        return new RepositoryScoreResponse(fullName, 10, 1, "Java", 10.0, "url", createdAt);
+    }
+}
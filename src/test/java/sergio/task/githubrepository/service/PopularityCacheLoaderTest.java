@@ -0,0 +1,132 @@
+package sergio.task.githubrepository.service;
+
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import sergio.task.githubrepository.configuration.CacheConfig;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PopularityCacheLoaderTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T10:00:00Z");
+    private static final PopularityCacheKey JAVA = PopularityCacheKey.of("2024-01-01", "java");
+
+    private final IncrementalRankingRefresher refresher = mock(IncrementalRankingRefresher.class);
+    private final SharedRankingTier sharedTier = mock(SharedRankingTier.class);
+    private final RankingPrecomputeJob precomputeJob = mock(RankingPrecomputeJob.class);
+
+    @TempDir
+    Path directory;
+    private RankingDiskStore diskStore;
+    private PopularityCacheLoader loader;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        ObjectProvider<RankingDiskStore> diskStoreProvider = mock(ObjectProvider.class);
+        ObjectProvider<CacheManager> cacheManagerProvider = mock(ObjectProvider.class);
+        ObjectProvider<RankingPrecomputeJob> precomputeJobProvider = mock(ObjectProvider.class);
+        diskStore = new RankingDiskStore(directory, Duration.ofHours(6), 0.5, Clock.fixed(NOW, ZoneOffset.UTC));
+        loader = new PopularityCacheLoader(refresher, diskStoreProvider, sharedTier, cacheManagerProvider,
+                precomputeJobProvider, Clock.fixed(NOW, ZoneOffset.UTC));
+        // The loader goes first, refreshAfterWrite needs a loading cache
+        var cacheManager = new CaffeineCacheManager(CacheConfig.GITHUB_REPOS_CACHE);
+        cacheManager.setCacheLoader(loader);
+        cacheManager.setCaffeineSpec(CaffeineSpec.parse("refreshAfterWrite=10m"));
+        when(diskStoreProvider.getIfAvailable()).thenAnswer(invocation -> diskStore);
+        when(cacheManagerProvider.getIfAvailable()).thenReturn(cacheManager);
+        when(precomputeJobProvider.getIfAvailable()).thenReturn(precomputeJob);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        diskStore.close();
+    }
+
+    @Test
+    @DisplayName("Should serve a disk hit written within the soft TTL without going to GitHub")
+    void load_ShouldServeRecentDiskHits() throws Exception {
+        writeToDisk(NOW.minus(Duration.ofMinutes(5)), "user/stored");
+
+        var loaded = (PopularityRanking) loader.load(JAVA);
+
+        assertEquals("user/stored", loaded.items().getFirst().fullName());
+        verify(refresher, never()).load(any());
+    }
+
+    @Test
+    @DisplayName("Should serve a disk hit with the flags it was stored with")
+    void load_ShouldKeepDiskRankingFlags() {
+        diskStore.put(JAVA, PopularityRanking.exhaustive(List.of(repo("user/stored"))));
+
+        var loaded = (PopularityRanking) loader.load(JAVA);
+
+        assertTrue(loaded.exhaustive());
+        verify(refresher, never()).load(any());
+    }
+
+    @Test
+    @DisplayName("Should fetch again a disk hit older than the soft TTL")
+    void load_ShouldFetchAgainStaleDiskHits() throws Exception {
+        writeToDisk(NOW.minus(Duration.ofHours(2)), "user/stored");
+        when(refresher.load(JAVA)).thenReturn(PopularityRanking.complete(List.of(repo("user/fetched"))));
+
+        var loaded = (PopularityRanking) loader.load(JAVA);
+
+        assertEquals("user/fetched", loaded.items().getFirst().fullName());
+        // Persisted again, with the new write time
+        assertEquals(NOW, diskStore.get(JAVA).orElseThrow().writtenAt());
+    }
+
+    @Test
+    @DisplayName("Should keep serving a stale disk hit when GitHub answers with nothing")
+    void load_ShouldFallBackToStaleDiskHits() throws Exception {
+        writeToDisk(NOW.minus(Duration.ofHours(2)), "user/stored");
+        when(refresher.load(JAVA)).thenReturn(PopularityRanking.complete(List.of()));
+
+        var loaded = (PopularityRanking) loader.load(JAVA);
+
+        assertEquals("user/stored", loaded.items().getFirst().fullName());
+        verify(refresher).load(JAVA);
+    }
+
+    @Test
+    @DisplayName("Should keep a crawled ranking on reload, the precompute job refreshes it")
+    void reload_ShouldKeepCrawledRankings() {
+        var crawled = PopularityRanking.complete(List.of(repo("user/crawled")));
+        when(precomputeJob.isCrawled(JAVA)).thenReturn(true);
+
+        assertSame(crawled, loader.reload(JAVA, crawled));
+        verifyNoInteractions(refresher, sharedTier);
+    }
+
+    // Written by another store on the same directory, at the given time
+    private void writeToDisk(Instant writtenAt, String fullName) throws Exception {
+        diskStore.close();
+        try (var writer = new RankingDiskStore(directory, Duration.ofHours(6), 0.5,
+                Clock.fixed(writtenAt, ZoneOffset.UTC))) {
+            writer.put(JAVA, PopularityRanking.complete(List.of(repo(fullName))));
+        }
+        diskStore = new RankingDiskStore(directory, Duration.ofHours(6), 0.5, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static RepositoryScoreResponse repo(String fullName) {
+        return new RepositoryScoreResponse(fullName, 10, 1, "java", 1.0, "https://github.com/" + fullName);
+    }
+}
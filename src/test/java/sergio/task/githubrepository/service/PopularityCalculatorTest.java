@@ -5,19 +5,28 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import sergio.task.githubrepository.external.model.GithubRepositoryDto;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class PopularityCalculatorTest {
 
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-05-01T10:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDateTime NOW = LocalDateTime.now(CLOCK);
+
     private PopularityCalculator calculator;
 
     @BeforeEach
     void setUp() {
         var freshnessProps = new ScoringProperties.Freshness(3, 14, 365, 1.5, 1.2, 0.5, 1.0);
         var props = new ScoringProperties(1.0, 1.5, freshnessProps);
-        this.calculator = new PopularityCalculator(props);
+        this.calculator = new PopularityCalculator(props, CLOCK);
     }
 
     @Test
@@ -26,7 +35,7 @@ class PopularityCalculatorTest {
         GithubRepositoryDto repo = new GithubRepositoryDto(
                 "repo1", "user/repo1",
                 100, 10,
-                LocalDateTime.now().minusDays(400),
+                NOW.minusDays(400),
                 "java", "http://url"
         );
 
@@ -41,7 +50,7 @@ class PopularityCalculatorTest {
         GithubRepositoryDto repo = new GithubRepositoryDto(
                 "repo2", "user/repo2",
                 1000, 0,
-                LocalDateTime.now().minusDays(2),
+                NOW.minusDays(2),
                 "java", "http://url"
         );
 
@@ -56,7 +65,7 @@ class PopularityCalculatorTest {
         GithubRepositoryDto repo = new GithubRepositoryDto(
                 "repo-recent", "user/recent",
                 100, 0,
-                LocalDateTime.now().minusDays(10),
+                NOW.minusDays(10),
                 "java", "url"
         );
 
@@ -71,7 +80,7 @@ class PopularityCalculatorTest {
         GithubRepositoryDto repo = new GithubRepositoryDto(
                 "repo-normal", "user/normal",
                 1000, 0,
-                LocalDateTime.now().minusDays(100),
+                NOW.minusDays(100),
                 "java", "url"
         );
 
@@ -86,7 +95,7 @@ class PopularityCalculatorTest {
         GithubRepositoryDto repo = new GithubRepositoryDto(
                 "repo-forks", "user/forks",
                 0, 100,
-                LocalDateTime.now().minusDays(20),
+                NOW.minusDays(20),
                 "java", "url"
         );
 
@@ -114,7 +123,7 @@ class PopularityCalculatorTest {
         GithubRepositoryDto repo = new GithubRepositoryDto(
                 "repo-boundary", "user/boundary",
                 100, 0,
-                LocalDateTime.now().minusDays(14),
+                NOW.minusDays(14),
                 "java", "url"
         );
 
@@ -133,4 +142,60 @@ class PopularityCalculatorTest {
         assertEquals(0.0, calculator.calculateScore(repo));
         assertEquals(0.0, calculator.calculateScore(null));
     }
+
+    @Test
+    @DisplayName("Batch scoring should match per repository scoring")
+    void calculateScores_ShouldMatchSingleScoring() {
+        List<GithubRepositoryDto> repos = List.of(
+                new GithubRepositoryDto("a", "user/a", 100, 10, NOW.minusDays(400), "java", "url"),
+                new GithubRepositoryDto("b", "user/b", 1000, 0, NOW.minusDays(2), "java", "url"),
+                new GithubRepositoryDto("c", "user/c", 100, 0, NOW.minusDays(14), "java", "url"),
+                new GithubRepositoryDto("d", "user/d", 1000, 0, NOW.minusDays(100), "java", "url"),
+                new GithubRepositoryDto("e", "user/e", 250_000, 40_000, NOW.minusDays(20), "java", "url"),
+                new GithubRepositoryDto("f", "user/f", 10, 0, null, "java", "url")
+        );
+
+        double[] scores = calculator.calculateScores(repos);
+
+        for (int i = 0; i < repos.size(); i++) {
+            assertEquals(calculator.calculateScore(repos.get(i)), scores[i], 1e-9, "Score mismatch for " + repos.get(i).name());
+        }
+    }
+
+    @Test
+    @DisplayName("Batch scoring over primitive arrays should use the freshness buckets")
+    void calculateScores_ShouldScorePrimitiveColumns() {
+        long today = NOW.toLocalDate().toEpochDay();
+        int[] stars = {1000, 100, 1000, 99};
+        int[] forks = {0, 0, 0, 0};
+        long[] updatedEpochDays = {today - 2, today - 10, today - 400, PopularityCalculator.UNKNOWN_UPDATE_DAY};
+        double[] scores = new double[4];
+
+        calculator.calculateScores(stars, forks, updatedEpochDays, scores);
+
+        assertArrayEquals(new double[]{4.5, 2.4, 1.5, 2.0}, scores, 0.01);
+    }
+
+    @Test
+    @DisplayName("Should count ages in UTC calendar days on both paths, also right after midnight")
+    void calculateScore_ShouldAgreeWithBatchAroundMidnight() {
+        var afterMidnight = Clock.fixed(Instant.parse("2024-05-01T00:30:00Z"), ZoneOffset.UTC);
+        var props = new ScoringProperties(1.0, 1.5, new ScoringProperties.Freshness(3, 14, 365, 1.5, 1.2, 0.5, 1.0));
+        var midnightCalculator = new PopularityCalculator(props, afterMidnight);
+        // Three days and 40 minutes ago, but four calendar days: recent, not very recent
+        var repo = new GithubRepositoryDto("late", "user/late", 1000, 0, LocalDateTime.parse("2024-04-27T23:50:00"),
+                "java", "url");
+
+        double score = midnightCalculator.calculateScore(repo);
+
+        assertEquals(3.6, score, 0.01);
+        assertEquals(score, midnightCalculator.calculateScores(List.of(repo))[0], 1e-9);
+    }
+
+    @Test
+    @DisplayName("Batch scoring should reject input arrays shorter than the output")
+    void calculateScores_ShouldRejectShortInputs() {
+        assertThrows(IllegalArgumentException.class, () ->
+                calculator.calculateScores(new int[1], new int[2], new long[2], new double[2]));
+    }
 }
\ No newline at end of file
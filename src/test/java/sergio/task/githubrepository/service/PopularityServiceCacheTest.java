@@ -1,11 +1,15 @@
 package sergio.task.githubrepository.service;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import sergio.task.githubrepository.configuration.CacheConfig;
 import sergio.task.githubrepository.external.GithubClient;
 import sergio.task.githubrepository.external.model.GithubRepositoryDto;
 import sergio.task.githubrepository.external.model.GithubSearchResponse;
@@ -13,6 +17,7 @@ import sergio.task.githubrepository.external.model.GithubSearchResponse;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -25,6 +30,9 @@ class PopularityServiceCacheTest {
     @Autowired
     private CircuitBreakerRegistry circuitBreakerRegistry;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     @MockitoBean
     private GithubClient githubClient;
 
@@ -42,4 +50,18 @@ class PopularityServiceCacheTest {
 
         verify(githubClient, times(1)).searchRepositories(eq("2023-01-01"), eq("java"), anyInt(), anyInt());
     }
+
+    @Test
+    @DisplayName("Cache - Should load misses through the async cache, off the caller's thread and the map lock")
+    void getPopularRepositories_ShouldLoadThroughAsyncCache() {
+        GithubRepositoryDto repo = new GithubRepositoryDto("r1", "user/r1", 10, 5, LocalDateTime.now(), "java", "url");
+        when(githubClient.searchRepositories(anyString(), anyString(), anyInt(), anyInt()))
+                .thenReturn(new GithubSearchResponse(1, List.of(repo)));
+
+        var ranking = popularityService.getPopularRepositories("2023-02-01", "java");
+
+        var cache = (CaffeineCache) cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE);
+        assertInstanceOf(AsyncLoadingCache.class, cache.getAsyncCache());
+        assertSame(ranking, cache.getAsyncCache().synchronous().getIfPresent(PopularityCacheKey.of("2023-02-01", "java")));
+    }
 }
\ No newline at end of file
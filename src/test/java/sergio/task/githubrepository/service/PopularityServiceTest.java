@@ -1,19 +1,29 @@
 package sergio.task.githubrepository.service;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.test.util.ReflectionTestUtils;
+import sergio.task.githubrepository.configuration.CacheConfig;
+import sergio.task.githubrepository.configuration.LanguageTagGuard;
 import sergio.task.githubrepository.external.GithubClient;
 import sergio.task.githubrepository.external.model.GithubRepositoryDto;
 import sergio.task.githubrepository.external.model.GithubSearchResponse;
 import sergio.task.githubrepository.model.RepositoryScoreResponse;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -28,6 +38,16 @@ class PopularityServiceTest {
     private GithubClient githubClient;
     @Mock
     private PopularityCalculator calculator;
+    @Mock
+    private CacheManager cacheManager;
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer(new SimpleMeterRegistry());
+    @Spy
+    private HedgedPageFetcher hedgedPageFetcher = new HedgedPageFetcher(false, 0.95, Duration.ofMillis(200), Duration.ofSeconds(1));
+    @Spy
+    private PopularityMetrics metrics = new PopularityMetrics(new LanguageTagGuard(20));
+    @Mock
+    private SharedRankingTier sharedTier;
 
     @InjectMocks
     private PopularityService popularityService;
@@ -35,6 +55,8 @@ class PopularityServiceTest {
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(popularityService, "maxPagesToFetch", 5);
+        ReflectionTestUtils.setField(popularityService, "maxResults", 500);
+        ReflectionTestUtils.setField(popularityService, "latencyBudget", Duration.ofSeconds(5));
     }
 
     @Test
@@ -52,9 +74,9 @@ class PopularityServiceTest {
         when(githubClient.searchRepositories(anyString(), anyString(), eq(2), anyInt()))
                 .thenReturn(new GithubSearchResponse(150, List.of(repo2)));
 
-        when(calculator.calculateScore(any())).thenReturn(10.0, 50.0);
+        when(calculator.calculateScores(anyList())).thenReturn(new double[]{10.0}, new double[]{50.0});
 
-        List<RepositoryScoreResponse> result = popularityService.getPopularRepositories(since, language);
+        List<RepositoryScoreResponse> result = popularityService.getPopularRepositories(since, language).items();
 
         assertEquals(2, result.size(), "Should have collected repositories from all fetched pages");
         assertEquals("user/r2", result.getFirst().fullName(), "The result should be sorted by score descending");
@@ -68,8 +90,152 @@ class PopularityServiceTest {
         when(githubClient.searchRepositories(anyString(), anyString(), anyInt(), anyInt()))
                 .thenReturn(new GithubSearchResponse(0, List.of()));
 
-        List<RepositoryScoreResponse> result = popularityService.getPopularRepositories("2023-01-01", "java");
+        List<RepositoryScoreResponse> result = popularityService.getPopularRepositories("2023-01-01", "java").items();
 
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    @DisplayName("Should keep only the best max-results repositories across pages")
+    void getPopularRepositories_ShouldKeepTopK() {
+        ReflectionTestUtils.setField(popularityService, "maxResults", 2);
+
+        GithubRepositoryDto repo1 = new GithubRepositoryDto("r1", "user/r1", 10, 5, LocalDateTime.now(), "Java", "url");
+        GithubRepositoryDto repo2 = new GithubRepositoryDto("r2", "user/r2", 20, 10, LocalDateTime.now(), "Java", "url");
+        GithubRepositoryDto repo3 = new GithubRepositoryDto("r3", "user/r3", 30, 15, LocalDateTime.now(), "Java", "url");
+
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(1), anyInt()))
+                .thenReturn(new GithubSearchResponse(3, List.of(repo1, repo2, repo3)));
+        when(calculator.calculateScores(List.of(repo1, repo2, repo3))).thenReturn(new double[]{30.0, 5.0, 20.0});
+
+        List<RepositoryScoreResponse> result = popularityService.getPopularRepositories("2023-01-01", "java").items();
+
+        assertEquals(2, result.size());
+        assertEquals("user/r1", result.get(0).fullName());
+        assertEquals("user/r3", result.get(1).fullName());
+    }
+
+    @Test
+    @DisplayName("Should publish the partial ranking after each page and return the final ranking")
+    void streamPopularRepositories_ShouldPublishProgress() {
+        GithubRepositoryDto repo1 = new GithubRepositoryDto("r1", "user/r1", 10, 5, LocalDateTime.now(), "Java", "url");
+        GithubRepositoryDto repo2 = new GithubRepositoryDto("r2", "user/r2", 20, 10, LocalDateTime.now(), "Java", "url");
+
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(1), anyInt()))
+                .thenReturn(new GithubSearchResponse(150, List.of(repo1)));
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(2), anyInt()))
+                .thenReturn(new GithubSearchResponse(150, List.of(repo2)));
+        when(calculator.calculateScores(List.of(repo1))).thenReturn(new double[]{10.0});
+        when(calculator.calculateScores(List.of(repo2))).thenReturn(new double[]{50.0});
+
+        List<List<RepositoryScoreResponse>> published = Collections.synchronizedList(new ArrayList<>());
+        List<RepositoryScoreResponse> result =
+                popularityService.streamPopularRepositories("2023-01-01", "java", published::add).items();
+
+        assertEquals(2, published.size());
+        assertEquals(1, published.getFirst().size());
+        assertEquals(List.of("user/r2", "user/r1"), result.stream().map(RepositoryScoreResponse::fullName).toList());
+    }
+
+    @Test
+    @DisplayName("Should answer within the latency budget and mark the ranking as partial when a page is too slow")
+    void getPopularRepositories_ShouldDropPagesPastTheDeadline() {
+        ReflectionTestUtils.setField(popularityService, "latencyBudget", Duration.ofMillis(200));
+
+        GithubRepositoryDto repo1 = new GithubRepositoryDto("r1", "user/r1", 10, 5, LocalDateTime.now(), "Java", "url");
+        GithubRepositoryDto repo2 = new GithubRepositoryDto("r2", "user/r2", 20, 10, LocalDateTime.now(), "Java", "url");
+
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(1), anyInt()))
+                .thenReturn(new GithubSearchResponse(150, List.of(repo1)));
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(2), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return new GithubSearchResponse(150, List.of(repo2));
+        });
+        when(calculator.calculateScores(List.of(repo1))).thenReturn(new double[]{10.0});
+
+        long start = System.nanoTime();
+        var result = popularityService.getPopularRepositories("2023-01-01", "java");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(result.partial());
+        assertEquals(List.of("user/r1"), result.items().stream().map(RepositoryScoreResponse::fullName).toList());
+        assertTrue(elapsedMillis < 2_000, "Should not wait for the slow page, took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("Should keep page 1 within the latency budget as well")
+    void getPopularRepositories_ShouldBoundTheFirstPage() {
+        ReflectionTestUtils.setField(popularityService, "latencyBudget", Duration.ofMillis(200));
+
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(1), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return new GithubSearchResponse(150, List.of());
+        });
+
+        long start = System.nanoTime();
+        var result = popularityService.getPopularRepositories("2023-01-01", "java");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(result.partial());
+        assertTrue(result.isEmpty());
+        assertTrue(elapsedMillis < 2_000, "Should not wait for page 1, took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("Should mark the ranking as partial when a page is not available")
+    void getPopularRepositories_ShouldMarkMissingPagesAsPartial() {
+        GithubRepositoryDto repo1 = new GithubRepositoryDto("r1", "user/r1", 10, 5, LocalDateTime.now(), "Java", "url");
+
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(1), anyInt()))
+                .thenReturn(new GithubSearchResponse(150, List.of(repo1)));
+        // Circuit breaker fallback
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(2), anyInt()))
+                .thenReturn(new GithubSearchResponse(0, List.of()));
+        when(calculator.calculateScores(List.of(repo1))).thenReturn(new double[]{10.0});
+
+        var result = popularityService.getPopularRepositories("2023-01-01", "java");
+
+        assertTrue(result.partial());
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    @DisplayName("Should answer a later date by filtering the cached exhaustive ranking of an earlier one")
+    void getPopularRepositories_ShouldReuseCoveringRanking() {
+        GithubRepositoryDto older = new GithubRepositoryDto("r1", "user/old", 10, 5, LocalDateTime.now(), "Java", "url",
+                LocalDateTime.of(2023, 1, 10, 0, 0));
+        GithubRepositoryDto newer = new GithubRepositoryDto("r2", "user/new", 20, 10, LocalDateTime.now(), "Java", "url",
+                LocalDateTime.of(2023, 6, 1, 0, 0));
+        var cache = new CaffeineCache(CacheConfig.GITHUB_REPOS_CACHE, Caffeine.newBuilder().build());
+        when(cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE)).thenReturn(cache);
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(1), anyInt()))
+                .thenReturn(new GithubSearchResponse(2, List.of(older, newer)));
+        when(calculator.calculateScores(anyList())).thenReturn(new double[]{10.0, 50.0});
+
+        var january = popularityService.getPopularRepositories("2023-01-01", "java");
+        cache.put(PopularityCacheKey.of("2023-01-01", "java"), january);
+        var march = popularityService.getPopularRepositories("2023-03-01", "Java");
+
+        assertTrue(january.exhaustive());
+        assertEquals(List.of("user/new"), march.items().stream().map(RepositoryScoreResponse::fullName).toList());
+        verify(githubClient, times(1)).searchRepositories(anyString(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should not filter a cached ranking that doesn't hold every matching repository")
+    void getPopularRepositories_ShouldIgnoreNonExhaustiveRanking() {
+        GithubRepositoryDto repo = new GithubRepositoryDto("r1", "user/r1", 10, 5, LocalDateTime.now(), "Java", "url",
+                LocalDateTime.of(2023, 6, 1, 0, 0));
+        var cache = new CaffeineCache(CacheConfig.GITHUB_REPOS_CACHE, Caffeine.newBuilder().build());
+        cache.put(PopularityCacheKey.of("2023-01-01", "java"), PopularityRanking.complete(List.of(
+                new RepositoryScoreResponse("user/r1", 10, 5, "Java", 10.0, "url", LocalDateTime.of(2023, 6, 1, 0, 0)))));
+        when(cacheManager.getCache(CacheConfig.GITHUB_REPOS_CACHE)).thenReturn(cache);
+        when(githubClient.searchRepositories(anyString(), anyString(), eq(1), anyInt()))
+                .thenReturn(new GithubSearchResponse(1, List.of(repo)));
+        when(calculator.calculateScores(anyList())).thenReturn(new double[]{10.0});
+
+        popularityService.getPopularRepositories("2023-03-01", "java");
+
+        verify(githubClient).searchRepositories(eq("2023-03-01"), eq("java"), eq(1), anyInt());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RankingAccumulatorTest {
+
+    @Test
+    @DisplayName("Should merge pages into a single bounded ranking, best first")
+    void merge_ShouldKeepBestItemsAcrossPages() {
+        var accumulator = new RankingAccumulator<Integer>(4, Comparator.naturalOrder());
+
+        accumulator.merge(List.of(3, 10, 1));
+        var snapshot = accumulator.merge(List.of(7, 2, 9));
+
+        assertEquals(2, snapshot.version());
+        assertEquals(List.of(10, 9, 7, 3), snapshot.items());
+    }
+
+    @Test
+    @DisplayName("Should not lose pages merged concurrently")
+    void merge_ShouldBeSafeUnderConcurrentPages() {
+        var accumulator = new RankingAccumulator<Integer>(1000, Comparator.naturalOrder());
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = IntStream.range(0, 10)
+                    .mapToObj(page -> CompletableFuture.runAsync(() ->
+                            accumulator.merge(IntStream.range(page * 100, (page + 1) * 100).boxed().toList()), executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).join();
+        }
+
+        var snapshot = accumulator.snapshot();
+        assertEquals(10, snapshot.version());
+        assertEquals(1000, snapshot.items().size());
+        assertEquals(999, snapshot.items().getFirst());
+    }
+}
@@ -0,0 +1,77 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingCodecTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 1, 12, 30, 15);
+
+    @Test
+    @DisplayName("Should round-trip every field and the ranking flags")
+    void decodeRanking_ShouldRoundTrip() {
+        var items = List.of(
+                new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.5, "https://github.com/user/a", CREATED_AT),
+                new RepositoryScoreResponse("user/b", 200_000, 5, null, 205.0, "http://mirror/user/b", null),
+                new RepositoryScoreResponse("user/c", 0, 0, "Java", -1.25, null, LocalDateTime.of(1969, 12, 31, 0, 0)));
+
+        var exhaustive = RankingCodec.decodeRanking(RankingCodec.encode(PopularityRanking.exhaustive(items)));
+        var partial = RankingCodec.decodeRanking(RankingCodec.encode(PopularityRanking.partial(items)));
+
+        assertEquals(items, exhaustive.items());
+        assertTrue(exhaustive.exhaustive());
+        assertFalse(exhaustive.partial());
+        assertTrue(partial.partial());
+        assertEquals(items, RankingCodec.decode(RankingCodec.encode(items)));
+    }
+
+    @Test
+    @DisplayName("Should still read rankings written in version 2, as complete rankings")
+    void decodeRanking_ShouldReadVersion2() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeByte(2);
+            out.writeInt(1);
+            out.writeUTF("user/a");
+            out.writeInt(300);
+            out.writeInt(10);
+            out.writeBoolean(true);
+            out.writeUTF("Java");
+            out.writeDouble(310.5);
+            out.writeBoolean(true);
+            out.writeUTF("https://github.com/user/a");
+            out.writeLong(CREATED_AT.toEpochSecond(ZoneOffset.UTC));
+        }
+
+        var ranking = RankingCodec.decodeRanking(bytes.toByteArray());
+
+        assertEquals(List.of(new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.5,
+                "https://github.com/user/a", CREATED_AT)), ranking.items());
+        assertFalse(ranking.exhaustive());
+    }
+
+    @Test
+    @DisplayName("Should take much less space than version 2 for a typical ranking")
+    void encode_ShouldBeCompact() {
+        List<RepositoryScoreResponse> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            items.add(new RepositoryScoreResponse("some-user/repository-" + i, 5000 - i, 100 + i,
+                    i % 2 == 0 ? "Java" : "Kotlin", 5000.0 - i, "https://github.com/some-user/repository-" + i,
+                    CREATED_AT.plusHours(i)));
+        }
+
+        // Version 2 took ~110 bytes per item here
+        assertTrue(RankingCodec.encode(items).length < 500 * 60);
+    }
+}
@@ -0,0 +1,126 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingDiskStoreTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T10:00:00Z");
+    private static final PopularityCacheKey JAVA = PopularityCacheKey.of("2023-01-01", "java");
+    private static final PopularityCacheKey PYTHON = PopularityCacheKey.of("2023-01-01", "python");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should read back what was written, including after reopening the segment")
+    void shouldPersistAcrossRestarts() throws Exception {
+        var ranking = ranking("user/repo", 3);
+
+        try (var store = openAt(NOW)) {
+            store.put(JAVA, ranking);
+            assertEquals(ranking, store.get(JAVA).orElseThrow().ranking());
+        }
+
+        try (var reopened = openAt(NOW.plusSeconds(60))) {
+            assertEquals(new RankingDiskStore.StoredRanking(ranking, NOW), reopened.get(JAVA).orElseThrow());
+            assertTrue(reopened.get(PYTHON).isEmpty());
+            assertEquals(NOW, reopened.loadAll().get(JAVA).writtenAt());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the exhaustive flag of a ranking across restarts")
+    void shouldPersistRankingFlags() throws Exception {
+        var exhaustive = PopularityRanking.exhaustive(ranking("user/repo", 3).items());
+
+        try (var store = openAt(NOW)) {
+            store.put(JAVA, exhaustive);
+            store.put(PYTHON, ranking("py/repo", 1));
+        }
+
+        try (var reopened = openAt(NOW)) {
+            assertTrue(reopened.get(JAVA).orElseThrow().ranking().exhaustive());
+            assertTrue(reopened.loadAll().get(JAVA).ranking().exhaustive());
+            assertFalse(reopened.get(PYTHON).orElseThrow().ranking().exhaustive());
+            assertFalse(reopened.get(PYTHON).orElseThrow().ranking().partial());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the latest write of a key and ignore expired entries")
+    void shouldHonourSupersedingWritesAndTtl() throws Exception {
+        try (var store = openAt(NOW)) {
+            store.put(JAVA, ranking("old/repo", 1));
+            store.put(JAVA, ranking("new/repo", 1));
+            assertEquals("new/repo-0", store.get(JAVA).orElseThrow().ranking().items().getFirst().fullName());
+        }
+
+        try (var expired = openAt(NOW.plus(Duration.ofHours(2)))) {
+            assertTrue(expired.get(JAVA).isEmpty());
+            assertTrue(expired.loadAll().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("Compaction should drop superseded records and keep live ones")
+    void compactShouldShrinkSegment() throws Exception {
+        try (var store = openAt(NOW)) {
+            for (int i = 0; i < 10; i++) {
+                store.put(JAVA, ranking("user/repo-" + i, 50));
+            }
+            store.put(PYTHON, ranking("py/repo", 5));
+            long before = store.segmentSize();
+
+            store.compact();
+
+            assertTrue(store.segmentSize() < before);
+            assertEquals(2, store.size());
+            assertEquals("user/repo-9-0", store.get(JAVA).orElseThrow().ranking().items().getFirst().fullName());
+            assertEquals(5, store.get(PYTHON).orElseThrow().ranking().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should truncate a torn record left at the end of the segment")
+    void shouldRecoverFromTornWrite() throws Exception {
+        try (var store = openAt(NOW)) {
+            store.put(JAVA, ranking("user/repo", 2));
+        }
+        Files.write(directory.resolve(RankingDiskStore.SEGMENT_FILE), new byte[]{0x52, 0x4B, 0x47, 0x31, 0, 0, 1},
+                StandardOpenOption.APPEND);
+
+        try (var reopened = openAt(NOW)) {
+            assertEquals(2, reopened.get(JAVA).orElseThrow().ranking().size());
+            reopened.put(PYTHON, ranking("py/repo", 1));
+            assertEquals(1, reopened.get(PYTHON).orElseThrow().ranking().size());
+        }
+    }
+
+    private RankingDiskStore openAt(Instant instant) throws Exception {
+        return new RankingDiskStore(directory, Duration.ofHours(1), 0.5, Clock.fixed(instant, ZoneOffset.UTC));
+    }
+
+    private static PopularityRanking ranking(String prefix, int size) {
+        return PopularityRanking.complete(IntStream.range(0, size)
+                .mapToObj(i -> new RepositoryScoreResponse(prefix + "-" + i, 100 - i, 10, i % 2 == 0 ? "Java" : null,
+                        50.0 - i, "https://github.com/" + prefix + "-" + i,
+                        i % 3 == 0 ? null : LocalDateTime.of(2023, 1, 1, 8, 30).plusDays(i)))
+                .toList());
+    }
+}
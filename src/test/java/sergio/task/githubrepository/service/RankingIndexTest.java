@@ -0,0 +1,94 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingIndexTest {
+
+    private static final long TODAY = LocalDate.parse("2024-05-01").toEpochDay();
+    private static final Instant SNAPSHOT = Instant.parse("2024-05-01T10:00:00Z");
+
+    private final PopularityCalculator calculator = new PopularityCalculator(new ScoringProperties(1.0, 1.5,
+            new ScoringProperties.Freshness(3, 14, 365, 1.5, 1.2, 0.5, 1.0)), Clock.fixed(SNAPSHOT, ZoneOffset.UTC));
+
+    @Test
+    @DisplayName("Should move a repository to its new place when it is upserted again")
+    void upsert_ShouldReplaceRepositoryWithTheSameName() {
+        var index = new RankingIndex(10, SNAPSHOT, TODAY);
+        upsert(index, repo("user/a", 30), repo("user/b", 20), repo("user/c", 10));
+
+        upsert(index, repo("user/c", 40));
+
+        assertEquals(3, index.size());
+        assertEquals(List.of("user/c", "user/a", "user/b"), names(index.ranking(10)));
+        assertEquals(List.of("user/c", "user/a"), names(index.ranking(2)));
+    }
+
+    @Test
+    @DisplayName("Should drop the lowest scores beyond its capacity and stop being exhaustive")
+    void upsert_ShouldStayWithinCapacity() {
+        var index = new RankingIndex(2, SNAPSHOT, TODAY);
+        upsert(index, repo("user/a", 30), repo("user/b", 20));
+        index.markExhaustive(true);
+        assertTrue(index.ranking(10).exhaustive());
+
+        upsert(index, repo("user/c", 25));
+
+        var ranking = index.ranking(10);
+        assertEquals(List.of("user/a", "user/c"), names(ranking));
+        assertFalse(ranking.exhaustive());
+    }
+
+    @Test
+    @DisplayName("Should only return the repositories whose freshness multiplier changed since they were scored")
+    void crossedBuckets_ShouldFindRepositoriesChangingBucket() {
+        var index = new RankingIndex(10, SNAPSHOT, TODAY);
+        // Very recent up to 3 days, recent up to 14
+        upsert(index, repo("user/leaving-very-recent", 30, TODAY - 3), repo("user/still-recent", 20, TODAY - 10),
+                repo("user/leaving-recent", 10, TODAY - 14));
+
+        assertEquals(List.of(), index.crossedBuckets(calculator, TODAY));
+        var crossed = index.crossedBuckets(calculator, TODAY + 1).stream()
+                .map(GithubRepositoryDto::fullName)
+                .sorted()
+                .toList();
+
+        assertEquals(List.of("user/leaving-recent", "user/leaving-very-recent"), crossed);
+    }
+
+    private static void upsert(RankingIndex index, Scored... repos) {
+        index.upsert(Arrays.stream(repos).map(Scored::repo).toList(),
+                Arrays.stream(repos).map(Scored::scored).toList());
+    }
+
+    private static List<String> names(PopularityRanking ranking) {
+        return ranking.items().stream().map(RepositoryScoreResponse::fullName).toList();
+    }
+
+    private static Scored repo(String fullName, double score) {
+        return repo(fullName, score, TODAY - 30);
+    }
+
+    private static Scored repo(String fullName, double score, long updatedDay) {
+        var updatedAt = LocalDateTime.of(LocalDate.ofEpochDay(updatedDay), LocalTime.NOON);
+        var dto = new GithubRepositoryDto(fullName, fullName, 10, 1, updatedAt, "java", "https://github.com/" + fullName);
+        return new Scored(dto, new RepositoryScoreResponse(fullName, 10, 1, "java", score,
+                "https://github.com/" + fullName));
+    }
+
+    private record Scored(GithubRepositoryDto repo, RepositoryScoreResponse scored) {
+    }
+}
@@ -0,0 +1,149 @@
+package sergio.task.githubrepository.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import sergio.task.githubrepository.configuration.CacheConfig;
+import sergio.task.githubrepository.external.GithubRateLimiter;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RankingPrecomputeJobTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-05-01T10:00:00Z"), ZoneOffset.UTC);
+    private static final PopularityCacheKey JAVA_30_DAYS = PopularityCacheKey.of("2024-04-01", "java");
+    private static final PrecomputeProperties PROPERTIES = new PrecomputeProperties(true, List.of("java"),
+            List.of(Duration.ofDays(30)), Duration.ofMinutes(8), Duration.ofMinutes(1), 0.5);
+
+    private final PopularityService popularityService = mock(PopularityService.class);
+    private final DateShardedCrawler crawler = mock(DateShardedCrawler.class);
+    private final GithubRateLimiter rateLimiter = new GithubRateLimiter(10, 10, 8, Duration.ofSeconds(1));
+    private final SharedRankingTier sharedTier = mock(SharedRankingTier.class);
+    private CaffeineCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new CaffeineCacheManager(CacheConfig.GITHUB_REPOS_CACHE);
+        cacheManager.setCacheLoader((CacheLoader<Object, Object>) key -> {
+            throw new AssertionError("The job must not go through the cache loader");
+        });
+    }
+
+    @Test
+    @DisplayName("Should build one key per language and window, relative to today")
+    void hotKeys_ShouldCombineLanguagesAndWindows() {
+        var properties = new PrecomputeProperties(true, List.of("java", "Go"),
+                List.of(Duration.ofDays(30), Duration.ofDays(365)), null, null, 0.5);
+
+        var keys = new RankingPrecomputeJob(popularityService, crawler, cacheManager, rateLimiter, properties,
+                sharedTier, CLOCK, Runnable::run).hotKeys();
+
+        assertEquals(Set.of(JAVA_30_DAYS, PopularityCacheKey.of("2024-04-01", "go"),
+                PopularityCacheKey.of("2023-05-02", "java"), PopularityCacheKey.of("2023-05-02", "go")), keys);
+    }
+
+    @Test
+    @DisplayName("Should store a complete ranking and not compute the key again until it is due")
+    void precomputeNext_ShouldSwapCompleteRanking() {
+        var ranking = PopularityRanking.complete(List.of(repo("user/new")));
+        when(popularityService.computeRanking(JAVA_30_DAYS)).thenReturn(ranking);
+        var job = new RankingPrecomputeJob(popularityService, crawler, cacheManager, rateLimiter, PROPERTIES,
+                sharedTier, CLOCK, Runnable::run);
+
+        job.precomputeNext();
+        job.precomputeNext();
+
+        assertSame(ranking, nativeCache().getIfPresent(JAVA_30_DAYS));
+        verify(popularityService, times(1)).computeRanking(any());
+        verify(sharedTier).publish(JAVA_30_DAYS, ranking);
+    }
+
+    @Test
+    @DisplayName("Should keep the previous snapshot when the new ranking is partial")
+    void precomputeNext_ShouldKeepPreviousSnapshot() {
+        var previous = PopularityRanking.complete(List.of(repo("user/old")));
+        nativeCache().put(JAVA_30_DAYS, previous);
+        when(popularityService.computeRanking(JAVA_30_DAYS)).thenReturn(PopularityRanking.partial(List.of(repo("user/new"))));
+
+        new RankingPrecomputeJob(popularityService, crawler, cacheManager, rateLimiter, PROPERTIES, sharedTier,
+                CLOCK, Runnable::run).precomputeNext();
+
+        assertSame(previous, nativeCache().getIfPresent(JAVA_30_DAYS));
+    }
+
+    @Test
+    @DisplayName("Should postpone the work while the GitHub budget is below the reserved share")
+    void precomputeNext_ShouldWaitForBudget() {
+        for (int i = 0; i < 6; i++) {
+            rateLimiter.acquire(GithubRateLimiter.Priority.HIGH).close();
+        }
+
+        new RankingPrecomputeJob(popularityService, crawler, cacheManager, rateLimiter, PROPERTIES, sharedTier,
+                CLOCK, Runnable::run).precomputeNext();
+
+        verifyNoInteractions(popularityService);
+    }
+
+    @Test
+    @DisplayName("Should mark crawled keys as owned by the job")
+    void precomputeNext_ShouldMarkCrawledKeys() {
+        var ranking = PopularityRanking.complete(List.of(repo("user/crawled")));
+        when(crawler.isEnabled()).thenReturn(true);
+        when(crawler.crawl(JAVA_30_DAYS)).thenReturn(ranking);
+        var job = new RankingPrecomputeJob(popularityService, crawler, cacheManager, rateLimiter, PROPERTIES,
+                sharedTier, CLOCK, Runnable::run);
+
+        job.precomputeNext();
+
+        assertSame(ranking, nativeCache().getIfPresent(JAVA_30_DAYS));
+        assertTrue(job.isCrawled(JAVA_30_DAYS));
+        verifyNoInteractions(popularityService);
+    }
+
+    @Test
+    @DisplayName("Should run off the scheduler thread and skip ticks while a key is still being computed")
+    void precomputeNext_ShouldRunOneKeyAtATime() {
+        var ranking = PopularityRanking.complete(List.of(repo("user/new")));
+        when(popularityService.computeRanking(any())).thenReturn(ranking);
+        List<Runnable> submitted = new ArrayList<>();
+        var properties = new PrecomputeProperties(true, List.of("java", "go"), List.of(Duration.ofDays(30)),
+                Duration.ofMinutes(8), Duration.ofMinutes(1), 0.5);
+        var job = new RankingPrecomputeJob(popularityService, crawler, cacheManager, rateLimiter, properties,
+                sharedTier, CLOCK, submitted::add);
+
+        job.precomputeNext();
+        job.precomputeNext();
+
+        assertEquals(1, submitted.size());
+        verifyNoInteractions(popularityService);
+
+        submitted.getFirst().run();
+        job.precomputeNext();
+
+        assertEquals(2, submitted.size());
+        verify(popularityService).computeRanking(JAVA_30_DAYS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache() {
+        return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cacheManager
+                .getCache(CacheConfig.GITHUB_REPOS_CACHE).getNativeCache();
+    }
+
+    private static RepositoryScoreResponse repo(String fullName) {
+        return new RepositoryScoreResponse(fullName, 10, 1, "java", 10.0, "url");
+    }
+}
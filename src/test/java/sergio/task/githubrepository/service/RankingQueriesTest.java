@@ -0,0 +1,121 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingQueriesTest {
+
+    private final RankingQueries queries = new RankingQueries();
+
+    private final PopularityRanking ranking = PopularityRanking.complete(List.of(
+            repo("spring/boot", 500, 10, 9.0),
+            repo("Spring/framework", 300, 90, 8.0),
+            repo("quarkus/quarkus", 400, 50, 7.0),
+            repo("spring/data", 100, 90, 6.0)));
+
+    @Test
+    @DisplayName("Should filter by stars, forks and name prefix, keeping the score order")
+    void apply_ShouldFilter() {
+        var filtered = queries.apply(ranking, new RankingQuery(200, 20, "spring/", null));
+
+        assertEquals(List.of("Spring/framework"), names(filtered));
+        assertEquals(8.0, filtered.items().get(0).popularityScore());
+        assertEquals(List.of("spring/boot", "Spring/framework", "spring/data"),
+                names(queries.apply(ranking, RankingQuery.of(null, null, "SPRING", null))));
+        assertTrue(queries.apply(ranking, RankingQuery.of(null, null, "micronaut/", null)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should sort by stars or forks, ties in ranking order")
+    void apply_ShouldSort() {
+        assertEquals(List.of("spring/boot", "quarkus/quarkus", "Spring/framework", "spring/data"),
+                names(queries.apply(ranking, RankingQuery.of(null, null, null, "stars"))));
+        assertEquals(List.of("Spring/framework", "spring/data", "quarkus/quarkus"),
+                names(queries.apply(ranking, RankingQuery.of(null, 50, null, "FORKS"))));
+    }
+
+    @Test
+    @DisplayName("Should serve the cached ranking as it is without filters, and the same result for the same query")
+    void apply_ShouldReuseRankings() {
+        var query = RankingQuery.of(150, null, null, "stars");
+
+        assertSame(ranking, queries.apply(ranking, RankingQuery.of(null, null, " ", "score")));
+        assertSame(queries.apply(ranking, query), queries.apply(ranking, RankingQuery.of(150, 0, null, "Stars")));
+    }
+
+    @Test
+    @DisplayName("Should drop the index of a ranking once the ranking is no longer referenced")
+    void apply_ShouldNotKeepReplacedRankings() throws InterruptedException {
+        var replaced = new WeakReference<>(filterOnce());
+
+        for (int attempt = 0; attempt < 50 && replaced.get() != null; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertNull(replaced.get());
+        assertEquals(0, queries.indexedRankings());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown sort orders")
+    void of_ShouldRejectUnknownSort() {
+        assertThrows(IllegalArgumentException.class, () -> RankingQuery.of(null, null, null, "name"));
+    }
+
+    @Test
+    @DisplayName("Should give the same results as filtering and sorting the whole ranking")
+    void apply_ShouldMatchAFullScan() {
+        var random = new Random(7);
+        List<RepositoryScoreResponse> items = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            var owner = "owner-" + random.nextInt(20);
+            items.add(repo(owner + "/repo-" + i, random.nextInt(1_000), random.nextInt(100), 1_000.0 - i));
+        }
+        var large = PopularityRanking.complete(items);
+
+        for (int run = 0; run < 50; run++) {
+            int minStars = random.nextInt(800);
+            int minForks = random.nextInt(80);
+            var prefix = random.nextBoolean() ? "owner-" + random.nextInt(20) : null;
+            var sort = RankingQuery.Sort.values()[random.nextInt(3)];
+            Comparator<RepositoryScoreResponse> order = switch (sort) {
+                case SCORE -> (a, b) -> 0;
+                case STARS -> Comparator.comparingInt(RepositoryScoreResponse::stars).reversed();
+                case FORKS -> Comparator.comparingInt(RepositoryScoreResponse::forks).reversed();
+            };
+            var expected = items.stream()
+                    .filter(item -> item.stars() >= minStars && item.forks() >= minForks)
+                    .filter(item -> prefix == null || item.fullName().startsWith(prefix))
+                    .sorted(order)
+                    .toList();
+
+            assertEquals(expected, queries.apply(large, new RankingQuery(minStars, minForks, prefix, sort)).items());
+        }
+    }
+
+    // A ranking referenced by nothing but the cache once this returns
+    private PopularityRanking filterOnce() {
+        var transientRanking = PopularityRanking.complete(List.of(repo("spring/boot", 500, 10, 9.0)));
+        assertEquals(1, queries.apply(transientRanking, RankingQuery.of(100, null, null, "stars")).size());
+        assertEquals(1, queries.indexedRankings());
+        return transientRanking;
+    }
+
+    private static List<String> names(PopularityRanking ranking) {
+        return ranking.items().stream().map(RepositoryScoreResponse::fullName).toList();
+    }
+
+    private static RepositoryScoreResponse repo(String fullName, int stars, int forks, double score) {
+        return new RepositoryScoreResponse(fullName, stars, forks, "java", score, "https://github.com/" + fullName);
+    }
+}
@@ -0,0 +1,115 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import sergio.task.githubrepository.external.model.GithubRepositoryDto;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingRescorerTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-05-01T10:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDateTime NOW = LocalDateTime.parse("2024-05-01T10:00:00");
+    private static final ScoringProperties WEIGHTS = new ScoringProperties(1.0, 1.5,
+            new ScoringProperties.Freshness(3, 14, 365, 1.5, 1.2, 0.5, 1.0));
+
+    private final PopularityCalculator calculator = new PopularityCalculator(WEIGHTS, CLOCK);
+
+    @Test
+    @DisplayName("Should rescore and reorder a cached ranking once repositories change freshness bucket")
+    void current_ShouldFollowFreshnessOverTime() {
+        // Two days old, boosted as very recent today
+        var fresh = repo("user/fresh", 100, 0, NOW.minusDays(2), 3.0);
+        var older = repo("user/older", 150, 0, NOW.minusDays(100), 2.0);
+        var stored = PopularityRanking.complete(List.of(fresh, older));
+
+        var today = new RankingRescorer(calculator).current(stored);
+        var inThreeWeeks = new RankingRescorer(new PopularityCalculator(WEIGHTS, Clock.offset(CLOCK, Duration.ofDays(21))))
+                .current(stored);
+
+        assertEquals(List.of("user/fresh", "user/older"), names(today));
+        assertEquals(Math.log10(101) * 1.5, today.items().get(0).popularityScore(), 1e-9);
+        assertEquals(List.of("user/older", "user/fresh"), names(inThreeWeeks));
+        assertEquals(Math.log10(101), inThreeWeeks.items().get(1).popularityScore(), 1e-9);
+        // The cached ranking itself is left as it was
+        assertEquals(List.of("user/fresh", "user/older"), names(stored));
+    }
+
+    @Test
+    @DisplayName("Should apply reloaded weights to cached rankings, and reuse the view while nothing changes")
+    void current_ShouldApplyReloadedWeights() {
+        var starred = repo("user/starred", 1_000, 0, NOW.minusDays(30), 3.0);
+        var forked = repo("user/forked", 100, 200, NOW.minusDays(30), 2.0);
+        var stored = PopularityRanking.complete(List.of(starred, forked));
+        var rescorer = new RankingRescorer(calculator);
+
+        var before = rescorer.current(stored);
+        assertSame(before, rescorer.current(stored));
+        calculator.updateScoringProperties(new ScoringProperties(1.0, 0.1, WEIGHTS.freshness()));
+        var after = rescorer.current(stored);
+
+        assertEquals(List.of("user/forked", "user/starred"), names(before));
+        assertEquals(List.of("user/starred", "user/forked"), names(after));
+        assertSame(after, rescorer.current(stored));
+    }
+
+    @Test
+    @DisplayName("Should give the same ranking as scoring every repository again")
+    void current_ShouldMatchAFullRescore() {
+        var random = new Random(42);
+        var today = NOW;
+        List<GithubRepositoryDto> repos = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            var updatedAt = random.nextInt(10) == 0 ? null : today.minusDays(random.nextInt(500)).minusHours(random.nextInt(24));
+            repos.add(new GithubRepositoryDto("repo-" + i, "user/repo-" + i, random.nextInt(50_000), random.nextInt(5_000),
+                    updatedAt, "java", "https://github.com/user/repo-" + i));
+        }
+        // Stored with outdated scores and in no particular order
+        var stored = PopularityRanking.complete(repos.stream()
+                .map(repo -> new RepositoryScoreResponse(repo.fullName(), repo.stars(), repo.forks(), repo.language(),
+                        1.0, repo.url(), null, repo.updatedAt()))
+                .toList());
+
+        var rescored = new RankingRescorer(calculator).current(stored);
+
+        double[] scores = calculator.calculateScores(repos);
+        List<RepositoryScoreResponse> expected = new ArrayList<>();
+        for (int i = 0; i < repos.size(); i++) {
+            var repo = repos.get(i);
+            expected.add(new RepositoryScoreResponse(repo.fullName(), repo.stars(), repo.forks(), repo.language(),
+                    scores[i], repo.url(), null, repo.updatedAt() != null ? repo.updatedAt().withNano(0) : null));
+        }
+        expected.sort(PopularityService.RANKING_ORDER.reversed());
+        assertEquals(expected, rescored.items());
+    }
+
+    @Test
+    @DisplayName("Should serve rankings without update dates as they were stored")
+    void current_ShouldKeepLegacyRankings() {
+        var stored = PopularityRanking.exhaustive(List.of(new RepositoryScoreResponse("user/legacy", 10, 1, "java", 1.0,
+                "https://github.com/user/legacy", LocalDate.parse("2024-01-01").atStartOfDay())));
+
+        assertSame(stored, new RankingRescorer(calculator).current(stored));
+    }
+
+    private static List<String> names(PopularityRanking ranking) {
+        return ranking.items().stream().map(RepositoryScoreResponse::fullName).toList();
+    }
+
+    private static RepositoryScoreResponse repo(String fullName, int stars, int forks, LocalDateTime updatedAt,
+                                                double storedScore) {
+        return new RepositoryScoreResponse(fullName, stars, forks, "java", storedScore,
+                "https://github.com/" + fullName, null, updatedAt);
+    }
+}
@@ -0,0 +1,89 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+class RedisRankingCacheTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T10:00:00Z");
+    private static final PopularityCacheKey JAVA = PopularityCacheKey.of("2024-01-01", "java");
+    private static final String PREFIX = "test:";
+
+    private RedisTestServer server;
+    private RedisRankingCache first;
+    private RedisRankingCache second;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new RedisTestServer();
+        first = open();
+        second = open();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Should serve a ranking written by one instance to the others, flags and write time included")
+    void get_ShouldReadRankingWrittenByAnotherInstance() {
+        var ranking = PopularityRanking.exhaustive(List.of(
+                new RepositoryScoreResponse("user/a", 300, 10, "Java", 310.5, "https://github.com/user/a",
+                        LocalDateTime.of(2024, 2, 1, 8, 0)),
+                new RepositoryScoreResponse("user/b", 200, 5, null, 205.0, "http://mirror/user/b", null)));
+
+        first.put(JAVA, ranking);
+        var shared = second.get(JAVA).orElseThrow();
+
+        assertEquals(ranking.items(), shared.ranking().items());
+        assertTrue(shared.ranking().exhaustive());
+        assertEquals(NOW, shared.writtenAt());
+        assertTrue(server.contains(PREFIX + "ranking:2024-01-01:java"));
+        assertTrue(second.get(PopularityCacheKey.of("2024-01-01", "go")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should tell the other instances about a write, but not the writer")
+    void onInvalidation_ShouldNotifyOtherInstances() throws Exception {
+        var firstNotified = new LinkedBlockingQueue<PopularityCacheKey>();
+        var secondNotified = new LinkedBlockingQueue<PopularityCacheKey>();
+        first.onInvalidation(firstNotified::add);
+        second.onInvalidation(secondNotified::add);
+        awaitSubscribers(2);
+
+        first.put(JAVA, PopularityRanking.complete(List.of(
+                new RepositoryScoreResponse("user/a", 10, 1, "java", 11.0, "https://github.com/user/a"))));
+
+        assertEquals(JAVA, secondNotified.poll(5, TimeUnit.SECONDS));
+        assertNull(firstNotified.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private RedisRankingCache open() {
+        return server.open(PREFIX, Duration.ofMinutes(30), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private void awaitSubscribers(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.subscriberCount(PREFIX + "invalidate") < expected && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, server.subscriberCount(PREFIX + "invalidate"));
+    }
+}
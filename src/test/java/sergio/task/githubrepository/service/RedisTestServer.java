@@ -0,0 +1,77 @@
+package sergio.task.githubrepository.service;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Redis for the shared tier tests. One container for the whole run, started on first use (Testcontainers removes it
+// when the JVM exits). Each test gets its own connections, one listener container per simulated instance, and an
+// empty database
+final class RedisTestServer implements AutoCloseable {
+
+    private static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7.4-alpine"))
+            .withExposedPorts(6379);
+
+    private final LettuceConnectionFactory connectionFactory;
+    private final List<RedisRankingCache> caches = new ArrayList<>();
+    private final List<RedisMessageListenerContainer> listenerContainers = new ArrayList<>();
+
+    RedisTestServer() {
+        synchronized (REDIS) {
+            if (!REDIS.isRunning()) {
+                REDIS.start();
+            }
+        }
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        try (var connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+    }
+
+    // Like another application instance: same server, its own subscriptions
+    RedisRankingCache open(String keyPrefix, Duration ttl, Clock clock) {
+        var listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        listenerContainers.add(listenerContainer);
+
+        var cache = new RedisRankingCache(connectionFactory, listenerContainer, keyPrefix, ttl, clock);
+        caches.add(cache);
+        return cache;
+    }
+
+    boolean contains(String key) {
+        try (var connection = connectionFactory.getConnection()) {
+            return Boolean.TRUE.equals(connection.keyCommands().exists(key.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    long subscriberCount(String channel) {
+        try (var connection = connectionFactory.getConnection()) {
+            // PUBSUB NUMSUB answers [channel, count]
+            var reply = (List<?>) connection.execute("PUBSUB", "NUMSUB".getBytes(StandardCharsets.UTF_8),
+                    channel.getBytes(StandardCharsets.UTF_8));
+            return reply == null || reply.size() < 2 ? 0 : ((Number) reply.get(1)).longValue();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        caches.forEach(RedisRankingCache::close);
+        for (var listenerContainer : listenerContainers) {
+            listenerContainer.destroy();
+        }
+        connectionFactory.destroy();
+    }
+}
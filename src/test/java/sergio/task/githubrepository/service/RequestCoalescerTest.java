@@ -0,0 +1,92 @@
+package sergio.task.githubrepository.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should run the computation once for concurrent callers with the same key")
+    void execute_ShouldShareInFlightComputation() throws Exception {
+        var invocations = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        int callers = 8;
+
+        List<Future<String>> results = new ArrayList<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> coalescer.execute("2023-01-01-java", () -> {
+                    invocations.incrementAndGet();
+                    awaitQuietly(release);
+                    return "ranking";
+                })));
+            }
+
+            // Wait until every follower has joined before letting the leader finish
+            while (meterRegistry.counter("popularity.requests.coalesced").count() < callers - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (var result : results) {
+                assertEquals("ranking", result.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(1, invocations.get());
+        assertEquals(callers - 1, meterRegistry.counter("popularity.requests.coalesced").count());
+        assertEquals(0, coalescer.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("Should start a new computation once the previous one for the key has finished")
+    void execute_ShouldNotReuseCompletedComputation() {
+        var invocations = new AtomicInteger();
+
+        coalescer.execute("key", invocations::incrementAndGet);
+        coalescer.execute("key", invocations::incrementAndGet);
+
+        assertEquals(2, invocations.get());
+        assertEquals(0.0, meterRegistry.counter("popularity.requests.coalesced").count());
+    }
+
+    @Test
+    @DisplayName("Should propagate the leader failure and release the key")
+    void execute_ShouldPropagateFailure() {
+        assertThrows(IllegalStateException.class, () -> coalescer.execute("key", () -> {
+            throw new IllegalStateException("GitHub down");
+        }));
+
+        assertEquals(0, coalescer.inFlightCount());
+        assertEquals("ok", coalescer.execute("key", () -> "ok"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
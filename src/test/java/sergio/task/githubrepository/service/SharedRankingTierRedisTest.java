@@ -0,0 +1,119 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import sergio.task.githubrepository.configuration.CacheConfig;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+class SharedRankingTierRedisTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-05-01T10:00:00Z"), ZoneOffset.UTC);
+    private static final PopularityCacheKey JAVA = PopularityCacheKey.of("2024-01-01", "java");
+    private static final PopularityCacheKey GO = PopularityCacheKey.of("2024-01-01", "go");
+
+    private RedisTestServer server;
+    private CaffeineCacheManager firstCacheManager;
+    private CaffeineCacheManager secondCacheManager;
+    private SharedRankingTier first;
+    private SharedRankingTier second;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new RedisTestServer();
+        firstCacheManager = new CaffeineCacheManager(CacheConfig.GITHUB_REPOS_CACHE);
+        secondCacheManager = new CaffeineCacheManager(CacheConfig.GITHUB_REPOS_CACHE);
+        first = tier(firstCacheManager, Duration.ofMinutes(5));
+        second = tier(secondCacheManager, Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Should publish complete rankings only")
+    void publish_ShouldSkipPartialAndEmptyRankings() {
+        first.publish(JAVA, PopularityRanking.partial(List.of(repo("user/partial"))));
+        first.publish(GO, PopularityRanking.complete(List.of()));
+
+        assertTrue(second.get(JAVA).isEmpty());
+        assertTrue(second.get(GO).isEmpty());
+
+        first.publish(JAVA, PopularityRanking.complete(List.of(repo("user/complete"))));
+
+        assertEquals(List.of(repo("user/complete")), second.get(JAVA).orElseThrow().items());
+    }
+
+    @Test
+    @DisplayName("Should only reuse a shared ranking for a refresh when it was written recently")
+    void getFresh_ShouldHonourReuseWindow() {
+        var noReuse = tier(secondCacheManager, Duration.ZERO);
+        first.publish(JAVA, PopularityRanking.complete(List.of(repo("user/a"))));
+
+        assertTrue(second.getFresh(JAVA).isPresent());
+        assertTrue(noReuse.getFresh(JAVA).isEmpty());
+        assertTrue(noReuse.get(JAVA).isPresent());
+    }
+
+    @Test
+    @DisplayName("Should replace a local ranking when another instance writes the key")
+    void subscribe_ShouldRefreshLocalEntries() throws Exception {
+        nativeCache(secondCacheManager).put(JAVA, PopularityRanking.complete(List.of(repo("user/old"))));
+        second.subscribe();
+        awaitSubscribers();
+
+        first.publish(JAVA, PopularityRanking.complete(List.of(repo("user/new"))));
+        first.publish(GO, PopularityRanking.complete(List.of(repo("user/go"))));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!List.of(repo("user/new")).equals(localItems(JAVA)) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(List.of(repo("user/new")), localItems(JAVA));
+        // Keys the instance doesn't hold are not pulled in
+        assertNull(nativeCache(secondCacheManager).getIfPresent(GO));
+    }
+
+    private SharedRankingTier tier(CaffeineCacheManager cacheManager, Duration reuseWithin) {
+        var sharedCache = server.open("test:", Duration.ofMinutes(30), CLOCK);
+        return new SharedRankingTier(sharedCache, () -> cacheManager, reuseWithin, CLOCK);
+    }
+
+    private List<RepositoryScoreResponse> localItems(PopularityCacheKey key) {
+        var ranking = (PopularityRanking) nativeCache(secondCacheManager).getIfPresent(key);
+        return ranking == null ? null : ranking.items();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(CaffeineCacheManager cacheManager) {
+        return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cacheManager
+                .getCache(CacheConfig.GITHUB_REPOS_CACHE).getNativeCache();
+    }
+
+    private void awaitSubscribers() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.subscriberCount("test:invalidate") == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, server.subscriberCount("test:invalidate"));
+    }
+
+    private static RepositoryScoreResponse repo(String fullName) {
+        return new RepositoryScoreResponse(fullName, 10, 1, "java", 10.0, "https://github.com/" + fullName);
+    }
+}
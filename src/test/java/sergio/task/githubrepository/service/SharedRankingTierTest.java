@@ -0,0 +1,210 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import sergio.task.githubrepository.configuration.CacheConfig;
+import sergio.task.githubrepository.model.RepositoryScoreResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedRankingTierTest {
+
+    private static final PopularityCacheKey JAVA = PopularityCacheKey.of("2024-01-01", "java");
+    private static final PopularityCacheKey GO = PopularityCacheKey.of("2024-01-01", "go");
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-05-01T10:00:00Z"));
+    // What the Redis server holds, shared by the instances
+    private final Map<PopularityCacheKey, SharedRankingCache.SharedRanking> server = new ConcurrentHashMap<>();
+    private final List<InMemorySharedCache> instances = new CopyOnWriteArrayList<>();
+    private CaffeineCacheManager firstCacheManager;
+    private CaffeineCacheManager secondCacheManager;
+    private SharedRankingTier first;
+    private SharedRankingTier second;
+
+    @BeforeEach
+    void setUp() {
+        firstCacheManager = new CaffeineCacheManager(CacheConfig.GITHUB_REPOS_CACHE);
+        secondCacheManager = new CaffeineCacheManager(CacheConfig.GITHUB_REPOS_CACHE);
+        first = tier(new InMemorySharedCache(), firstCacheManager, Duration.ofMinutes(5));
+        second = tier(new InMemorySharedCache(), secondCacheManager, Duration.ofMinutes(5));
+    }
+
+    @Test
+    @DisplayName("Should publish complete rankings only")
+    void publish_ShouldSkipPartialAndEmptyRankings() {
+        first.publish(JAVA, PopularityRanking.partial(List.of(repo("user/partial"))));
+        first.publish(GO, PopularityRanking.complete(List.of()));
+
+        assertTrue(server.isEmpty());
+        assertTrue(second.get(JAVA).isEmpty());
+
+        first.publish(JAVA, PopularityRanking.complete(List.of(repo("user/complete"))));
+
+        assertEquals(List.of(repo("user/complete")), second.get(JAVA).orElseThrow().items());
+    }
+
+    @Test
+    @DisplayName("Should only reuse a shared ranking for a refresh while it is within reuse-within")
+    void getFresh_ShouldHonourReuseWindow() {
+        first.publish(JAVA, PopularityRanking.complete(List.of(repo("user/a"))));
+
+        clock.advance(Duration.ofMinutes(4));
+        assertTrue(second.getFresh(JAVA).isPresent());
+
+        clock.advance(Duration.ofMinutes(1));
+        assertTrue(second.getFresh(JAVA).isEmpty());
+        // A miss takes it whatever its age
+        assertTrue(second.get(JAVA).isPresent());
+    }
+
+    @Test
+    @DisplayName("Should replace a local ranking when another instance writes the key, and leave other keys out")
+    void subscribe_ShouldReplaceLocalEntries() {
+        nativeCache(secondCacheManager).put(JAVA, PopularityRanking.complete(List.of(repo("user/old"))));
+        second.subscribe();
+
+        first.publish(JAVA, PopularityRanking.complete(List.of(repo("user/new"))));
+        first.publish(GO, PopularityRanking.complete(List.of(repo("user/go"))));
+
+        var local = (PopularityRanking) nativeCache(secondCacheManager).getIfPresent(JAVA);
+        assertEquals(List.of(repo("user/new")), local.items());
+        assertNull(nativeCache(secondCacheManager).getIfPresent(GO));
+    }
+
+    @Test
+    @DisplayName("Should evict a local ranking when the shared one can't be read after an invalidation")
+    void subscribe_ShouldEvictWhenSharedRankingIsGone() {
+        nativeCache(secondCacheManager).put(JAVA, PopularityRanking.complete(List.of(repo("user/old"))));
+        second.subscribe();
+        first.publish(JAVA, PopularityRanking.complete(List.of(repo("user/new"))));
+        nativeCache(secondCacheManager).put(JAVA, PopularityRanking.complete(List.of(repo("user/old"))));
+
+        // Expired on the server between the write and the invalidation
+        server.clear();
+        second.onInvalidation(JAVA);
+
+        assertNull(nativeCache(secondCacheManager).getIfPresent(JAVA));
+    }
+
+    @Test
+    @DisplayName("Should stop calling a failing shared cache for a while, then try it again")
+    void get_ShouldBackOffAfterFailure() {
+        var sharedCache = new InMemorySharedCache();
+        var tier = tier(sharedCache, firstCacheManager, Duration.ofMinutes(5));
+        server.put(JAVA, new SharedRankingCache.SharedRanking(
+                PopularityRanking.complete(List.of(repo("user/a"))), clock.instant()));
+        sharedCache.failing = true;
+
+        assertTrue(tier.get(JAVA).isEmpty());
+        sharedCache.failing = false;
+        assertTrue(tier.get(JAVA).isEmpty());
+        tier.publish(GO, PopularityRanking.complete(List.of(repo("user/go"))));
+        assertEquals(1, sharedCache.calls.get());
+
+        clock.advance(Duration.ofSeconds(10));
+
+        assertTrue(tier.get(JAVA).isPresent());
+        assertEquals(2, sharedCache.calls.get());
+    }
+
+    private SharedRankingTier tier(InMemorySharedCache sharedCache, CaffeineCacheManager cacheManager,
+                                   Duration reuseWithin) {
+        return new SharedRankingTier(sharedCache, () -> cacheManager, reuseWithin, clock);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(CaffeineCacheManager cacheManager) {
+        return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cacheManager
+                .getCache(CacheConfig.GITHUB_REPOS_CACHE).getNativeCache();
+    }
+
+    private static RepositoryScoreResponse repo(String fullName) {
+        return new RepositoryScoreResponse(fullName, 10, 1, "java", 10.0, "https://github.com/" + fullName);
+    }
+
+    // One instance's connection: writes go to the shared map and are announced to the other instances right away
+    private final class InMemorySharedCache implements SharedRankingCache {
+
+        private final List<Consumer<PopularityCacheKey>> listeners = new CopyOnWriteArrayList<>();
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile boolean failing;
+
+        private InMemorySharedCache() {
+            instances.add(this);
+        }
+
+        @Override
+        public Optional<SharedRanking> get(PopularityCacheKey key) {
+            calls.incrementAndGet();
+            if (failing) {
+                throw new IllegalStateException("Connection refused");
+            }
+            return Optional.ofNullable(server.get(key));
+        }
+
+        @Override
+        public void put(PopularityCacheKey key, PopularityRanking ranking) {
+            calls.incrementAndGet();
+            if (failing) {
+                throw new IllegalStateException("Connection refused");
+            }
+            server.put(key, new SharedRanking(ranking, clock.instant()));
+            instances.stream()
+                    .filter(instance -> instance != this)
+                    .forEach(instance -> instance.listeners.forEach(listener -> listener.accept(key)));
+        }
+
+        @Override
+        public void onInvalidation(Consumer<PopularityCacheKey> listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void close() {
+            listeners.clear();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package sergio.task.githubrepository.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopKCollectorTest {
+
+    @Test
+    @DisplayName("Should keep the K best items sorted best first")
+    void shouldKeepBestItems() {
+        var collector = new TopKCollector<Integer>(3, Comparator.naturalOrder());
+
+        collector.offerAll(List.of(5, 1, 9, 7, 3, 8));
+
+        assertEquals(List.of(9, 8, 7), collector.toSortedList());
+    }
+
+    @Test
+    @DisplayName("Should return every item when fewer than K were offered")
+    void shouldReturnAllWhenUnderCapacity() {
+        var collector = new TopKCollector<Integer>(10, Comparator.naturalOrder());
+
+        collector.offerAll(List.of(2, 4, 1));
+
+        assertEquals(3, collector.size());
+        assertEquals(List.of(4, 2, 1), collector.toSortedList());
+    }
+
+    @Test
+    @DisplayName("Should reject a non positive capacity")
+    void shouldRejectInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TopKCollector<Integer>(0, Comparator.naturalOrder()));
+    }
+}